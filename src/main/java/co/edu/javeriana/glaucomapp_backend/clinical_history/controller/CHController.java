@@ -11,6 +11,8 @@
  * - GET /mobile/clinical_history/get/exams: Retrieve a list of exams for a patient.
  * - DELETE /mobile/clinical_history/delete/exam/{examId}: Delete an exam by ID.
  * - GET /mobile/clinical_history/get/exam: Retrieve an exam by ID.
+ * - GET /mobile/clinical_history/get/exam/image: Stream the image of an exam, honoring If-None-Match and Range.
+ * - GET /mobile/clinical_history/get/progression: Retrieve the progression of a patient across exams.
  * 
  * Authorization:
  * All endpoints require an Authorization header with a valid JWT token.
@@ -29,10 +31,16 @@
  */
 package co.edu.javeriana.glaucomapp_backend.clinical_history.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -42,6 +50,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.ErrorResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamRequest;
@@ -49,16 +58,25 @@ import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamRes;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamsResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.PacientRequest;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.PacientResponse;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.ExamService;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.PatientService;
 import co.edu.javeriana.glaucomapp_backend.common.JwtUtil;
 import co.edu.javeriana.glaucomapp_backend.common.exceptions.UnauthorizedException;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
 import jakarta.persistence.EntityNotFoundException;
 
 @RequestMapping("/mobile/clinical_history")
 @RestController
 public class CHController {
 
+    /**
+     * Image keys are generated once per upload and never rewritten, so clients may keep them for a year.
+     */
+    private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePrivate()
+            .immutable();
+
     private final PatientService pacientService;
 
     private final ExamService examService;
@@ -228,6 +246,66 @@ public class CHController {
         });
     }
 
+    /**
+     * Streams the image of an exam from storage.
+     * Image keys are never reused for other content, so the ETag is derived from the key and a
+     * client that sends it back in If-None-Match receives a 304 before the image is read from
+     * storage. The response carries a long-lived Cache-Control header.
+     * Range requests are answered with 206 and only the requested bytes.
+     *
+     * @param token the authorization token from the request header
+     * @param examId the ID of the exam whose image is requested
+     * @param pacientId the ID of the patient associated with the exam
+     * @param webRequest the current request, checked against the ETag of the image
+     * @return a ResponseEntity streaming the image, a 304 status if the client already has it,
+     *         or a 404 status if the exam has no stored image
+     */
+    @GetMapping("get/exam/image")
+    public ResponseEntity<?> getExamImage(@RequestHeader("Authorization") String token,
+                                          @RequestParam String examId,
+                                          @RequestParam String pacientId,
+                                          WebRequest webRequest) {
+        String ophtalIdString = validateToken(token);
+        return handleRequest(() -> {
+            String imageKey = examService.getExamImageKey(ophtalIdString, pacientId, examId).orElse(null);
+            if (imageKey == null) {
+                return ResponseEntity.status(404).body(new ErrorResponse("Not Found", "Exam image not found"));
+            }
+            String etag = imageETag(imageKey);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(IMAGE_CACHE_CONTROL).build();
+            }
+            StoredImage image = examService.getExamImage(ophtalIdString, pacientId, examId).orElse(null);
+            if (image == null) {
+                return ResponseEntity.status(404).body(new ErrorResponse("Not Found", "Exam image not found"));
+            }
+            return ResponseEntity.ok()
+                    .contentType(image.contentType() == null
+                            ? MediaType.APPLICATION_OCTET_STREAM
+                            : MediaType.parseMediaType(image.contentType()))
+                    .eTag(etag)
+                    .cacheControl(IMAGE_CACHE_CONTROL)
+                    .body(new StoredImageResource(image));
+        });
+    }
+
+    /**
+     * Retrieves the progression of a patient's measurements across their exams.
+     *
+     * @param token the authorization token from the request header
+     * @param pacientId the ID of the patient
+     * @return a ResponseEntity containing the slopes, changes and stage transitions of the patient
+     */
+    @GetMapping("get/progression")
+    public ResponseEntity<?> getProgression(@RequestHeader("Authorization") String token,
+                                            @RequestParam String pacientId) {
+        String ophtalIdString = validateToken(token);
+        return handleRequest(() -> {
+            ProgressionResponse progression = examService.getProgression(ophtalIdString, pacientId);
+            return ResponseEntity.ok(progression);
+        });
+    }
+
     /**
      * Validates the provided JWT token and extracts the ophthalmologist ID from it.
      *
@@ -235,6 +313,10 @@ public class CHController {
      * @return the ophthalmologist ID extracted from the token
      * @throws UnauthorizedException if the token is invalid or the ophthalmologist ID is not found
      */
+    private static String imageETag(String imageKey) {
+        return "\"" + DigestUtils.md5DigestAsHex(imageKey.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
     private String validateToken(String token) {
         String ophtalIdString = jwtUtil.extractIdFromToken(token);
         if (ophtalIdString == null) {
@@ -0,0 +1,87 @@
+/**
+ * Resource exposing a stored image to Spring MVC so that it can be written, or sliced into the
+ * byte ranges a client asked for, straight from the image buffer.
+ *
+ * The buffer is usually a memory-mapped file, so the streams read from their own view of it
+ * instead of copying the image onto the heap, and skipping to a range start only moves the
+ * position of that view.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.controller;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.springframework.core.io.AbstractResource;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+
+class StoredImageResource extends AbstractResource {
+
+    private final StoredImage image;
+
+    StoredImageResource(StoredImage image) {
+        this.image = image;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteBufferInputStream(image.content().duplicate().rewind());
+    }
+
+    @Override
+    public long contentLength() {
+        return image.size();
+    }
+
+    @Override
+    public String getFilename() {
+        return image.key();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Stored image [" + image.key() + "]";
+    }
+
+    /**
+     * Reads a buffer from its position to its limit.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Incrementally maintained aggregate of a patient's exams, used to answer progression queries
+ * without loading every exam.
+ * 
+ * Exams are placed on a time axis in days since the epoch. For each tracked measurement the
+ * aggregate keeps the running sums a least-squares fit needs (the count, the sum of the times,
+ * the sum of the squared times, the sum of the values and the sum of the time-value products),
+ * so that adding an exam is a constant-time update and the slope is computed from the sums on
+ * read. The first and latest exams and the number of DDLS stage changes between consecutive exams
+ * are kept alongside. Exams whose date cannot be parsed are counted but not placed on the axis.
+ * 
+ * The row shares the patient's identifier and is removed by the database together with the patient.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.Pacient;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "patient_progression")
+public class PatientProgression {
+
+    @Id
+    @Column(name = "pacient_id", updatable = false, nullable = false)
+    private UUID pacientId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pacient_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Pacient pacient;
+
+    @Column(name = "exam_count", nullable = false)
+    private int examCount;
+
+    @Column(name = "undated_exam_count", nullable = false)
+    private int undatedExamCount;
+
+    @Column(name = "sum_t", nullable = false)
+    private double sumT;
+
+    @Column(name = "sum_tt", nullable = false)
+    private double sumTT;
+
+    @Column(name = "sum_distance_ratio", nullable = false)
+    private double sumDistanceRatio;
+
+    @Column(name = "sum_t_distance_ratio", nullable = false)
+    private double sumTDistanceRatio;
+
+    @Column(name = "sum_area_ratio", nullable = false)
+    private double sumAreaRatio;
+
+    @Column(name = "sum_t_area_ratio", nullable = false)
+    private double sumTAreaRatio;
+
+    @Column(name = "sum_ddl_stage", nullable = false)
+    private double sumDdlStage;
+
+    @Column(name = "sum_t_ddl_stage", nullable = false)
+    private double sumTDdlStage;
+
+    @Column(name = "first_exam_date")
+    private LocalDate firstExamDate;
+
+    @Column(name = "first_distance_ratio")
+    private Double firstDistanceRatio;
+
+    @Column(name = "first_area_ratio")
+    private Double firstAreaRatio;
+
+    @Column(name = "first_ddl_stage")
+    private Integer firstDdlStage;
+
+    @Column(name = "last_exam_date")
+    private LocalDate lastExamDate;
+
+    @Column(name = "last_distance_ratio")
+    private Double lastDistanceRatio;
+
+    @Column(name = "last_area_ratio")
+    private Double lastAreaRatio;
+
+    @Column(name = "last_ddl_stage")
+    private Integer lastDdlStage;
+
+    @Column(name = "max_ddl_stage")
+    private Integer maxDdlStage;
+
+    @Column(name = "stage_increases", nullable = false)
+    private int stageIncreases;
+
+    @Column(name = "stage_decreases", nullable = false)
+    private int stageDecreases;
+
+    public PatientProgression(Pacient pacient) {
+        this.pacient = pacient;
+        this.pacientId = pacient.getId();
+    }
+
+    /**
+     * @return the number of exams placed on the time axis
+     */
+    public int getDatedExamCount() {
+        return examCount - undatedExamCount;
+    }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Represents the progression of a patient's measurements across their exams.
+ *
+ * Slopes come from a least-squares fit over every dated exam and are expressed per year; they
+ * are null until at least two exams on different dates exist. Changes compare the latest exam with
+ * the first one. DDLS stages grow with the damage, so stage increases are worsening transitions.
+ *
+ * @param pacientId The unique identifier of the patient.
+ * @param examCount The number of exams of the patient.
+ * @param undatedExamCount The number of exams left out of the trend because their date could not be read.
+ * @param firstExamDate The date of the first exam.
+ * @param lastExamDate The date of the latest exam.
+ * @param distanceRatioSlopePerYear The yearly trend of the distance ratio.
+ * @param areaRatioSlopePerYear The yearly trend of the area ratio.
+ * @param ddlStageSlopePerYear The yearly trend of the DDLS stage.
+ * @param distanceRatioChange The change of the distance ratio between the first and latest exams.
+ * @param areaRatioChange The change of the area ratio between the first and latest exams.
+ * @param firstDdlStage The DDLS stage of the first exam.
+ * @param lastDdlStage The DDLS stage of the latest exam.
+ * @param maxDdlStage The worst DDLS stage recorded.
+ * @param stageIncreases How many times the stage went up between consecutive exams.
+ * @param stageDecreases How many times the stage went down between consecutive exams.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record ProgressionResponse(UUID pacientId, int examCount, int undatedExamCount, LocalDate firstExamDate,
+        LocalDate lastExamDate, Double distanceRatioSlopePerYear, Double areaRatioSlopePerYear,
+        Double ddlStageSlopePerYear, Double distanceRatioChange, Double areaRatioChange, Integer firstDdlStage,
+        Integer lastDdlStage, Integer maxDdlStage, int stageIncreases, int stageDecreases) {
+
+}
@@ -0,0 +1,30 @@
+/**
+ * Records when the image reconciliation last started, so that the nodes of a deployment run it once
+ * per interval between them instead of once each.
+ *
+ * There is a single row, locked by the node that claims the next run.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.model.reconciliation;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "image_reconciliation_run")
+public class ImageReconciliationRun {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "last_run_at")
+    private Instant lastRunAt;
+}
@@ -8,6 +8,7 @@
  * Methods:
  * 
  *   {@link #findByPacient_OphthalUser_IdAndPacient_Id(UUID, UUID)}: Finds a list of exams by the ophthalmologist user ID and patient ID.
+ *   {@link #streamImageKeys()}: Streams the image keys of all exams in ascending order through a database cursor.
  * 
  * 
  * @see Exam
@@ -17,11 +18,16 @@ package co.edu.javeriana.glaucomapp_backend.clinical_history.repository;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.Exam;
+import jakarta.persistence.QueryHint;
 
 
 @Repository
@@ -29,4 +35,17 @@ public interface ExamRepository extends JpaRepository<Exam, UUID>{
 
     List<Exam> findByPacient_DoctorIdAndPacient_Id(UUID doctorId, UUID pacientId);
 
+    /**
+     * Streams the image keys of all exams in ascending order, fetching rows in chunks through a
+     * cursor. Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return the image keys, repeated if several exams share an image
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select e.urlImage from Exam e where e.urlImage is not null order by e.urlImage")
+    Stream<String> streamImageKeys();
+
 }
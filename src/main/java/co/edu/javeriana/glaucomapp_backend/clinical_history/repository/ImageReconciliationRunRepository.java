@@ -0,0 +1,43 @@
+/**
+ * Repository interface for the {@link ImageReconciliationRun} row.
+ *
+ * Methods:
+ *
+ *   {@link #createIfMissing(String)}: Inserts the row unless it exists, without failing when another
+ *   node inserts it at the same time.
+ *   {@link #lockIfFree(String)}: Locks the row, or returns empty at once if another node holds it.
+ *
+ * @see ImageReconciliationRun
+ * @see JpaRepository
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.reconciliation.ImageReconciliationRun;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface ImageReconciliationRunRepository extends JpaRepository<ImageReconciliationRun, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO image_reconciliation_run (name) VALUES (:name) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int createIfMissing(@Param("name") String name);
+
+    // A lock timeout of -2 is Hibernate's SKIP LOCKED
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM ImageReconciliationRun r WHERE r.name = :name")
+    Optional<ImageReconciliationRun> lockIfFree(@Param("name") String name);
+
+}
@@ -9,6 +9,7 @@
  * - findPacientByCedulaAndOphthalUser: Finds a Pacient by their cedula and associated ophthalmologist user.
  * - findAllPacientsByOpthalUserId: Retrieves all Pacient entities associated with a specific ophthalmologist user ID.
  * - deletePacientByOphtalID: Deletes a Pacient entity based on the ophthalmologist user ID and Pacient ID.
+ * - lockById: Locks a Pacient row until the transaction ends, to serialize changes to data derived from the patient.
  * 
  * Annotations:
  * - @Repository: Indicates that this interface is a Spring Data repository.
@@ -27,14 +28,17 @@ package co.edu.javeriana.glaucomapp_backend.clinical_history.repository;
 
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.Pacient;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Transactional
@@ -46,6 +50,10 @@ public interface PacientRepository extends JpaRepository<Pacient, UUID> {
     @Query("SELECT p FROM Pacient p WHERE p.doctorId = :doctorId")
     List<Pacient> findAllPacientsByDoctorId(@Param("doctorId") UUID doctorId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Pacient p WHERE p.id = :pacientId")
+    Optional<Pacient> lockById(@Param("pacientId") UUID pacientId);
+
     @Modifying
     @Query("DELETE FROM Pacient p WHERE p.doctorId = :doctorId AND p.id = :pacientId")
     void deletePacientByDoctorId(@Param("doctorId") UUID doctorId, @Param("pacientId") UUID pacientId);
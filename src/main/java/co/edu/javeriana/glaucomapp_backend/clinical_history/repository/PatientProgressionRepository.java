@@ -0,0 +1,34 @@
+/**
+ * Repository interface for managing {@link PatientProgression} aggregates.
+ * 
+ * Methods:
+ * 
+ *   {@link #findForUpdate(UUID)}: Finds the aggregate of a patient and locks it until the
+ *   transaction ends. An aggregate that does not exist yet cannot be locked, so callers lock the
+ *   patient row first; concurrent exam changes of the same patient are then applied one after another.
+ * 
+ * @see PatientProgression
+ * @see JpaRepository
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.PatientProgression;
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface PatientProgressionRepository extends JpaRepository<PatientProgression, UUID> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PatientProgression p WHERE p.pacientId = :pacientId")
+    Optional<PatientProgression> findForUpdate(@Param("pacientId") UUID pacientId);
+
+}
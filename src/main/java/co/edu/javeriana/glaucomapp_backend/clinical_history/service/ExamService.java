@@ -7,12 +7,15 @@
 package co.edu.javeriana.glaucomapp_backend.clinical_history.service;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.stereotype.Service;
 
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamRequest;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamRes;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamsResponse;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
 
 @Service
 public interface ExamService {
@@ -23,6 +26,12 @@ public interface ExamService {
     public void deleteExam(String ophtalIdString, String pacientIdString,String examId);
 
     public ExamRes getExamById(String ophtalIdString, String pacientIdString,String examId);
+
+    public Optional<String> getExamImageKey(String ophtalIdString, String pacientIdString, String examId);
+
+    public Optional<StoredImage> getExamImage(String ophtalIdString, String pacientIdString, String examId);
+
+    public ProgressionResponse getProgression(String ophtalIdString, String pacientIdString);
     
 } 
 
@@ -0,0 +1,74 @@
+/**
+ * Runs the {@link ImageReconciliationService} in the background every
+ * {@code IMAGE_RECONCILIATION_INTERVAL_HOURS}, starting one interval after startup so that a
+ * restart does not trigger a full storage listing. Every node runs this timer, but only the node
+ * that claims a run reconciles, so storage is listed once per interval. Disabled with
+ * {@code IMAGE_RECONCILIATION_ENABLED=false}.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "IMAGE_RECONCILIATION_ENABLED", havingValue = "true", matchIfMissing = true)
+public class ImageReconciler implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageReconciler.class);
+
+    private final ImageReconciliationService reconciliationService;
+    private final long intervalMillis;
+
+    private volatile boolean running;
+    private Thread reconciler;
+
+    public ImageReconciler(ImageReconciliationService reconciliationService,
+            @Value("${IMAGE_RECONCILIATION_INTERVAL_HOURS:24}") long intervalHours) {
+        this.reconciliationService = reconciliationService;
+        this.intervalMillis = TimeUnit.HOURS.toMillis(intervalHours);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        reconciler = Thread.ofVirtual().name("image-reconciler").start(this::reconcile);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        reconciler.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void reconcile() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                if (!reconciliationService.claimRun(Duration.ofMillis(intervalMillis))) {
+                    logger.debug("Image reconciliation already ran on another node");
+                    continue;
+                }
+                reconciliationService.reconcile();
+            } catch (RuntimeException e) {
+                logger.error("Could not reconcile exam images: " + e.getMessage());
+            }
+        }
+    }
+}
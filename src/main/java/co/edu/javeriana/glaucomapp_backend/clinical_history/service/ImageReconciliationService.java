@@ -0,0 +1,224 @@
+/**
+ * Service class that reconciles the images in storage with the images referenced by exams.
+ *
+ * The storage listing and the exam image keys are both read in ascending key order, so they are
+ * compared as two sorted streams in a single pass, holding only the current key of each side and a
+ * batch of orphans. Stored images no exam refers to are orphans and are scheduled for deletion in
+ * batches, except for staged images, which have their own TTL, and images written within the grace
+ * period, whose exam may still be committing. Exams whose image is missing from storage cannot be
+ * repaired here and are reported.
+ *
+ * If either side turns out not to be in the expected order, such as with a database collation that
+ * does not compare keys by code point, the run fails and nothing is deleted.
+ *
+ * Every node schedules the reconciliation, so each run is claimed first in the
+ * {@code image_reconciliation_run} row; only one node per interval gets to run it.
+ *
+ * Methods:
+ * - claimRun(Duration interval): Claims the next run for this node, if no other node ran it recently.
+ * - reconcile(): Compares storage with the exams and schedules the orphans for deletion.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.reconciliation.ImageReconciliationRun;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ExamRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ImageReconciliationRunRepository;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredObject;
+import jakarta.transaction.Transactional;
+
+@Service
+public class ImageReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageReconciliationService.class);
+
+    static final int DELETION_BATCH_SIZE = 1000;
+
+    private static final String RUN_NAME = "image-reconciliation";
+
+    private static final int MAX_LOGGED_MISSING = 20;
+
+    private final ExamRepository examRepository;
+    private final ImageReconciliationRunRepository runRepository;
+    private final S3Service s3Service;
+    private final Duration gracePeriod;
+    private final boolean deleteOrphans;
+    private final Clock clock;
+
+    @Autowired
+    public ImageReconciliationService(ExamRepository examRepository, ImageReconciliationRunRepository runRepository,
+            S3Service s3Service,
+            @Value("${IMAGE_RECONCILIATION_GRACE_HOURS:24}") long graceHours,
+            @Value("${IMAGE_RECONCILIATION_DELETE_ORPHANS:true}") boolean deleteOrphans) {
+        this(examRepository, runRepository, s3Service, Duration.ofHours(graceHours), deleteOrphans, Clock.systemUTC());
+    }
+
+    ImageReconciliationService(ExamRepository examRepository, ImageReconciliationRunRepository runRepository,
+            S3Service s3Service, Duration gracePeriod, boolean deleteOrphans, Clock clock) {
+        this.examRepository = examRepository;
+        this.runRepository = runRepository;
+        this.s3Service = s3Service;
+        this.gracePeriod = gracePeriod;
+        this.deleteOrphans = deleteOrphans;
+        this.clock = clock;
+    }
+
+    /**
+     * Claims the next reconciliation run for this node.
+     * <p>
+     * The run row is locked with {@code SKIP LOCKED}, so a node that finds it held skips the run
+     * instead of waiting. The nodes' timers fire at different points of the interval, so a run is
+     * due once the last one started more than half an interval ago.
+     * </p>
+     *
+     * @param interval how often each node tries to run the reconciliation
+     * @return true if this node should run the reconciliation now
+     */
+    @Transactional
+    public boolean claimRun(Duration interval) {
+        Instant now = clock.instant();
+        runRepository.createIfMissing(RUN_NAME);
+        Optional<ImageReconciliationRun> run = runRepository.lockIfFree(RUN_NAME);
+        if (run.isEmpty()) {
+            return false;
+        }
+        Instant lastRunAt = run.get().getLastRunAt();
+        if (lastRunAt != null && lastRunAt.isAfter(now.minus(interval.dividedBy(2)))) {
+            return false;
+        }
+        run.get().setLastRunAt(now);
+        return true;
+    }
+
+    /**
+     * Compares the stored images with the image keys of the exams and schedules the orphans for
+     * deletion once the transaction commits.
+     *
+     * @return the counts of the run
+     * @throws IllegalStateException if the storage listing or the exam keys are not in ascending order
+     */
+    @Transactional
+    public Report reconcile() {
+        Instant writtenBefore = clock.instant().minus(gracePeriod);
+        Counts counts = new Counts();
+        List<String> orphans = new ArrayList<>(DELETION_BATCH_SIZE);
+        try (Stream<StoredObject> storedImages = s3Service.listImages();
+                Stream<String> examImages = examRepository.streamImageKeys()) {
+            SortedCursor<StoredObject> stored = new SortedCursor<>(storedImages.iterator(), StoredObject::key, "storage listing");
+            SortedCursor<String> referenced = new SortedCursor<>(examImages.iterator(), key -> key, "exam image keys");
+            while (stored.current != null || referenced.current != null) {
+                int order = stored.current == null ? 1
+                        : referenced.current == null ? -1
+                        : stored.key().compareTo(referenced.key());
+                if (order < 0) {
+                    counts.storedImages++;
+                    StoredObject image = stored.current;
+                    if (!image.key().startsWith(S3Service.STAGING_PREFIX) && image.lastModified().isBefore(writtenBefore)) {
+                        counts.orphans++;
+                        orphans.add(image.key());
+                        if (orphans.size() == DELETION_BATCH_SIZE) {
+                            scheduleDeletion(orphans);
+                        }
+                    }
+                    stored.advance();
+                } else if (order > 0) {
+                    counts.examImages++;
+                    counts.missing++;
+                    if (counts.missing <= MAX_LOGGED_MISSING) {
+                        logger.warn("Exam image " + referenced.key() + " is missing from storage");
+                    }
+                    referenced.advance();
+                } else {
+                    counts.storedImages++;
+                    counts.examImages++;
+                    stored.advance();
+                    referenced.advance();
+                }
+            }
+        }
+        scheduleDeletion(orphans);
+        Report report = new Report(counts.storedImages, counts.examImages, counts.orphans, counts.missing);
+        logger.info("Image reconciliation: " + report);
+        return report;
+    }
+
+    private void scheduleDeletion(List<String> orphans) {
+        if (deleteOrphans && !orphans.isEmpty()) {
+            s3Service.scheduleDeletion(List.copyOf(orphans));
+        }
+        orphans.clear();
+    }
+
+    /**
+     * Counts of a reconciliation run.
+     *
+     * @param storedImages the images in storage
+     * @param examImages   the distinct images referenced by exams
+     * @param orphans      the stored images no exam refers to, past the grace period and not staged
+     * @param missing      the images referenced by exams that are not in storage
+     */
+    public record Report(long storedImages, long examImages, long orphans, long missing) {
+    }
+
+    private static final class Counts {
+        private long storedImages;
+        private long examImages;
+        private long orphans;
+        private long missing;
+    }
+
+    /**
+     * Iterator over a sorted stream that skips repeated keys and fails if a key goes backwards.
+     */
+    private static final class SortedCursor<T> {
+
+        private final Iterator<T> iterator;
+        private final Function<T, String> keyOf;
+        private final String source;
+        private T current;
+
+        private SortedCursor(Iterator<T> iterator, Function<T, String> keyOf, String source) {
+            this.iterator = iterator;
+            this.keyOf = keyOf;
+            this.source = source;
+            this.current = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        private String key() {
+            return keyOf.apply(current);
+        }
+
+        private void advance() {
+            String previous = key();
+            current = null;
+            while (iterator.hasNext()) {
+                T next = iterator.next();
+                int order = keyOf.apply(next).compareTo(previous);
+                if (order < 0) {
+                    throw new IllegalStateException("The " + source + " are not in ascending order: "
+                            + keyOf.apply(next) + " comes after " + previous);
+                }
+                if (order > 0) {
+                    current = next;
+                    return;
+                }
+            }
+        }
+    }
+}
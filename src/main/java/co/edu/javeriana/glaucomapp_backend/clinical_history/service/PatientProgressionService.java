@@ -0,0 +1,236 @@
+/**
+ * Service class that maintains the {@link PatientProgression} aggregate of each patient and
+ * answers progression queries from it.
+ *
+ * Saving an exam dated on or after the patient's latest exam, which is how exams are normally
+ * recorded, updates the aggregate in constant time. Back-dated exams and deletions change which
+ * exams are consecutive, so they rebuild the aggregate from the patient's exams. Patients whose
+ * exams were recorded before the aggregate existed get it built on their first progression query.
+ * Every change locks the patient row before reading the aggregate, so that two transactions never
+ * both find it missing and insert it.
+ *
+ * Methods:
+ * - recordExam(Exam exam): Adds a newly saved exam to its patient's aggregate.
+ * - rebuild(Pacient pacient): Recomputes a patient's aggregate from all of their exams.
+ * - getProgression(Pacient pacient): Returns a patient's progression, building the aggregate if needed.
+ */
+package co.edu.javeriana.glaucomapp_backend.clinical_history.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.Exam;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.Pacient;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.PatientProgression;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ExamRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.PacientRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.PatientProgressionRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class PatientProgressionService {
+
+    private static final double DAYS_PER_YEAR = 365.25;
+
+    private final PatientProgressionRepository progressionRepository;
+    private final ExamRepository examRepository;
+    private final PacientRepository pacientRepository;
+
+    /**
+     * Adds a newly saved exam to the aggregate of its patient.
+     *
+     * @param exam the saved exam
+     */
+    @Transactional
+    public void recordExam(Exam exam) {
+        Pacient pacient = exam.getPacient();
+        pacientRepository.lockById(pacient.getId());
+        Optional<PatientProgression> existing = progressionRepository.findForUpdate(pacient.getId());
+        if (existing.isEmpty()) {
+            rebuild(pacient);
+            return;
+        }
+        PatientProgression progression = existing.get();
+        LocalDate date = parseDate(exam.getDate());
+        if (date != null && progression.getLastExamDate() != null && date.isBefore(progression.getLastExamDate())) {
+            rebuild(pacient);
+            return;
+        }
+        add(progression, exam, date);
+        progressionRepository.save(progression);
+    }
+
+    /**
+     * Recomputes the aggregate of a patient from all of their exams.
+     *
+     * @param pacient the patient
+     * @return the rebuilt aggregate
+     */
+    @Transactional
+    public PatientProgression rebuild(Pacient pacient) {
+        pacientRepository.lockById(pacient.getId());
+        PatientProgression progression = progressionRepository.findForUpdate(pacient.getId())
+                .orElseGet(() -> new PatientProgression(pacient));
+        reset(progression);
+        List<Exam> exams = examRepository.findByPacient_DoctorIdAndPacient_Id(pacient.getDoctorId(), pacient.getId());
+        exams.stream()
+                .map(exam -> new DatedExam(exam, parseDate(exam.getDate())))
+                .sorted(Comparator.comparing(DatedExam::date, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .forEach(dated -> add(progression, dated.exam(), dated.date()));
+        return progressionRepository.save(progression);
+    }
+
+    /**
+     * Returns the progression of a patient whose access has already been verified.
+     *
+     * @param pacient the patient
+     * @return the progression computed from the aggregate
+     */
+    @Transactional
+    public ProgressionResponse getProgression(Pacient pacient) {
+        PatientProgression progression = progressionRepository.findById(pacient.getId())
+                .orElseGet(() -> rebuild(pacient));
+        return toResponse(progression);
+    }
+
+    /**
+     * Maps an aggregate to the progression response, deriving the slopes from the running sums.
+     *
+     * @param progression the aggregate
+     * @return the progression response
+     */
+    public ProgressionResponse toResponse(PatientProgression progression) {
+        int n = progression.getDatedExamCount();
+        double denominator = n * progression.getSumTT() - progression.getSumT() * progression.getSumT();
+        return new ProgressionResponse(
+                progression.getPacientId(),
+                progression.getExamCount(),
+                progression.getUndatedExamCount(),
+                progression.getFirstExamDate(),
+                progression.getLastExamDate(),
+                slopePerYear(progression, denominator, progression.getSumDistanceRatio(), progression.getSumTDistanceRatio()),
+                slopePerYear(progression, denominator, progression.getSumAreaRatio(), progression.getSumTAreaRatio()),
+                slopePerYear(progression, denominator, progression.getSumDdlStage(), progression.getSumTDdlStage()),
+                difference(progression.getLastDistanceRatio(), progression.getFirstDistanceRatio()),
+                difference(progression.getLastAreaRatio(), progression.getFirstAreaRatio()),
+                progression.getFirstDdlStage(),
+                progression.getLastDdlStage(),
+                progression.getMaxDdlStage(),
+                progression.getStageIncreases(),
+                progression.getStageDecreases());
+    }
+
+    /**
+     * Parses the leading ISO date of an exam date.
+     *
+     * @param date the exam date, such as {@code 2023-10-01} or {@code 2023-10-01T09:30}
+     * @return the parsed date, or null if it cannot be read
+     */
+    static LocalDate parseDate(String date) {
+        if (date == null || date.length() < 10) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds an exam that is not older than any exam already in the aggregate.
+     */
+    private void add(PatientProgression progression, Exam exam, LocalDate date) {
+        progression.setExamCount(progression.getExamCount() + 1);
+        if (date == null) {
+            progression.setUndatedExamCount(progression.getUndatedExamCount() + 1);
+            return;
+        }
+        double t = date.toEpochDay();
+        double distanceRatio = exam.getDistanceRatio();
+        double areaRatio = exam.getAreaRatio();
+        int ddlStage = exam.getDdlStage();
+
+        progression.setSumT(progression.getSumT() + t);
+        progression.setSumTT(progression.getSumTT() + t * t);
+        progression.setSumDistanceRatio(progression.getSumDistanceRatio() + distanceRatio);
+        progression.setSumTDistanceRatio(progression.getSumTDistanceRatio() + t * distanceRatio);
+        progression.setSumAreaRatio(progression.getSumAreaRatio() + areaRatio);
+        progression.setSumTAreaRatio(progression.getSumTAreaRatio() + t * areaRatio);
+        progression.setSumDdlStage(progression.getSumDdlStage() + ddlStage);
+        progression.setSumTDdlStage(progression.getSumTDdlStage() + t * ddlStage);
+
+        if (progression.getFirstExamDate() == null) {
+            progression.setFirstExamDate(date);
+            progression.setFirstDistanceRatio(distanceRatio);
+            progression.setFirstAreaRatio(areaRatio);
+            progression.setFirstDdlStage(ddlStage);
+        }
+        Integer previousStage = progression.getLastDdlStage();
+        if (previousStage != null && ddlStage > previousStage) {
+            progression.setStageIncreases(progression.getStageIncreases() + 1);
+        } else if (previousStage != null && ddlStage < previousStage) {
+            progression.setStageDecreases(progression.getStageDecreases() + 1);
+        }
+        progression.setLastExamDate(date);
+        progression.setLastDistanceRatio(distanceRatio);
+        progression.setLastAreaRatio(areaRatio);
+        progression.setLastDdlStage(ddlStage);
+        if (progression.getMaxDdlStage() == null || ddlStage > progression.getMaxDdlStage()) {
+            progression.setMaxDdlStage(ddlStage);
+        }
+    }
+
+    private void reset(PatientProgression progression) {
+        progression.setExamCount(0);
+        progression.setUndatedExamCount(0);
+        progression.setSumT(0);
+        progression.setSumTT(0);
+        progression.setSumDistanceRatio(0);
+        progression.setSumTDistanceRatio(0);
+        progression.setSumAreaRatio(0);
+        progression.setSumTAreaRatio(0);
+        progression.setSumDdlStage(0);
+        progression.setSumTDdlStage(0);
+        progression.setFirstExamDate(null);
+        progression.setFirstDistanceRatio(null);
+        progression.setFirstAreaRatio(null);
+        progression.setFirstDdlStage(null);
+        progression.setLastExamDate(null);
+        progression.setLastDistanceRatio(null);
+        progression.setLastAreaRatio(null);
+        progression.setLastDdlStage(null);
+        progression.setMaxDdlStage(null);
+        progression.setStageIncreases(0);
+        progression.setStageDecreases(0);
+    }
+
+    /**
+     * Computes the least-squares slope of a measurement from the running sums.
+     *
+     * @return the slope per year, or null if all dated exams share the same date
+     */
+    private Double slopePerYear(PatientProgression progression, double denominator, double sumY, double sumTY) {
+        if (progression.getDatedExamCount() < 2 || denominator <= 0) {
+            return null;
+        }
+        double slopePerDay = (progression.getDatedExamCount() * sumTY - progression.getSumT() * sumY) / denominator;
+        return slopePerDay * DAYS_PER_YEAR;
+    }
+
+    private Double difference(Double last, Double first) {
+        return last == null || first == null ? null : last - first;
+    }
+
+    private record DatedExam(Exam exam, LocalDate date) {
+    }
+
+}
@@ -8,16 +8,19 @@
  * - S3Service: Service for handling S3 operations.
  * - ReviewOphthalmologistEvent: Event for verifying ophthalmologist access.
  * - PacientRepository: Repository for accessing patient data.
+ * - PatientProgressionService: Service maintaining the per-patient progression aggregate.
  * 
  * Methods:
  * - saveExam(String ophtalIdString, ExamRequest examRequest): Saves a new exam for a patient.
  * - getExamsByPacient(String ophtalIdString, String pacientIdString, int startIndex, int endIndex): Retrieves a list of exams for a patient.
  * - deleteExam(String ophtalIdString, String pacientIdString, String examIdString): Deletes an exam for a patient.
  * - getExamById(String ophtalIdString, String pacientIdString, String examIdString): Retrieves an exam by its ID.
+ * - getExamImage(String ophtalIdString, String pacientIdString, String examIdString): Reads the stored image of an exam.
+ * - getProgression(String ophtalIdString, String pacientIdString): Retrieves the progression of a patient across exams.
  * 
  * Private Methods:
  * - findPacientByCedulaAndDoctorId(String cedula, UUID ophtalId): Finds a patient by their cedula and doctor ID.
- * - createExamFromRequest(ExamRequest examRequest, Pacient pacient): Creates an exam entity from an exam request.
+ * - createExamFromRequest(ExamRequest examRequest, Pacient pacient, String imageKey): Creates an exam entity from an exam request.
  * - mapToExamRes(Exam exam): Maps an exam entity to an ExamRes response.
  * - mapToExamsResponse(Exam exam): Maps an exam entity to an ExamsResponse response.
  * - verifyExam(UUID ophtalId, UUID pacientId, UUID examId): Verifies the access to an exam.
@@ -37,11 +40,14 @@ import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamReque
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamRes;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamsResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.Pacient;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ExamRepository;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.PacientRepository;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.ExamService;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.service.PatientProgressionService;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.ReviewOphthalmologistEvent;
 import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
 import jakarta.transaction.Transactional;
 
 @Service
@@ -54,21 +60,27 @@ public class ExamServiceImpl implements ExamService {
 
     private final PacientRepository pacientRepository;
 
+    private final PatientProgressionService progressionService;
+
     public ExamServiceImpl(ExamRepository examRepository,
-            PacientRepository pacientRepository, S3Service s3Service, ReviewOphthalmologistEvent reviewOphthalmologistEvent) {
+            PacientRepository pacientRepository, S3Service s3Service, ReviewOphthalmologistEvent reviewOphthalmologistEvent,
+            PatientProgressionService progressionService) {
         this.examRepository = examRepository;
         this.pacientRepository = pacientRepository;
         this.s3Service = s3Service;
         this.reviewOphthalmologistEvent = reviewOphthalmologistEvent;
+        this.progressionService = progressionService;
     }
 
     /**
-     * Saves an exam for a given ophthalmologist and patient.
+     * Saves an exam for a given ophthalmologist and patient and adds it to the patient's progression.
+     * The screening overlay of the exam is promoted out of the staging prefix, so it is no longer purged.
      *
      * @param ophtalIdString the UUID string of the ophthalmologist
      * @param examRequest the request object containing exam details
-     * @throws IllegalArgumentException if the UUID string is invalid
+     * @throws IllegalArgumentException if the UUID string is invalid or the staged image has expired
      */
+    @Transactional
     @Override
     public void saveExam(String ophtalIdString, ExamRequest examRequest) {
         UUID ophtalId = UUID.fromString(ophtalIdString);
@@ -77,8 +89,12 @@ public class ExamServiceImpl implements ExamService {
 
         Pacient pacient = findPacientByCedulaAndDoctorId(examRequest.cedula(), ophtalId);
 
-        Exam newExam = createExamFromRequest(examRequest, pacient);
+        // The staged overlay is copied to its permanent key inside the storage, without reading it back
+        String imageKey = s3Service.promote(examRequest.urlImage());
+
+        Exam newExam = createExamFromRequest(examRequest, pacient, imageKey);
         examRepository.save(newExam);
+        progressionService.recordExam(newExam);
     }
 
     /**
@@ -109,7 +125,9 @@ public class ExamServiceImpl implements ExamService {
     }
 
     /**
-     * Deletes an exam record from the database and removes the associated image from S3 storage.
+     * Deletes an exam record from the database, releases the associated image, which is deleted from
+     * S3 storage once the transaction commits unless another exam shares it, and rebuilds the
+     * patient's progression without it.
      *
      * @param ophtalIdString the UUID string of the ophthalmologist
      * @param pacientIdString the UUID string of the patient
@@ -125,10 +143,10 @@ public class ExamServiceImpl implements ExamService {
         UUID examId = UUID.fromString(examIdString);
 
         Exam exam = verifyExam(ophtalId, pacientId, examId);
-        s3Service.deleteImage(exam.getUrlImage());
+        s3Service.release(List.of(exam.getUrlImage()));
 
         examRepository.deleteById(examId);
-
+        progressionService.rebuild(exam.getPacient());
     }
 
     /**
@@ -151,6 +169,70 @@ public class ExamServiceImpl implements ExamService {
         return mapToExamRes(exam);
     }
 
+    /**
+     * Returns the storage key of the image of an exam without reading the image.
+     *
+     * @param ophtalIdString the ID of the ophthalmologist as a string
+     * @param pacientIdString the ID of the patient as a string
+     * @param examIdString the ID of the exam as a string
+     * @return the image key, or empty if the exam has no image
+     * @throws IllegalArgumentException if any of the provided IDs are invalid
+     * @throws AccessDeniedException if the exam does not belong to the patient and ophthalmologist
+     */
+    @Override
+    public Optional<String> getExamImageKey(String ophtalIdString, String pacientIdString, String examIdString) {
+        UUID ophtalId = UUID.fromString(ophtalIdString);
+        UUID pacientId = UUID.fromString(pacientIdString);
+        UUID examId = UUID.fromString(examIdString);
+
+        return Optional.ofNullable(verifyExam(ophtalId, pacientId, examId).getUrlImage());
+    }
+
+    /**
+     * Reads the stored image of an exam so that it can be streamed to the ophthalmologist.
+     *
+     * @param ophtalIdString the ID of the ophthalmologist as a string
+     * @param pacientIdString the ID of the patient as a string
+     * @param examIdString the ID of the exam as a string
+     * @return the stored image, or empty if the exam has no image in storage
+     * @throws IllegalArgumentException if any of the provided IDs are invalid
+     * @throws AccessDeniedException if the exam does not belong to the patient and ophthalmologist
+     */
+    @Override
+    public Optional<StoredImage> getExamImage(String ophtalIdString, String pacientIdString, String examIdString) {
+        UUID ophtalId = UUID.fromString(ophtalIdString);
+        UUID pacientId = UUID.fromString(pacientIdString);
+        UUID examId = UUID.fromString(examIdString);
+
+        Exam exam = verifyExam(ophtalId, pacientId, examId);
+        if (exam.getUrlImage() == null) {
+            return Optional.empty();
+        }
+        return s3Service.getImage(exam.getUrlImage());
+    }
+
+    /**
+     * Retrieves the progression of a patient's measurements across their exams.
+     *
+     * @param ophtalIdString the ID of the ophthalmologist as a string
+     * @param pacientIdString the ID of the patient as a string
+     * @return a ProgressionResponse with the trends and stage transitions of the patient
+     * @throws IllegalArgumentException if any of the provided IDs are invalid
+     * @throws AccessDeniedException if the patient does not belong to the ophthalmologist
+     */
+    @Override
+    public ProgressionResponse getProgression(String ophtalIdString, String pacientIdString) {
+        UUID ophtalId = UUID.fromString(ophtalIdString);
+        UUID pacientId = UUID.fromString(pacientIdString);
+        reviewOphthalmologistEvent.verifyOphtalmologist(ophtalIdString);
+
+        Pacient pacient = pacientRepository.findById(pacientId)
+                                           .filter(found -> ophtalId.equals(found.getDoctorId()))
+                                           .orElseThrow(() -> new AccessDeniedException("Unauthorized access to the patient"));
+
+        return progressionService.getProgression(pacient);
+    }
+
     /**
      * Finds a patient by their cedula and the doctor's ID.
      *
@@ -169,13 +251,14 @@ public class ExamServiceImpl implements ExamService {
      *
      * @param examRequest the request object containing exam details
      * @param pacient the Pacient object associated with the exam
+     * @param imageKey the permanent key of the exam image
      * @return a new Exam object populated with data from the examRequest and pacient
      */
-    private Exam createExamFromRequest(ExamRequest examRequest, Pacient pacient) {
+    private Exam createExamFromRequest(ExamRequest examRequest, Pacient pacient, String imageKey) {
         return Exam.builder()
                    .name(examRequest.name())
                    .date(examRequest.date())
-                   .urlImage(examRequest.urlImage())
+                   .urlImage(imageKey)
                    .distanceRatio(examRequest.distanceRatio())
                    .perimeterRatio(examRequest.perimeterRatio())
                    .areaRatio(examRequest.areaRatio())
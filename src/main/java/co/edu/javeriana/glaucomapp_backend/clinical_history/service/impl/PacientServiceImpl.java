@@ -20,6 +20,7 @@
  * - validatePacientRequest(PacientRequest pacientRequest): Validates the PacientRequest object.
  * - validateOphtalId(String ophtalIdString): Validates the ophthalmologist ID.
  * - validatePacientId(String pacientIdString): Validates the Pacient ID.
+ * - deleteImages(List<Exam> exams): Schedules the deletion of the images of the given Exams from S3.
  * 
  * Annotations:
  * - @Service: Indicates that this class is a service component in the Spring context.
@@ -83,9 +84,7 @@ public class PacientServiceImpl implements PatientService {
                 .orElseThrow(() -> new EntityNotFoundException("Pacient not found"));
 
         List<Exam> exams = pacient.getExams();
-        exams.forEach(exam -> {
-            s3Service.deleteImage(exam.getUrlImage());
-        });
+        deleteImages(exams);
 
         examRepository.deleteAll(exams);
         pacientRepository.delete(pacient);
@@ -202,15 +201,26 @@ public class PacientServiceImpl implements PatientService {
             throw new AccessDeniedException("Unauthorized access to the pacient");
         }
 
-        pacient.getExams().forEach(exam -> {
-            s3Service.deleteImage(exam.getUrlImage());
-        });
+        deleteImages(pacient.getExams());
 
         pacient.getExams().clear();
         pacientRepository.delete(pacient);
     }
 
 
+    /**
+     * Releases the images of the given exams; those no longer referenced by any exam are deleted from
+     * S3 once the transaction commits.
+     *
+     * @param exams the exams whose images are deleted
+     */
+    private void deleteImages(List<Exam> exams) {
+        if (exams.isEmpty()) {
+            return;
+        }
+        s3Service.release(exams.stream().map(Exam::getUrlImage).toList());
+    }
+
     /**
      * Validates the given patient ID string.
      * 
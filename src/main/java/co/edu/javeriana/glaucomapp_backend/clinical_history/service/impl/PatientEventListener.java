@@ -9,8 +9,8 @@
  * 
  * Methods:
  * - on(UUID ophtalmologistId): Listens for events with the given ophthalmologist ID, retrieves all patients
- *   associated with the doctor, deletes their exams and patients from the repositories, and deletes the 
- *   associated images from S3.
+ *   associated with the doctor, deletes their exams and patients from the repositories, and releases
+ *   the associated images in the same transaction, so that images no other exam uses are deleted from S3.
  * 
  * Annotations:
  * - @Service: Indicates that this class is a service component in the Spring context.
@@ -56,9 +56,7 @@ public class PatientEventListener {
                 examRepository.deleteAll(pacient.getExams());
                 pacientRepository.delete(pacient);
             });
-            urlImages.forEach(urlImage -> {
-                s3Service.deleteImage(urlImage);
-            });
+            s3Service.release(urlImages);
         }
     }
 
@@ -0,0 +1,190 @@
+package co.edu.javeriana.glaucomapp_backend.common.buffer;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A size-classed pool of reusable {@code byte[]} buffers for image payloads.
+ * <p>
+ * A screening allocates several multi-megabyte arrays (analyzer payload, decoded overlay, PNG
+ * output). Arrays that large are humongous allocations for G1, so they are borrowed from this pool
+ * and returned once the request is done with them. Buffers are grouped in power-of-two size classes
+ * between {@value #MIN_CLASS_BYTES} bytes and {@code BUFFER_POOL_MAX_BUFFER_MB}; larger requests
+ * are allocated directly and never retained. At most {@code BUFFER_POOL_MAX_RETAINED_MB} of idle
+ * buffers are kept, anything beyond is left to the garbage collector.
+ * </p>
+ * <p>
+ * Every borrowed buffer is tracked by a {@link Cleaner}. A {@link PooledBuffer} that becomes
+ * unreachable without being closed is reported as a leak in the log and in the
+ * {@code buffer.pool.leaks} counter, and its bytes are removed from the outstanding total.
+ * </p>
+ */
+@Component
+public class BufferPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(BufferPool.class);
+
+    static final int MIN_CLASS_BYTES = 64 * 1024;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int maxClassBytes;
+    private final long maxRetainedBytes;
+    private final ConcurrentLinkedDeque<byte[]>[] classes;
+
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter leaks;
+
+    /**
+     * @param meterRegistry      registry the pool metrics are published to
+     * @param maxBufferMegabytes largest buffer that is pooled
+     * @param maxRetainedMegabytes upper bound on the idle buffers kept by the pool
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(MeterRegistry meterRegistry,
+            @Value("${BUFFER_POOL_MAX_BUFFER_MB:64}") int maxBufferMegabytes,
+            @Value("${BUFFER_POOL_MAX_RETAINED_MB:128}") int maxRetainedMegabytes) {
+        if (maxBufferMegabytes < 1 || maxBufferMegabytes > 1024 || maxRetainedMegabytes < 0) {
+            throw new IllegalArgumentException("Invalid buffer pool limits");
+        }
+        this.maxClassBytes = Integer.highestOneBit(maxBufferMegabytes) * 1024 * 1024;
+        this.maxRetainedBytes = maxRetainedMegabytes * 1024L * 1024L;
+        this.classes = new ConcurrentLinkedDeque[classIndex(maxClassBytes) + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ConcurrentLinkedDeque<>();
+        }
+
+        this.hits = Counter.builder("buffer.pool.hits").register(meterRegistry);
+        this.misses = Counter.builder("buffer.pool.misses").register(meterRegistry);
+        this.leaks = Counter.builder("buffer.pool.leaks").register(meterRegistry);
+        Gauge.builder("buffer.pool.outstanding.bytes", outstandingBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("buffer.pool.retained.bytes", retainedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Borrows a buffer of at least the requested size. The buffer content is unspecified.
+     *
+     * @param minimumSize the number of bytes the caller needs
+     * @return a buffer that must be closed once the caller no longer uses its array
+     */
+    public PooledBuffer acquire(int minimumSize) {
+        if (minimumSize < 0) {
+            throw new IllegalArgumentException("Buffer size must not be negative");
+        }
+        byte[] array = null;
+        if (minimumSize <= maxClassBytes) {
+            int index = classIndex(minimumSize);
+            array = classes[index].pollFirst();
+            if (array != null) {
+                retainedBytes.addAndGet(-array.length);
+                hits.increment();
+            } else {
+                array = new byte[MIN_CLASS_BYTES << index];
+                misses.increment();
+            }
+        } else {
+            array = new byte[minimumSize];
+            misses.increment();
+        }
+        outstandingBytes.addAndGet(array.length);
+
+        Lease lease = new Lease(this, array.length);
+        PooledBuffer buffer = new PooledBuffer(array, lease);
+        lease.cleanable = CLEANER.register(buffer, lease);
+        return buffer;
+    }
+
+    /**
+     * Returns the number of bytes currently borrowed and not yet returned.
+     *
+     * @return the outstanding bytes
+     */
+    public long outstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes held by idle buffers.
+     *
+     * @return the retained bytes
+     */
+    public long retainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public double leaks() {
+        return leaks.count();
+    }
+
+    void release(byte[] array) {
+        outstandingBytes.addAndGet(-array.length);
+        if (array.length > maxClassBytes || Integer.bitCount(array.length) != 1 || array.length < MIN_CLASS_BYTES) {
+            return;
+        }
+        if (retainedBytes.addAndGet(array.length) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-array.length);
+            return;
+        }
+        classes[classIndex(array.length)].offerFirst(array);
+    }
+
+    private void leaked(int size) {
+        outstandingBytes.addAndGet(-size);
+        leaks.increment();
+        logger.warn("A pooled buffer of {} bytes was garbage collected without being released", size);
+    }
+
+    private static int classIndex(int size) {
+        if (size <= MIN_CLASS_BYTES) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_CLASS_BYTES);
+    }
+
+    /**
+     * Cleaner state of a borrowed buffer. It must not reference the {@link PooledBuffer} itself,
+     * otherwise the buffer would never become unreachable.
+     */
+    static final class Lease implements Runnable {
+
+        private final BufferPool pool;
+        private final int size;
+        private Cleaner.Cleanable cleanable;
+        private boolean released;
+
+        private Lease(BufferPool pool, int size) {
+            this.pool = pool;
+            this.size = size;
+        }
+
+        /** Called when the buffer is closed: unregisters it so the cleaner never reports it. */
+        void release(byte[] array) {
+            released = true;
+            cleanable.clean();
+            pool.release(array);
+        }
+
+        @Override
+        public void run() {
+            if (!released) {
+                pool.leaked(size);
+            }
+        }
+    }
+}
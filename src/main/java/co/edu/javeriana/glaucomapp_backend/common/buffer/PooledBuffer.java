@@ -0,0 +1,38 @@
+package co.edu.javeriana.glaucomapp_backend.common.buffer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A buffer borrowed from a {@link BufferPool}.
+ * <p>
+ * The backing array is usually larger than requested, so callers track the number of valid bytes
+ * themselves. Closing the buffer returns the array to the pool; the array must not be used
+ * afterwards, since another request may already be writing to it.
+ * </p>
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    private final byte[] array;
+    private final BufferPool.Lease lease;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    PooledBuffer(byte[] array, BufferPool.Lease lease) {
+        this.array = array;
+        this.lease = lease;
+    }
+
+    public byte[] array() {
+        return array;
+    }
+
+    public int capacity() {
+        return array.length;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            lease.release(array);
+        }
+    }
+}
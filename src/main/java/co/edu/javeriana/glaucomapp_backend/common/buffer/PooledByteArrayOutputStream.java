@@ -0,0 +1,83 @@
+package co.edu.javeriana.glaucomapp_backend.common.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * A {@link java.io.ByteArrayOutputStream} replacement backed by {@link BufferPool} buffers.
+ * <p>
+ * When the stream outgrows its buffer it borrows the next size class and returns the previous one,
+ * so encoding a PNG never leaves a trail of discarded intermediate arrays. Closing the stream
+ * returns the buffer; anything obtained from {@link #toInputStream()} or {@link #toByteBuffer()} must
+ * be consumed before that.
+ * </p>
+ */
+public class PooledByteArrayOutputStream extends OutputStream {
+
+    private final BufferPool pool;
+    private PooledBuffer buffer;
+    private int size;
+
+    public PooledByteArrayOutputStream(BufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buffer = pool.acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        buffer.array()[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureCapacity(size + len);
+        System.arraycopy(b, off, buffer.array(), size, len);
+        size += len;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a stream over the bytes written so far, without copying them.
+     *
+     * @return an input stream reading from the pooled buffer
+     */
+    public InputStream toInputStream() {
+        return new ByteArrayInputStream(buffer.array(), 0, size);
+    }
+
+    /**
+     * Returns a view of the bytes written so far, without copying them. It must not be written to.
+     *
+     * @return a buffer over the pooled array, positioned at the first byte
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer.array(), 0, size);
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+    }
+
+    private void ensureCapacity(int required) {
+        if (required < 0) {
+            throw new OutOfMemoryError("Stream exceeds the maximum array size");
+        }
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        int grown = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) buffer.capacity() * 2, required));
+        PooledBuffer larger = pool.acquire(grown);
+        System.arraycopy(buffer.array(), 0, larger.array(), 0, size);
+        buffer.close();
+        buffer = larger;
+    }
+}
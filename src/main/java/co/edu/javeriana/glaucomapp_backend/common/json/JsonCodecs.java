@@ -0,0 +1,69 @@
+package co.edu.javeriana.glaucomapp_backend.common.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Shared JSON readers and writers for code that serializes outside of Spring MVC.
+ * <p>
+ * An {@link ObjectMapper} builds and caches a serializer or deserializer for each type on first use,
+ * so creating one per request repeats that work every time and allocates it again.
+ * {@link ObjectReader} and {@link ObjectWriter} are immutable and thread-safe: callers build the ones
+ * they need once, typically as {@code static final} fields, from {@link #readerFor(Class)} and
+ * {@link #writerFor(Class)}, and reuse them for every request. Mappers are configured with
+ * the Java time types and the {@link BlackbirdModule}, which replaces reflective property access on
+ * DTOs with generated lambdas.
+ * </p>
+ */
+public final class JsonCodecs {
+
+    private static final ObjectMapper MAPPER = createMapper(StreamReadConstraints.defaults());
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * @param type the type to read
+     * @return a reader for {@code type} with the default read constraints
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return MAPPER.readerFor(type);
+    }
+
+    /**
+     * @return a reader for {@link com.fasterxml.jackson.databind.JsonNode} trees with the default read constraints
+     */
+    public static ObjectReader treeReader() {
+        return MAPPER.reader();
+    }
+
+    /**
+     * @param type the declared type of the values to write
+     * @return a writer for {@code type}
+     */
+    public static ObjectWriter writerFor(Class<?> type) {
+        return MAPPER.writerFor(type);
+    }
+
+    /**
+     * Creates a mapper with the shared configuration and specific read constraints, for input that
+     * legitimately exceeds the defaults. Build it once and keep the readers derived from it.
+     *
+     * @param constraints limits applied while parsing
+     * @return a new mapper
+     */
+    public static ObjectMapper createMapper(StreamReadConstraints constraints) {
+        JsonFactory factory = JsonFactory.builder()
+                .streamReadConstraints(constraints)
+                .build();
+        return JsonMapper.builder(factory)
+                .findAndAddModules()
+                .addModule(new BlackbirdModule())
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package co.edu.javeriana.glaucomapp_backend.common.json;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Registers the {@link BlackbirdModule} with the {@code ObjectMapper} Spring Boot uses for request
+ * and response bodies, so that controllers get the same generated accessors as {@link JsonCodecs}.
+ */
+@Configuration
+public class JsonConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,25 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
+
+/**
+ * The overlay bitmap returned by the analyzer, decoded into a pooled buffer.
+ * <p>
+ * Pooled arrays are larger than requested and are not cleared between requests, so only the first
+ * {@code length} bytes belong to this bitmap; anything past them is left over from earlier use.
+ * </p>
+ *
+ * @param buffer pooled buffer holding the decoded BGR pixels
+ * @param length number of bytes decoded into {@code buffer}
+ */
+public record AnalyzerBitmap(PooledBuffer buffer, int length) implements AutoCloseable {
+
+    public byte[] array() {
+        return buffer.array();
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+    }
+}
@@ -0,0 +1,42 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Configuration of the HTTP client used to call the image analyzer.
+ * <p>
+ * Screenings and the startup warm-up share one client, so they share its pool of keep-alive
+ * connections: the connection the warm-up opens is the one the first screening reuses, and no
+ * screening builds a client of its own.
+ * </p>
+ */
+@Configuration
+public class AnalyzerClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public HttpClient analyzerHttpClient(
+            @Value("${SCREENING_ANALYZER_CONNECT_TIMEOUT_MS:5000}") long connectTimeoutMillis) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+    }
+
+    /**
+     * @param readTimeoutMillis how long the analyzer may take to answer a screening
+     */
+    @Bean
+    public RestTemplate analyzerRestTemplate(HttpClient analyzerHttpClient,
+            @Value("${SCREENING_ANALYZER_READ_TIMEOUT_MS:60000}") long readTimeoutMillis) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(analyzerHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+        return new RestTemplate(requestFactory);
+    }
+}
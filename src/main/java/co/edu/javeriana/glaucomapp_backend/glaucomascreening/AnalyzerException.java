@@ -0,0 +1,25 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Thrown when the image analyzer answers with an error status. A client error means the analyzer
+ * rejected the image itself, so retrying the same upload fails the same way.
+ */
+public class AnalyzerException extends RuntimeException {
+
+    private final HttpStatusCode status;
+
+    public AnalyzerException(HttpStatusCode status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public HttpStatusCode getStatus() {
+        return status;
+    }
+
+    public boolean isClientError() {
+        return status.is4xxClientError();
+    }
+}
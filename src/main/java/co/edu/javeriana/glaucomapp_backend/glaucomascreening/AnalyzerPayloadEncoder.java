@@ -0,0 +1,325 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Converts decoded images into the binary layout expected by the image analyzer.
+ * <p>
+ * The payload is a 25 byte little-endian header (pixel type, height, width, spacing and origin)
+ * followed by 8-bit interleaved BGR pixels. Fundus cameras produce very different rasters
+ * (3-byte BGR JPEGs, packed {@code int} RGB, 16-bit PNGs, grayscale JPEGs and palette PNGs), so each
+ * common raster layout has a dedicated path that reads the backing array directly and writes the
+ * BGR bytes straight into the payload in a single pass. Layouts without a dedicated path fall back
+ * to {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)} one row at a time.
+ * </p>
+ */
+@UtilityClass
+public class AnalyzerPayloadEncoder {
+
+    /** Size of the analyzer header: type byte, height, width, two spacings and two origins. */
+    public static final int HEADER_SIZE = 25;
+
+    private static final int CHANNELS = 3;
+
+    /**
+     * Encodes the image as an analyzer payload.
+     *
+     * @param image the decoded image, in any raster layout
+     * @return the header followed by {@code width * height * 3} BGR bytes
+     */
+    public static byte[] encode(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] payload = new byte[payloadSize(width, height)];
+        writeHeader(payload, width, height);
+        writePixels(image, payload, HEADER_SIZE);
+        return payload;
+    }
+
+    /**
+     * Encodes the image as an analyzer payload into a buffer borrowed from the pool.
+     *
+     * @param image the decoded image, in any raster layout
+     * @param pool  the pool the payload buffer is borrowed from
+     * @return a buffer whose first {@link #payloadSize(int, int)} bytes hold the payload
+     */
+    public static PooledBuffer encode(BufferedImage image, BufferPool pool) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        PooledBuffer payload = pool.acquire(payloadSize(width, height));
+        writeHeader(payload.array(), width, height);
+        writePixels(image, payload.array(), HEADER_SIZE);
+        return payload;
+    }
+
+    /**
+     * Returns the payload size for an image of the given dimensions.
+     *
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @return the number of bytes {@link #encode(BufferedImage)} produces
+     */
+    public static int payloadSize(int width, int height) {
+        long size = HEADER_SIZE + (long) width * height * CHANNELS;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image is too large to be analyzed: " + width + "x" + height);
+        }
+        return (int) size;
+    }
+
+    /**
+     * Writes the analyzer header for an 8-bit, three channel image.
+     *
+     * @param target the array to write into, starting at index 0
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     */
+    public static void writeHeader(byte[] target, int width, int height) {
+        // 16 = one byte per sample, 4 = image data present, 2 = three channels.
+        byte type = (byte) (16 | 4 | 2);
+        ByteBuffer.wrap(target, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .put(type)
+                .putInt(height)
+                .putInt(width)
+                .putFloat(1.0f)
+                .putFloat(1.0f)
+                .putFloat(0.0f)
+                .putFloat(0.0f);
+    }
+
+    /**
+     * Writes the pixels of the image as interleaved 8-bit BGR.
+     *
+     * @param image  the decoded image
+     * @param target the array receiving {@code width * height * 3} bytes
+     * @param offset the index of the first pixel byte in {@code target}
+     */
+    public static void writePixels(BufferedImage image, byte[] target, int offset) {
+        Raster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+
+        if (dataBuffer.getNumBanks() == 1) {
+            if (dataBuffer instanceof DataBufferByte bytes && sampleModel instanceof ComponentSampleModel components) {
+                if (image.getColorModel() instanceof IndexColorModel palette) {
+                    if (components.getNumBands() == 1 && components.getPixelStride() == 1) {
+                        fromIndexedBytes(image, bytes.getData(), components, palette, target, offset);
+                        return;
+                    }
+                } else if (fromComponentBytes(image, bytes.getData(), components, target, offset)) {
+                    return;
+                }
+            } else if (dataBuffer instanceof DataBufferInt ints
+                    && sampleModel instanceof SinglePixelPackedSampleModel packed
+                    && image.getColorModel() instanceof DirectColorModel) {
+                fromPackedInts(image, ints.getData(), packed, target, offset);
+                return;
+            } else if (dataBuffer instanceof DataBufferUShort shorts
+                    && sampleModel instanceof ComponentSampleModel components
+                    && !(image.getColorModel() instanceof IndexColorModel)
+                    && fromComponentShorts(image, shorts.getData(), components, target, offset)) {
+                return;
+            }
+        }
+        fromRgbRows(image, target, offset);
+    }
+
+    private static boolean fromComponentBytes(BufferedImage image, byte[] data, ComponentSampleModel sampleModel,
+            byte[] target, int offset) {
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        if (!hasSupportedBands(image, bandOffsets.length)) {
+            return false;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int pixelStride = sampleModel.getPixelStride();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int base = baseOffset(image.getRaster(), sampleModel);
+        int out = offset;
+
+        if (bandOffsets.length == 1) {
+            int gray = bandOffsets[0];
+            for (int y = 0; y < height; y++) {
+                int in = base + y * scanlineStride + gray;
+                for (int x = 0; x < width; x++, in += pixelStride) {
+                    byte value = data[in];
+                    target[out++] = value;
+                    target[out++] = value;
+                    target[out++] = value;
+                }
+            }
+            return true;
+        }
+
+        int red = bandOffsets[0];
+        int green = bandOffsets[1];
+        int blue = bandOffsets[2];
+        if (pixelStride == 3 && blue == 0 && green == 1 && red == 2 && scanlineStride == width * 3) {
+            // Already BGR and tightly packed: the layout the analyzer expects.
+            System.arraycopy(data, base, target, offset, width * height * 3);
+            return true;
+        }
+        for (int y = 0; y < height; y++) {
+            int in = base + y * scanlineStride;
+            for (int x = 0; x < width; x++, in += pixelStride) {
+                target[out++] = data[in + blue];
+                target[out++] = data[in + green];
+                target[out++] = data[in + red];
+            }
+        }
+        return true;
+    }
+
+    private static boolean fromComponentShorts(BufferedImage image, short[] data, ComponentSampleModel sampleModel,
+            byte[] target, int offset) {
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        if (!hasSupportedBands(image, bandOffsets.length)) {
+            return false;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int pixelStride = sampleModel.getPixelStride();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int base = baseOffset(image.getRaster(), sampleModel);
+        int out = offset;
+
+        if (bandOffsets.length == 1) {
+            int gray = bandOffsets[0];
+            for (int y = 0; y < height; y++) {
+                int in = base + y * scanlineStride + gray;
+                for (int x = 0; x < width; x++, in += pixelStride) {
+                    byte value = (byte) (data[in] >>> 8);
+                    target[out++] = value;
+                    target[out++] = value;
+                    target[out++] = value;
+                }
+            }
+            return true;
+        }
+
+        int red = bandOffsets[0];
+        int green = bandOffsets[1];
+        int blue = bandOffsets[2];
+        for (int y = 0; y < height; y++) {
+            int in = base + y * scanlineStride;
+            for (int x = 0; x < width; x++, in += pixelStride) {
+                // Keep the most significant byte of each 16-bit sample.
+                target[out++] = (byte) (data[in + blue] >>> 8);
+                target[out++] = (byte) (data[in + green] >>> 8);
+                target[out++] = (byte) (data[in + red] >>> 8);
+            }
+        }
+        return true;
+    }
+
+    private static void fromPackedInts(BufferedImage image, int[] data, SinglePixelPackedSampleModel sampleModel,
+            byte[] target, int offset) {
+        DirectColorModel colorModel = (DirectColorModel) image.getColorModel();
+        int redShift = Integer.numberOfTrailingZeros(colorModel.getRedMask());
+        int greenShift = Integer.numberOfTrailingZeros(colorModel.getGreenMask());
+        int blueShift = Integer.numberOfTrailingZeros(colorModel.getBlueMask());
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int base = baseOffset(image.getRaster(), sampleModel);
+        int out = offset;
+
+        for (int y = 0; y < height; y++) {
+            int in = base + y * scanlineStride;
+            for (int x = 0; x < width; x++) {
+                int pixel = data[in++];
+                target[out++] = (byte) (pixel >>> blueShift);
+                target[out++] = (byte) (pixel >>> greenShift);
+                target[out++] = (byte) (pixel >>> redShift);
+            }
+        }
+    }
+
+    private static void fromIndexedBytes(BufferedImage image, byte[] data, ComponentSampleModel sampleModel,
+            IndexColorModel palette, byte[] target, int offset) {
+        // Indices beyond the palette size map to black, which is what an all-zero entry gives.
+        byte[] reds = new byte[256];
+        byte[] greens = new byte[256];
+        byte[] blues = new byte[256];
+        palette.getReds(reds);
+        palette.getGreens(greens);
+        palette.getBlues(blues);
+        byte[] bgr = new byte[256 * 3];
+        for (int i = 0; i < 256; i++) {
+            bgr[i * 3] = blues[i];
+            bgr[i * 3 + 1] = greens[i];
+            bgr[i * 3 + 2] = reds[i];
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int scanlineStride = sampleModel.getScanlineStride();
+        int base = baseOffset(image.getRaster(), sampleModel) + sampleModel.getBandOffsets()[0];
+        int out = offset;
+
+        for (int y = 0; y < height; y++) {
+            int in = base + y * scanlineStride;
+            for (int x = 0; x < width; x++) {
+                int entry = (data[in++] & 0xFF) * 3;
+                target[out++] = bgr[entry];
+                target[out++] = bgr[entry + 1];
+                target[out++] = bgr[entry + 2];
+            }
+        }
+    }
+
+    private static void fromRgbRows(BufferedImage image, byte[] target, int offset) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        int out = offset;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                target[out++] = (byte) pixel;
+                target[out++] = (byte) (pixel >>> 8);
+                target[out++] = (byte) (pixel >>> 16);
+            }
+        }
+    }
+
+    /**
+     * Only gray (one band) and color (three or four bands, alpha last) layouts in the sRGB or
+     * linear gray color spaces are read directly; anything else goes through the color model.
+     */
+    private static boolean hasSupportedBands(BufferedImage image, int bands) {
+        int colorComponents = image.getColorModel().getNumColorComponents();
+        if (bands == 1) {
+            return colorComponents == 1;
+        }
+        return (bands == 3 || bands == 4) && colorComponents == 3
+                && image.getColorModel().getColorSpace().isCS_sRGB();
+    }
+
+    private static int baseOffset(Raster raster, SampleModel sampleModel) {
+        int x = raster.getMinX() - raster.getSampleModelTranslateX();
+        int y = raster.getMinY() - raster.getSampleModelTranslateY();
+        int offset = raster.getDataBuffer().getOffset();
+        if (sampleModel instanceof ComponentSampleModel components) {
+            // Band offsets are applied per pixel, so they must not be part of the base offset.
+            return offset + y * components.getScanlineStride() + x * components.getPixelStride();
+        }
+        return offset + ((SinglePixelPackedSampleModel) sampleModel).getOffset(x, y);
+    }
+}
@@ -0,0 +1,43 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.Rectangle;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
+
+/**
+ * A payload ready to be sent to the image analyzer.
+ * <p>
+ * The payload is borrowed from the buffer pool and can be returned on its own as soon as it has been
+ * sent. When only a region of the image is analyzed, the request also holds the decoded frame the
+ * analyzer bitmap is composited back into. Closing the request returns both. The dimensions remain
+ * valid after closing.
+ * </p>
+ *
+ * @param payload       pooled buffer holding the analyzer header followed by the BGR pixels
+ * @param payloadLength number of valid bytes in {@code payload}
+ * @param width         width of the image that was encoded
+ * @param height        height of the image that was encoded
+ * @param subsampling   subsampling step applied while decoding the upload; measurements returned by the
+ *                      analyzer are in units of the encoded image and must be scaled back by it
+ * @param region        the part of {@code frame} that was encoded, or {@code null} if the whole image was
+ * @param frame         the decoded image the region was cropped from, or {@code null} if the whole image was
+ */
+public record AnalyzerRequest(PooledBuffer payload, int payloadLength, int width, int height, int subsampling,
+        Rectangle region, DecodedImage frame) implements AutoCloseable {
+
+    public AnalyzerRequest(PooledBuffer payload, int payloadLength, int width, int height, int subsampling) {
+        this(payload, payloadLength, width, height, subsampling, null, null);
+    }
+
+    public boolean isCropped() {
+        return region != null;
+    }
+
+    @Override
+    public void close() {
+        payload.close();
+        if (frame != null) {
+            frame.close();
+        }
+    }
+}
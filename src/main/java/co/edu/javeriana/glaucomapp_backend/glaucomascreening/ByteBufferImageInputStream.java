@@ -0,0 +1,58 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} reading directly from a {@link ByteBuffer}.
+ * <p>
+ * {@code ImageIO.createImageInputStream(InputStream)} copies the whole stream into a cache file or
+ * a memory cache so that readers can seek. Uploads are already fully buffered, in a pooled array or
+ * a memory-mapped spill file, so this stream seeks within that buffer instead of caching it again.
+ * </p>
+ */
+class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer the bytes to read, from index {@code 0} to its limit; its position is ignored
+     */
+    ByteBufferImageInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= buffer.limit()) {
+            return -1;
+        }
+        return buffer.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = buffer.limit() - streamPos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int count = (int) Math.min(len, remaining);
+        buffer.get((int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return buffer.limit();
+    }
+}
@@ -0,0 +1,55 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An image decoded by {@link ScreeningImageDecoder}, together with the decoding memory it holds.
+ * <p>
+ * The raster counts against the global decoding budget until the image is closed, so callers
+ * should close it as soon as the pixels have been copied into the analyzer payload.
+ * </p>
+ */
+public final class DecodedImage implements AutoCloseable {
+
+    private final BufferedImage image;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final int subsampling;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    DecodedImage(BufferedImage image, int sourceWidth, int sourceHeight, int subsampling, Runnable release) {
+        this.image = image;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.subsampling = subsampling;
+        this.release = release;
+    }
+
+    public BufferedImage image() {
+        return image;
+    }
+
+    /** @return the width of the uploaded image, before subsampling */
+    public int sourceWidth() {
+        return sourceWidth;
+    }
+
+    /** @return the height of the uploaded image, before subsampling */
+    public int sourceHeight() {
+        return sourceHeight;
+    }
+
+    /** @return the subsampling step used in both directions; {@code 1} when decoded at full size */
+    public int subsampling() {
+        return subsampling;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Grants a bounded number of analyzer slots to competing principals using start-time
+ * fair queueing.
+ * <p>
+ * Every principal (an API key or an ophthalmologist) owns a FIFO queue of waiting requests.
+ * Each request is tagged with a virtual finish time of {@code max(virtualTime, lastFinish) + 1},
+ * and whenever a slot is released the waiting request with the smallest tag whose principal is
+ * below its own concurrency limit is admitted. A principal that bursts hundreds of requests
+ * therefore only advances its own virtual clock, while a principal with a single request is
+ * served almost immediately. Principals share a bulkhead only with principals of the same
+ * {@link ScreeningChannel}, so every request carries the same cost.
+ * </p>
+ */
+public class FairShareScheduler {
+
+    private final int capacity;
+    private final int maxConcurrentPerPrincipal;
+    private final int maxQueued;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Flow> flows = new HashMap<>();
+
+    private double virtualTime;
+    private int inFlight;
+    private int queued;
+
+    /**
+     * @param capacity                  total number of slots shared by all principals
+     * @param maxConcurrentPerPrincipal maximum number of slots a single principal may hold at once
+     * @param maxQueued                 maximum number of waiting requests across all principals
+     */
+    public FairShareScheduler(int capacity, int maxConcurrentPerPrincipal, int maxQueued) {
+        if (capacity < 1 || maxConcurrentPerPrincipal < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Scheduler sizes must be positive");
+        }
+        this.capacity = capacity;
+        this.maxConcurrentPerPrincipal = maxConcurrentPerPrincipal;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Requests a slot for the given principal.
+     * <p>
+     * The returned future completes with a {@link Ticket} once the slot is granted. Cancelling the
+     * future before it completes withdraws the request from the queue.
+     * </p>
+     *
+     * @param principal the identity the request is accounted to
+     * @return a future holding the granted ticket
+     * @throws ScreeningRejectedException if the queue is full
+     */
+    public CompletableFuture<Ticket> acquire(String principal) {
+        Waiter waiter;
+        List<Grant> grants;
+        lock.lock();
+        try {
+            Flow flow = flows.computeIfAbsent(principal, Flow::new);
+            double start = Math.max(virtualTime, flow.lastFinish);
+            waiter = new Waiter(flow, start, start + 1);
+            flow.lastFinish = waiter.finish;
+            flow.waiting.addLast(waiter);
+            queued++;
+            grants = dispatch();
+            if (flow.waiting.peekLast() == waiter && queued > maxQueued) {
+                flow.waiting.removeLast();
+                flow.lastFinish = waiter.start;
+                queued--;
+                removeIfIdle(flow);
+                throw new ScreeningRejectedException("Screening queue is full, please retry later");
+            }
+        } finally {
+            lock.unlock();
+        }
+        complete(grants);
+        waiter.future.whenComplete((ticket, error) -> {
+            if (waiter.future.isCancelled()) {
+                withdraw(waiter);
+            }
+        });
+        return waiter.future;
+    }
+
+    /**
+     * Returns the number of slots currently held.
+     *
+     * @return the number of granted, unreleased tickets
+     */
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for a slot.
+     *
+     * @return the queue depth across all principals
+     */
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private Ticket grant(Flow flow) {
+        inFlight++;
+        flow.inFlight++;
+        return new Ticket(flow);
+    }
+
+    private void release(Flow flow) {
+        List<Grant> grants;
+        lock.lock();
+        try {
+            inFlight--;
+            flow.inFlight--;
+            removeIfIdle(flow);
+            grants = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        complete(grants);
+    }
+
+    private void withdraw(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.flow.waiting.remove(waiter)) {
+                queued--;
+                removeIfIdle(waiter.flow);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Picks waiting requests in virtual finish order while slots are available. Must be called
+     * with the lock held; the returned grants are completed by the caller once the lock is released
+     * so that no caller code ever runs under the scheduler lock.
+     */
+    private List<Grant> dispatch() {
+        List<Grant> grants = new ArrayList<>();
+        while (inFlight < capacity) {
+            Waiter next = null;
+            for (Flow flow : flows.values()) {
+                Waiter head = flow.waiting.peekFirst();
+                if (head != null && flow.inFlight < maxConcurrentPerPrincipal
+                        && (next == null || head.finish < next.finish)) {
+                    next = head;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            next.flow.waiting.pollFirst();
+            queued--;
+            virtualTime = Math.max(virtualTime, next.start);
+            grants.add(new Grant(next, grant(next.flow)));
+        }
+        return grants;
+    }
+
+    private void complete(List<Grant> grants) {
+        for (Grant grant : grants) {
+            if (!grant.waiter.future.complete(grant.ticket)) {
+                // The caller gave up while it was being admitted; hand the slot to the next one.
+                grant.ticket.close();
+            }
+        }
+    }
+
+    private void removeIfIdle(Flow flow) {
+        if (flow.inFlight == 0 && flow.waiting.isEmpty()) {
+            flows.remove(flow.principal);
+        }
+    }
+
+    /**
+     * A granted slot. Closing the ticket releases the slot exactly once and admits the next
+     * waiting request.
+     */
+    public final class Ticket implements AutoCloseable {
+
+        private final Flow flow;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Ticket(Flow flow) {
+            this.flow = flow;
+        }
+
+        public String principal() {
+            return flow.principal;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(flow);
+            }
+        }
+    }
+
+    private static final class Flow {
+        private final String principal;
+        private final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+        private double lastFinish;
+        private int inFlight;
+
+        private Flow(String principal) {
+            this.principal = principal;
+        }
+    }
+
+    private record Grant(Waiter waiter, Ticket ticket) {
+    }
+
+    private static final class Waiter {
+        private final Flow flow;
+        private final double start;
+        private final double finish;
+        private final CompletableFuture<Ticket> future = new CompletableFuture<>();
+
+        private Waiter(Flow flow, double start, double finish) {
+            this.flow = flow;
+            this.start = start;
+            this.finish = finish;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.image.BufferedImage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rejects fundus photos that are not worth an analyzer call.
+ * <p>
+ * The checks run on a luma copy downscaled to at most {@code SCREENING_QUALITY_ANALYSIS_SIZE} pixels
+ * per side, so an image is inspected in a few milliseconds whatever its resolution. In order:
+ * </p>
+ * <ul>
+ * <li>the frame must not be uniformly dark;</li>
+ * <li>a fundus camera or smartphone adapter produces an illuminated circular field on a black
+ * background, so the field must cover enough of the frame while the corners stay dark;</li>
+ * <li>the field histogram must be neither mostly saturated nor too dark;</li>
+ * <li>the variance of the Laplacian inside the field, away from its rim, must show enough
+ * vessel detail to not be out of focus.</li>
+ * </ul>
+ * <p>
+ * The thresholds have not been calibrated on captures from the app yet, and disc-centered or cropped
+ * photos can fail the field check, so by default failed checks are only logged and counted in
+ * {@code screening.quality.flagged}. Setting {@code SCREENING_QUALITY_ENFORCE} rejects them instead.
+ * </p>
+ */
+@Component
+public class FundusQualityInspector {
+
+    private static final Logger logger = LoggerFactory.getLogger(FundusQualityInspector.class);
+
+    /** Luma at which a pixel is considered saturated. */
+    static final int HIGHLIGHT_LEVEL = 250;
+
+    /** Distance from the field rim within which the Laplacian is ignored, in analysis pixels. */
+    private static final int RIM_MARGIN = 2;
+
+    private final boolean enabled;
+    private final boolean enforced;
+    private final int analysisSize;
+    private final double minFieldCoverage;
+    private final double minCornerDarkness;
+    private final int minBrightness;
+    private final double maxHighlightClipping;
+    private final double minSharpness;
+    private final MeterRegistry meterRegistry;
+
+    public FundusQualityInspector(MeterRegistry meterRegistry,
+            @Value("${SCREENING_QUALITY_ENABLED:true}") boolean enabled,
+            @Value("${SCREENING_QUALITY_ENFORCE:false}") boolean enforced,
+            @Value("${SCREENING_QUALITY_ANALYSIS_SIZE:512}") int analysisSize,
+            @Value("${SCREENING_QUALITY_MIN_FIELD_COVERAGE:0.2}") double minFieldCoverage,
+            @Value("${SCREENING_QUALITY_MIN_CORNER_DARKNESS:0.6}") double minCornerDarkness,
+            @Value("${SCREENING_QUALITY_MIN_BRIGHTNESS:40}") int minBrightness,
+            @Value("${SCREENING_QUALITY_MAX_HIGHLIGHT_CLIPPING:0.1}") double maxHighlightClipping,
+            @Value("${SCREENING_QUALITY_MIN_SHARPNESS:5}") double minSharpness) {
+        if (analysisSize < 2 * RIM_MARGIN + 1) {
+            throw new IllegalArgumentException("Quality analysis size is too small");
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.enforced = enforced;
+        this.analysisSize = analysisSize;
+        this.minFieldCoverage = minFieldCoverage;
+        this.minCornerDarkness = minCornerDarkness;
+        this.minBrightness = minBrightness;
+        this.maxHighlightClipping = maxHighlightClipping;
+        this.minSharpness = minSharpness;
+    }
+
+    /**
+     * Inspects the image and, when enforced, rejects it if any quality check fails.
+     *
+     * @param image the decoded fundus image
+     * @throws ImageQualityException if the image is not usable and the checks are enforced
+     */
+    public void check(BufferedImage image) {
+        if (!enabled) {
+            return;
+        }
+        ImageQualityReport report = inspect(image);
+        if (report.acceptable()) {
+            return;
+        }
+        if (!enforced) {
+            counter("screening.quality.flagged", "Uploaded images that failed a quality check", report.issue())
+                    .increment();
+            logger.info("Image failed the {} quality check and was analyzed anyway: {}", report.issue(), report);
+            return;
+        }
+        counter("screening.quality.rejections", "Uploaded images rejected before the analyzer", report.issue())
+                .increment();
+        throw new ImageQualityException(report);
+    }
+
+    /**
+     * Measures the image without rejecting it.
+     *
+     * @param image the decoded fundus image
+     * @return the measurements and the first failed check, if any
+     */
+    public ImageQualityReport inspect(BufferedImage image) {
+        LumaImage luma = LumaImage.downscale(image, analysisSize);
+        int pixels = luma.luma.length;
+
+        int[] fieldHistogram = luma.fieldHistogram();
+        int field = countFrom(fieldHistogram, 0);
+
+        double fieldCoverage = (double) field / pixels;
+        double cornerDarkness = cornerDarkness(luma);
+        int medianBrightness = field == 0 ? 0 : LumaImage.percentile(fieldHistogram, field, 0.5);
+        double highlightClipping = field == 0 ? 0 : (double) countFrom(fieldHistogram, HIGHLIGHT_LEVEL) / field;
+
+        // A uniformly dark frame: less than 1% of it reaches the minimum brightness.
+        if (countFrom(fieldHistogram, minBrightness) * 100L < pixels) {
+            return new ImageQualityReport(ImageQualityIssue.UNDEREXPOSED, fieldCoverage, cornerDarkness,
+                    medianBrightness, highlightClipping, 0);
+        }
+        if (fieldCoverage < minFieldCoverage || cornerDarkness < minCornerDarkness) {
+            return new ImageQualityReport(ImageQualityIssue.NO_FUNDUS_FIELD, fieldCoverage, cornerDarkness,
+                    medianBrightness, highlightClipping, 0);
+        }
+        if (highlightClipping > maxHighlightClipping) {
+            return new ImageQualityReport(ImageQualityIssue.OVEREXPOSED, fieldCoverage, cornerDarkness,
+                    medianBrightness, highlightClipping, 0);
+        }
+        if (medianBrightness < minBrightness) {
+            return new ImageQualityReport(ImageQualityIssue.UNDEREXPOSED, fieldCoverage, cornerDarkness,
+                    medianBrightness, highlightClipping, 0);
+        }
+        double sharpness = laplacianVariance(luma);
+        ImageQualityIssue issue = sharpness < minSharpness ? ImageQualityIssue.BLURRY : null;
+        return new ImageQualityReport(issue, fieldCoverage, cornerDarkness, medianBrightness, highlightClipping,
+                sharpness);
+    }
+
+    private static double cornerDarkness(LumaImage luma) {
+        int right = luma.width - 1;
+        int bottom = luma.height - 1;
+        int cornerWidth = Math.max(1, luma.width / 10);
+        int cornerHeight = Math.max(1, luma.height / 10);
+        int dark = 0;
+        for (int y = 0; y < cornerHeight; y++) {
+            for (int x = 0; x < cornerWidth; x++) {
+                dark += isDark(luma, x, y) + isDark(luma, right - x, y)
+                        + isDark(luma, x, bottom - y) + isDark(luma, right - x, bottom - y);
+            }
+        }
+        return dark / (4.0 * cornerWidth * cornerHeight);
+    }
+
+    private static int isDark(LumaImage luma, int x, int y) {
+        return luma.get(x, y) <= LumaImage.FIELD_THRESHOLD ? 1 : 0;
+    }
+
+    /**
+     * Variance of the 4-neighbour Laplacian over field pixels at least {@link #RIM_MARGIN} pixels
+     * inside the rim, so the strong edge between the field and the black background does not mask blur.
+     */
+    private static double laplacianVariance(LumaImage image) {
+        int[] luma = image.luma;
+        int width = image.width;
+        int height = image.height;
+        int threshold = LumaImage.FIELD_THRESHOLD;
+        long count = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int y = RIM_MARGIN; y < height - RIM_MARGIN; y++) {
+            for (int x = RIM_MARGIN; x < width - RIM_MARGIN; x++) {
+                int i = y * width + x;
+                if (luma[i - RIM_MARGIN] <= threshold || luma[i + RIM_MARGIN] <= threshold
+                        || luma[i - RIM_MARGIN * width] <= threshold
+                        || luma[i + RIM_MARGIN * width] <= threshold) {
+                    continue;
+                }
+                int laplacian = luma[i - 1] + luma[i + 1] + luma[i - width] + luma[i + width] - 4 * luma[i];
+                sum += laplacian;
+                sumOfSquares += (double) laplacian * laplacian;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        double mean = sum / count;
+        return sumOfSquares / count - mean * mean;
+    }
+
+    private static int countFrom(int[] histogram, int level) {
+        int count = 0;
+        for (int value = level; value < histogram.length; value++) {
+            count += histogram[value];
+        }
+        return count;
+    }
+
+    private Counter counter(String name, String description, ImageQualityIssue issue) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("reason", issue.name())
+                .register(meterRegistry);
+    }
+
+}
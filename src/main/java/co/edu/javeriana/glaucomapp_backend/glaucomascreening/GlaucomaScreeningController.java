@@ -23,6 +23,8 @@ public class GlaucomaScreeningController {
         
         private final GlaucomaScreeningService glaucomaScreeningService;
 
+        private final ScreeningAdmissionService screeningAdmissionService;
+
         private static final Logger logger = LoggerFactory.getLogger(GlaucomaScreeningService.class);
        
         @PostMapping("/upload-image")
@@ -31,11 +33,22 @@ public class GlaucomaScreeningController {
                 if (file == null || file.isEmpty()) {
                         return ResponseEntity.badRequest().body("No file provided or file is empty."); // Error code 400
                 }
+                String principal = screeningAdmissionService.currentPrincipal();
                 try {
-                        ImageProcessingResultDTO processedResult = glaucomaScreeningService.sendImageToApi(file);
+                        ImageProcessingResultDTO processedResult = screeningAdmissionService.execute(principal, ScreeningChannel.API,
+                                        () -> glaucomaScreeningService.sendImageToApi(file));
 
                         return new ResponseEntity<>(processedResult, HttpStatus.OK);
 
+                } catch (ScreeningRejectedException e) {
+                        logger.warn("Screening rejected for API client: " + e.getMessage());
+                        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+                } catch (ImageQualityException e) {
+                        logger.warn(e.getMessage());
+                        return ResponseEntity.unprocessableEntity().body(e.getReport());
+                } catch (ScreeningTimeoutException e) {
+                        logger.error("Screening timed out: " + e.getMessage());
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
                 } catch (RuntimeException e) {
                         if (e.getMessage().contains("Client error")) {
                                 logger.error("Client error: " + e.getMessage());
@@ -1,14 +1,22 @@
 package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,6 +31,14 @@ public class GlaucomaScreeningMobileController {
 
         private final GlaucomaScreeningService glaucomaScreeningService;
 
+        private final ScreeningAdmissionService screeningAdmissionService;
+
+        private final PairedScreeningService pairedScreeningService;
+
+        private final ScreeningJobService screeningJobService;
+
+        private final ScreeningProgressService screeningProgressService;
+
                 private static final Logger logger = LoggerFactory.getLogger(GlaucomaScreeningService.class);
 
     @PostMapping("/process")
@@ -30,27 +46,97 @@ public class GlaucomaScreeningMobileController {
                 if (file == null || file.isEmpty()) {
                         return ResponseEntity.badRequest().body("No file provided or file is empty."); // Error code 400
                 }
+                String principal = screeningAdmissionService.currentPrincipal();
                 try {
-                    ImageProcessingResultDTO processedResult = glaucomaScreeningService.sendImageToApi(file);
+                    ImageProcessingResultDTO processedResult = screeningAdmissionService.execute(principal, ScreeningChannel.MOBILE,
+                                    () -> glaucomaScreeningService.sendImageToApi(file));
 
                         //ImageProcessingResultDTO result = glaucomaScreeningService.generateResult();
 
                         return new ResponseEntity<>(processedResult, HttpStatus.OK);
 
                 } catch (RuntimeException e) {
-                        if (e.getMessage().contains("Client error")) {
+                        return handleScreeningError(e);
+                }
+        }
+
+    @PostMapping("/process-pair")
+        public ResponseEntity<?> uploadImagePair(@RequestParam("rightEye") MultipartFile rightEye,
+                        @RequestParam("leftEye") MultipartFile leftEye) {
+                if (rightEye == null || rightEye.isEmpty() || leftEye == null || leftEye.isEmpty()) {
+                        return ResponseEntity.badRequest().body("Both eye images must be provided and non-empty."); // Error code 400
+                }
+                String principal = screeningAdmissionService.currentPrincipal();
+                try {
+                        PairedScreeningResultDTO pairedResult = pairedScreeningService.screenPair(principal, rightEye, leftEye);
+
+                        return new ResponseEntity<>(pairedResult, HttpStatus.OK);
+
+                } catch (RuntimeException e) {
+                        return handleScreeningError(e);
+                }
+        }
+
+    @PostMapping("/jobs")
+        public ResponseEntity<?> enqueueImage(@RequestParam("file") MultipartFile file) {
+                if (file == null || file.isEmpty()) {
+                        return ResponseEntity.badRequest().body("No file provided or file is empty."); // Error code 400
+                }
+                String principal = screeningAdmissionService.currentPrincipal();
+                try {
+                        ScreeningJob job = screeningJobService.enqueue(principal, ScreeningChannel.MOBILE, file);
+
+                        return ResponseEntity.accepted()
+                                        .location(URI.create("/mobile/glaucoma-screening/jobs/" + job.getId()))
+                                        .body(screeningJobService.toDto(job)); // Code 202
+
+                } catch (IOException e) {
+                        logger.error("Could not read the uploaded file: " + e.getMessage());
+                        return ResponseEntity.badRequest().body("The uploaded file could not be read.");
+                }
+        }
+
+    @GetMapping("/jobs/{jobId}")
+        public ResponseEntity<?> getJob(@PathVariable UUID jobId) {
+                String principal = screeningAdmissionService.currentPrincipal();
+                return screeningJobService.findJob(jobId, principal)
+                                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                                .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+
+    @GetMapping(path = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public ResponseEntity<SseEmitter> streamJobProgress(@PathVariable UUID jobId) {
+                String principal = screeningAdmissionService.currentPrincipal();
+                return screeningProgressService.subscribe(jobId, principal)
+                                .map(ResponseEntity::ok)
+                                .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+
+        private ResponseEntity<?> handleScreeningError(RuntimeException e) {
+                if (e instanceof ScreeningRejectedException) {
+                        logger.warn("Screening rejected for mobile user: " + e.getMessage());
+                        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+                }
+                if (e instanceof ImageQualityException unusable) {
+                        logger.warn(unusable.getMessage());
+                        return ResponseEntity.unprocessableEntity().body(unusable.getReport());
+                }
+                if (e instanceof ScreeningTimeoutException) {
+                        logger.error("Screening timed out: " + e.getMessage());
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+                }
+                if (e.getMessage() != null && e.getMessage().contains("Client error")) {
                                 logger.error("Client error: " + e.getMessage());
                                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                                                 .body("Request error: " + e.getMessage());
-                        } else if (e.getMessage().contains("Server error")) {
+                } else if (e.getMessage() != null && e.getMessage().contains("Server error")) {
                                 logger.error("Server error: " + e.getMessage());
                                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                                 .body("External service error: " + e.getMessage());
-                        } else {
+                } else {
                                 logger.error("Unexpected error: " + e.getMessage());
                                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                                 .body("An unexpected error occurred.");
-                        }
                 }
         }
 
@@ -1,71 +1,133 @@
 package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
 
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Future;
 
-import javax.imageio.ImageIO;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
+import co.edu.javeriana.glaucomapp_backend.common.json.JsonCodecs;
 import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
 
 @Service
 public class GlaucomaScreeningService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GlaucomaScreeningService.class);
+
+    private static final ObjectReader ANALYZER_RESPONSE_READER = JsonCodecs.createMapper(
+            StreamReadConstraints.builder().maxStringLength(100_000_000).build()).reader();
+
     @Value("${PYTHON_API_URL}")
     protected String pythonApiUrl;
 
+    /** Deadline shared by the stages that run after the analyzer has responded; 0 disables it. */
+    @Value("${SCREENING_POST_ANALYZER_TIMEOUT_MS:30000}")
+    protected long postAnalyzerTimeoutMillis;
+
+    /** Stores overlays under the hash of their content, so identical overlays are uploaded once. */
+    @Value("${STORAGE_CONTENT_ADDRESSED:false}")
+    protected boolean contentAddressedOverlays;
+
     protected final S3Service s3Service;
 
-    public GlaucomaScreeningService(S3Service s3Service) {
+    protected final RestTemplate analyzerRestTemplate;
+
+    protected final ScreeningImageDecoder imageDecoder;
+
+    protected final BufferPool bufferPool;
+
+    protected final FundusQualityInspector qualityInspector;
+
+    protected final OpticDiscLocator opticDiscLocator;
+
+    public GlaucomaScreeningService(S3Service s3Service, RestTemplate analyzerRestTemplate,
+            ScreeningImageDecoder imageDecoder, BufferPool bufferPool, FundusQualityInspector qualityInspector,
+            OpticDiscLocator opticDiscLocator) {
         this.s3Service = s3Service;
+        this.analyzerRestTemplate = analyzerRestTemplate;
+        this.imageDecoder = imageDecoder;
+        this.bufferPool = bufferPool;
+        this.qualityInspector = qualityInspector;
+        this.opticDiscLocator = opticDiscLocator;
     }
 
     public ImageProcessingResultDTO sendImageToApi(MultipartFile file) {
-        try {
-            byte[] buf = preprocessImage(file);
-            System.out.println("En el servicio");
-
-            ResponseEntity<String> response = sendImageToExternalApi(buf);
+        return sendImageToApi(file, ScreeningProgressListener.NONE);
+    }
 
-            return handleApiResponse(file, response);
+    /**
+     * Runs a screening, reporting each stage it reaches to {@code progress}.
+     */
+    public ImageProcessingResultDTO sendImageToApi(MultipartFile file, ScreeningProgressListener progress) {
+        try {
+            try (AnalyzerRequest request = preprocessImage(file)) {
+                logger.debug("Image decoded, sending it to the analyzer");
+                progress.onStage(ScreeningStage.DECODED);
+
+                // The payload goes back to the pool before the response is processed.
+                ResponseEntity<String> response;
+                try (PooledBuffer payload = request.payload()) {
+                    progress.onStage(ScreeningStage.ANALYZING);
+                    response = sendImageToExternalApi(request);
+                }
+
+                progress.onStage(ScreeningStage.UPLOADING);
+                return handleApiResponse(request, response);
+            }
         } catch (Exception e) {
             handleImageProcessingException(e);
         }
         return null; // Considerar lanzar una excepción o manejar un resultado nulo
     }
 
-    protected ResponseEntity<String> sendImageToExternalApi(byte[] buf) {
-        RestTemplate restTemplate = new RestTemplate();
+    protected ResponseEntity<String> sendImageToExternalApi(AnalyzerRequest request) {
         HttpHeaders headers = createHeaders();
+        headers.setContentLength(request.payloadLength());
 
-        HttpEntity<byte[]> requestEntity = new HttpEntity<>(buf, headers);
-        ResponseEntity<String> response = restTemplate.postForEntity(pythonApiUrl, requestEntity, String.class);
-        System.out.println("Response: " + response.getStatusCode());
+        // The pooled payload is larger than its content, so only the valid range is written.
+        ResponseEntity<String> response = analyzerRestTemplate.execute(pythonApiUrl, HttpMethod.POST, httpRequest -> {
+            httpRequest.getHeaders().putAll(headers);
+            httpRequest.getBody().write(request.payload().array(), 0, request.payloadLength());
+        }, analyzerRestTemplate.responseEntityExtractor(String.class));
+        logger.debug("Analyzer responded with {}", response.getStatusCode());
 
         return response;
     }
@@ -77,9 +139,21 @@ public class GlaucomaScreeningService {
     }
 
     protected void handleImageProcessingException(Exception e) {
-        if (e instanceof HttpServerErrorException) {
-            throw new RuntimeException(
-                    "Error from external service: " + ((HttpServerErrorException) e).getResponseBodyAsString(), e);
+        if (e instanceof ScreeningRejectedException rejected) {
+            throw rejected;
+        } else if (e instanceof ImageQualityException unusable) {
+            throw unusable;
+        } else if (e instanceof IllegalStateException failed) {
+            // A stage missed its deadline or failed after the analyzer call, e.g. the overlay upload.
+            throw failed;
+        } else if (e instanceof AnalyzerException analyzerError) {
+            throw analyzerError;
+        } else if (e instanceof HttpClientErrorException clientError) {
+            throw new AnalyzerException(clientError.getStatusCode(),
+                    "Client error from external API: " + clientError.getStatusCode(), e);
+        } else if (e instanceof HttpServerErrorException serverError) {
+            throw new AnalyzerException(serverError.getStatusCode(),
+                    "Error from external service: " + serverError.getResponseBodyAsString(), e);
         } else if (e instanceof IOException) {
             throw new RuntimeException("I/O error while processing the image", e);
         } else if (e instanceof RestClientException) {
@@ -87,12 +161,9 @@ public class GlaucomaScreeningService {
         }
     }
 
-    protected ImageProcessingResultDTO handleApiResponse(MultipartFile file, ResponseEntity<String> response)
-            throws IOException {
+    protected ImageProcessingResultDTO handleApiResponse(AnalyzerRequest request, ResponseEntity<String> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
-            int width = ImageIO.read(file.getInputStream()).getWidth();
-            int height = ImageIO.read(file.getInputStream()).getHeight();
-            return processApiResponseData(response, width, height);
+            return processApiResponseData(response, request);
         } else {
             handleApiError(response);
         }
@@ -101,29 +172,51 @@ public class GlaucomaScreeningService {
 
     protected void handleApiError(ResponseEntity<String> response) {
         if (response.getStatusCode().is4xxClientError()) {
-            throw new RuntimeException("Client error from external API: " + response.getStatusCode());
+            throw new AnalyzerException(response.getStatusCode(),
+                    "Client error from external API: " + response.getStatusCode(), null);
         } else if (response.getStatusCode().is5xxServerError()) {
-            throw new RuntimeException("Server error from external API: " + response.getStatusCode());
+            throw new AnalyzerException(response.getStatusCode(),
+                    "Server error from external API: " + response.getStatusCode(), null);
         }
     }
 
+    /**
+     * Overlays are staged until an exam is saved with them; unsaved screenings expire on their own.
+     */
     protected String generateUniqueImageId() {
         long timestamp = System.currentTimeMillis();
         String uuid = UUID.randomUUID().toString();
-        return "image_" + timestamp + "_" + uuid + ".png";
+        return S3Service.STAGING_PREFIX + "image_" + timestamp + "_" + uuid + ".png";
     }
 
-    protected ImageProcessingResultDTO processApiResponseData(ResponseEntity<String> response, int width, int height) {
+    protected ImageProcessingResultDTO processApiResponseData(ResponseEntity<String> response, AnalyzerRequest request) {
         ImageProcessingResultDTO processresult = new ImageProcessingResultDTO();
-        ObjectMapper objectMapper = configureObjectMapper();
-
         try {
-            ServerResultDTO result = parseResponse(response, objectMapper);
-            BufferedImage image = postprocessImageData(result, width, height);
-
-            uploadImageToS3(image, processresult, result);
-
-            calculateRatiosAndSetResult(processresult, result);
+            ServerResultDTO result = parseResponse(response, analyzerResponseReader());
+            rescaleMeasurements(result, request.subsampling());
+            // A content-addressed key is only known once the overlay is encoded, so it is signed after the upload.
+            String fileName = contentAddressedOverlays ? null : generateUniqueImageId();
+
+            // The overlay upload, its presigned URL and the ratios do not depend on each other, so they
+            // run concurrently under one deadline; the first failure cancels the other stages.
+            Duration timeout = postAnalyzerTimeoutMillis > 0 ? Duration.ofMillis(postAnalyzerTimeoutMillis) : null;
+            try (ScreeningTaskScope scope = new ScreeningTaskScope("screening-post-", timeout)) {
+                Future<String> key = scope.fork(() -> uploadOverlay(result.getBitmap(), request, fileName));
+                Future<String> url = fileName == null ? null : scope.fork(() -> s3Service.generatePresignedUrl(fileName));
+                scope.fork(() -> {
+                    calculateRatiosAndSetResult(processresult, result);
+                    return null;
+                });
+                scope.join();
+                String imageId = key.resultNow();
+                setImageResult(processresult, result, imageId,
+                        url == null ? s3Service.generatePresignedUrl(imageId) : url.resultNow());
+            } catch (IllegalStateException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // A result without its overlay or ratios must not be returned as a successful screening.
+                throw new IllegalStateException("Screening stage failed: " + e.getMessage(), e);
+            }
 
             return processresult;
         } catch (IOException e) {
@@ -132,6 +225,27 @@ public class GlaucomaScreeningService {
         return processresult;
     }
 
+    /**
+     * Rebuilds the overlay returned by the analyzer and uploads it under the given name, or under a
+     * staged key derived from its content if the name is null.
+     *
+     * @return the key the overlay is stored under
+     */
+    protected String uploadOverlay(String base64Bitmap, AnalyzerRequest request, String fileName) throws IOException {
+        // The overlay stays at the analyzed size and is backed by the pooled bitmap until uploaded.
+        try (AnalyzerBitmap bitmap = decodeBitmap(base64Bitmap)) {
+            BufferedImage image = postprocessImage(bitmap.array(), bitmap.length(), request.width(), request.height());
+            if (request.isCropped()) {
+                image = compositeIntoFrame(request.frame().image(), image, request.region());
+            }
+            if (fileName == null) {
+                return s3Service.uploadImageByContent(image, S3Service.STAGING_PREFIX);
+            }
+            s3Service.uploadImage(image, fileName);
+            return fileName;
+        }
+    }
+
     protected void calculateRatiosAndSetResult(ImageProcessingResultDTO processresult, ServerResultDTO result) {
         processresult.setDistanceRatio(calculateRatio(result.getDistances()) * 100);
         processresult.setPerimeterRatio(calculateRatio(result.getPerimeters())* 100);
@@ -140,6 +254,23 @@ public class GlaucomaScreeningService {
         processresult.setState(calculateState(processresult.getDdlStage()));
     }
 
+    /**
+     * Converts measurements taken on a subsampled image back to pixels of the uploaded image.
+     * Lengths scale with the subsampling step and areas with its square; ratios are unaffected.
+     */
+    protected void rescaleMeasurements(ServerResultDTO result, int subsampling) {
+        if (subsampling == 1) {
+            return;
+        }
+        result.setDistances(scale(result.getDistances(), subsampling));
+        result.setPerimeters(scale(result.getPerimeters(), subsampling));
+        result.setAreas(scale(result.getAreas(), (double) subsampling * subsampling));
+    }
+
+    private List<Double> scale(List<Double> values, double factor) {
+        return values.stream().map(value -> value * factor).toList();
+    }
+
     protected double calculateRatio(List<Double> values) {
         return new BigDecimal(values.get(1) / values.get(0)).setScale(3, RoundingMode.HALF_UP).doubleValue();
     }
@@ -147,7 +278,11 @@ public class GlaucomaScreeningService {
     protected void uploadImageToS3(BufferedImage image, ImageProcessingResultDTO processresult, ServerResultDTO result) {
         String fileName = generateUniqueImageId();
         s3Service.uploadImage(image, fileName);
-        String url = s3Service.generatePresignedUrl(fileName);
+        setImageResult(processresult, result, fileName, s3Service.generatePresignedUrl(fileName));
+    }
+
+    protected void setImageResult(ImageProcessingResultDTO processresult, ServerResultDTO result, String fileName,
+            String url) {
         processresult.setImageUrl(url);
         processresult.setImageId(fileName);
         processresult.setNeuroretinalRimPerimeter(result.getPerimeters().get(0));
@@ -156,27 +291,39 @@ public class GlaucomaScreeningService {
         processresult.setExcavationArea(result.getAreas().get(1));
     }
 
-    protected BufferedImage postprocessImageData(ServerResultDTO result, int width, int height) throws IOException {
-        String base64Image = result.getBitmap();
-        BufferedImage image = postprocessImage(Base64.getDecoder().decode(base64Image), width, height);
-        return image;
+    /**
+     * Decodes the base64 bitmap returned by the analyzer into a pooled buffer, without
+     * materializing the encoded or decoded bytes as new arrays.
+     */
+    protected AnalyzerBitmap decodeBitmap(String base64Image) throws IOException {
+        int encodedLength = base64Image.length();
+        try (PooledBuffer encoded = bufferPool.acquire(encodedLength)) {
+            byte[] ascii = encoded.array();
+            for (int i = 0; i < encodedLength; i++) {
+                ascii[i] = (byte) base64Image.charAt(i);
+            }
+            PooledBuffer decoded = bufferPool.acquire(encodedLength / 4 * 3 + 3);
+            try (InputStream bitmap = Base64.getDecoder().wrap(new ByteArrayInputStream(ascii, 0, encodedLength))) {
+                int length = bitmap.readNBytes(decoded.array(), 0, decoded.capacity());
+                return new AnalyzerBitmap(decoded, length);
+            } catch (IOException | RuntimeException e) {
+                decoded.close();
+                throw e;
+            }
+        }
     }
 
-    protected ObjectMapper configureObjectMapper() {
-        StreamReadConstraints constraints = StreamReadConstraints.builder()
-                .maxStringLength(100_000_000)
-                .build();
-
-        JsonFactory jsonFactory = JsonFactory.builder()
-                .streamReadConstraints(constraints)
-                .build();
-
-        return new ObjectMapper(jsonFactory);
+    /**
+     * The analyzer returns the bitmap as a single base64 string, far above Jackson's default
+     * maximum string length, so its responses are read with their own constraints.
+     */
+    protected ObjectReader analyzerResponseReader() {
+        return ANALYZER_RESPONSE_READER;
     }
 
-    protected ServerResultDTO parseResponse(ResponseEntity<String> response, ObjectMapper objectMapper)
+    protected ServerResultDTO parseResponse(ResponseEntity<String> response, ObjectReader reader)
             throws IOException {
-        JsonNode jsonNode = objectMapper.readTree(response.getBody());
+        JsonNode jsonNode = reader.readTree(response.getBody());
 
         ServerResultDTO result = new ServerResultDTO();
         JsonNode bitmap = jsonNode.path("image").path("bitmap");
@@ -190,9 +337,6 @@ public class GlaucomaScreeningService {
         System.out.println("Perimeters: " + perimeters);
         System.out.println("Areas: " + areas);
 
-        String base64Image = bitmap.asText();
-        Base64.getDecoder().decode(base64Image);
-
         result.setBitmap(bitmap.textValue());
         result.setCoordinates(parseCoordinates(coordinates));
         result.setDistances(parseListFromJsonNode(distances));
@@ -239,85 +383,82 @@ public class GlaucomaScreeningService {
         };
     }
 
-    protected byte[] preprocessImage(MultipartFile file) throws IOException {
-        BufferedImage image = ImageIO.read(file.getInputStream());
-        int height = image.getHeight();
-        int width = image.getWidth();
-        int channels = image.getColorModel().getNumComponents();
-        long size = height * width * channels;
-        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-        long pix_size = pixels.length / size;
-        System.out.println("Pix_Size:" + pix_size);
-        System.out.println("pixels.length:" + pixels.length);
-        System.out.println("size:" + size);
-        System.out.println("channels:" + channels);
-        System.out.println("height:" + height);
-        System.out.println("width:" + width);
-
-        byte[] hdr;
-        hdr = new byte[1];
-        hdr[0] = (byte) 0x00;
-
-        if (pix_size == 1) {
-            hdr[0] |= (byte) 16;
-        } else if (pix_size == 2) {
-            hdr[0] |= (byte) 48;
-        } else if (pix_size == 4) {
-            hdr[0] |= (byte) 80;
-        } //
-        hdr[0] |= (byte) 4;
-
-        if (channels == 3) {
-            hdr[0] |= (byte) 2;
-        } else if (channels == 4) {
-            hdr[0] |= (byte) 3;
-        }
-
-        System.out.println("hdr:" + hdr[0]);
-
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        buf.write(ByteBuffer.allocate(1).order(ByteOrder.LITTLE_ENDIAN).put(hdr[0]).array());
-        buf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(height).array());
-        buf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(width).array());
+    protected AnalyzerRequest preprocessImage(MultipartFile file) throws IOException {
+        DecodedImage decoded = decode(file);
+        boolean keepFrame = false;
+        try {
+            BufferedImage image = decoded.image();
+            // Unusable photos are rejected here, before they cost an analyzer call.
+            qualityInspector.check(image);
+
+            // Every raster layout is converted straight into the analyzer's 8-bit BGR payload.
+            Optional<Rectangle> region = opticDiscLocator.locate(image);
+            if (region.isEmpty()) {
+                return new AnalyzerRequest(AnalyzerPayloadEncoder.encode(image, bufferPool),
+                        AnalyzerPayloadEncoder.payloadSize(image.getWidth(), image.getHeight()),
+                        image.getWidth(), image.getHeight(), decoded.subsampling());
+            }
 
-        float[] spac = new float[2];
-        float[] orig = new float[2];
-        for (int i = 0; i < 2; i++) {
-            spac[i] = 1.0f;
-            orig[i] = 0.0f;
-        }
-        for (float s : spac) {
-            buf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(s).array());
-        }
-        for (float o : orig) {
-            buf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(o).array());
+            // Only the optic disc area is analyzed; the frame is kept to composite the result back into.
+            Rectangle roi = region.get();
+            BufferedImage crop = image.getSubimage(roi.x, roi.y, roi.width, roi.height);
+            AnalyzerRequest request = new AnalyzerRequest(AnalyzerPayloadEncoder.encode(crop, bufferPool),
+                    AnalyzerPayloadEncoder.payloadSize(roi.width, roi.height), roi.width, roi.height,
+                    decoded.subsampling(), roi, decoded);
+            keepFrame = true;
+            return request;
+        } finally {
+            // Otherwise the decoded raster is released back to the decoding budget as soon as it is encoded.
+            if (!keepFrame) {
+                decoded.close();
+            }
         }
-
-        buf.write(pixels);
-        System.out.println("buf:" + buf.size());
-
-        return buf.toByteArray();
-
     }
 
-    protected BufferedImage postprocessImage(byte[] data, int width, int height) throws IOException {
-
-        data = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).array();
-
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-        int index = 0;
+    protected DecodedImage decode(MultipartFile file) throws IOException {
+        // Streamed uploads are decoded in place from their pooled buffer or mapped spill file.
+        if (file instanceof IngestedMultipartFile ingested) {
+            return imageDecoder.decode(ingested.contents());
+        }
+        return imageDecoder.decode(file.getInputStream());
+    }
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int b = data[index++] & 0xFF;
-                int g = data[index++] & 0xFF;
-                int r = data[index++] & 0xFF;
-                int rgb = (r << 16) | (g << 8) | (b);
-                image.setRGB(x, y, rgb);
+    /**
+     * Pastes the analyzer bitmap of a cropped region back into the full decoded frame.
+     * The frame is drawn into directly when it already has the BGR layout of the bitmap.
+     */
+    protected BufferedImage compositeIntoFrame(BufferedImage frame, BufferedImage overlay, Rectangle region) {
+        BufferedImage target = frame;
+        if (frame.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            target = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D graphics = target.createGraphics();
+            try {
+                graphics.drawImage(frame, 0, 0, null);
+            } finally {
+                graphics.dispose();
             }
         }
+        target.getRaster().setRect(region.x, region.y, overlay.getRaster());
+        return target;
+    }
+
+    /**
+     * Wraps the analyzer bitmap in an image. Only the first {@code dataLength} bytes of {@code data} were
+     * decoded; a pooled array holds stale bytes past them, so a shorter bitmap is rejected.
+     */
+    protected BufferedImage postprocessImage(byte[] data, int dataLength, int width, int height) throws IOException {
+        int length = width * height * 3;
+        if (dataLength < length || data.length < dataLength) {
+            throw new IOException("Analyzer bitmap is smaller than the image");
+        }
 
-        return image;
+        // The analyzer returns BGR pixels, which is the TYPE_3BYTE_BGR layout, so the image
+        // is built around the array instead of copying it pixel by pixel.
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(data, length), width, height,
+                width * 3, 3, new int[] { 2, 1, 0 }, null);
+        ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, raster, false, null);
     }
 
 }
@@ -0,0 +1,19 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Thrown when an uploaded image fails the quality pre-filter and is not worth an analyzer call.
+ * Controllers translate it into HTTP 422 with the report as body.
+ */
+public class ImageQualityException extends RuntimeException {
+
+    private final transient ImageQualityReport report;
+
+    public ImageQualityException(ImageQualityReport report) {
+        super("Image quality check failed: " + report.issue().getDescription());
+        this.report = report;
+    }
+
+    public ImageQualityReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,21 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Reasons why {@link FundusQualityInspector} rejects an uploaded image before it reaches the analyzer.
+ */
+public enum ImageQualityIssue {
+    NO_FUNDUS_FIELD("No circular fundus field was found in the image"),
+    UNDEREXPOSED("The image is too dark"),
+    OVEREXPOSED("Too much of the fundus is saturated"),
+    BLURRY("The image is out of focus");
+
+    private final String description;
+
+    ImageQualityIssue(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
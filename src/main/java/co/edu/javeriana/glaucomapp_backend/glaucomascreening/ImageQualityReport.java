@@ -0,0 +1,19 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Quality measurements taken by {@link FundusQualityInspector} on the downscaled copy of an image.
+ *
+ * @param issue             the first check that failed, or {@code null} if the image is usable
+ * @param fieldCoverage     fraction of the frame covered by the illuminated fundus field
+ * @param cornerDarkness    fraction of the frame corners outside the field, which is high for a circular field
+ * @param medianBrightness  median luma of the field, from 0 to 255
+ * @param highlightClipping fraction of the field that is saturated
+ * @param sharpness         variance of the Laplacian inside the field; low values mean blur
+ */
+public record ImageQualityReport(ImageQualityIssue issue, double fieldCoverage, double cornerDarkness,
+        int medianBrightness, double highlightClipping, double sharpness) {
+
+    public boolean acceptable() {
+        return issue == null;
+    }
+}
@@ -0,0 +1,155 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
+
+/**
+ * An uploaded file read exactly once from the request by {@link StreamingMultipartResolver}.
+ * <p>
+ * Small uploads live in a pooled buffer; uploads above the spill threshold live in a temporary file
+ * mapped into memory. Either way {@link #contents()} exposes the bytes without copying them, and the
+ * SHA-256 of the content was computed while it was being received. The file is released by the
+ * resolver once the request completes.
+ * </p>
+ */
+public class IngestedMultipartFile implements MultipartFile, AutoCloseable {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final String contentHash;
+    private final ByteBuffer contents;
+    private final PooledBuffer buffer;
+    private final Path spillFile;
+
+    IngestedMultipartFile(String name, String originalFilename, String contentType, String contentHash,
+            ByteBuffer contents, PooledBuffer buffer, Path spillFile) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.contentHash = contentHash;
+        this.contents = contents.asReadOnlyBuffer();
+        this.buffer = buffer;
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * Returns the content of the file, positioned at zero. The buffer is only valid until the
+     * request completes.
+     *
+     * @return a read-only view of the content
+     */
+    public ByteBuffer contents() {
+        return contents.duplicate();
+    }
+
+    /**
+     * @return the lowercase hexadecimal SHA-256 of the content
+     */
+    public String contentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @return {@code true} if the content was above the spill threshold and is backed by a mapped file
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return contents.limit() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return contents.limit();
+    }
+
+    @Override
+    public byte[] getBytes() {
+        byte[] bytes = new byte[contents.limit()];
+        contents.get(0, bytes);
+        return bytes;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer view = contents();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, view.remaining());
+                view.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        try (FileChannel channel = FileChannel.open(dest.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer view = contents();
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        }
+    }
+
+    /**
+     * Returns the pooled buffer and deletes the spill file. The mapping itself is released by the
+     * garbage collector; on Linux the deleted file stays readable until then.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            buffer.close();
+        }
+        if (spillFile != null) {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+}
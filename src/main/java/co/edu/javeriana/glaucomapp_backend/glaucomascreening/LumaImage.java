@@ -0,0 +1,95 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A small luma copy of an image, used by the heuristics that run before the analyzer.
+ * <p>
+ * Each pixel box-averages a 2x2 grid of samples from a {@code step x step} block of the source,
+ * which is cheap enough for full-resolution uploads and keeps the copy free of most aliasing.
+ * </p>
+ */
+final class LumaImage {
+
+    /** Luma above which a pixel belongs to the illuminated fundus field. */
+    static final int FIELD_THRESHOLD = 20;
+
+    final int width;
+    final int height;
+    final int step;
+    final int[] luma;
+
+    private LumaImage(int width, int height, int step, int[] luma) {
+        this.width = width;
+        this.height = height;
+        this.step = step;
+        this.luma = luma;
+    }
+
+    /**
+     * Downscales the image so that its longest side is at most {@code maxSize} pixels.
+     */
+    static LumaImage downscale(BufferedImage image, int maxSize) {
+        int step = Math.max(1, ceilDiv(Math.max(image.getWidth(), image.getHeight()), maxSize));
+        int width = ceilDiv(image.getWidth(), step);
+        int height = ceilDiv(image.getHeight(), step);
+        int half = step / 2;
+        int maxX = image.getWidth() - 1;
+        int maxY = image.getHeight() - 1;
+        int[] luma = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int top = y * step;
+            int bottom = Math.min(top + half, maxY);
+            for (int x = 0; x < width; x++) {
+                int left = x * step;
+                int right = Math.min(left + half, maxX);
+                int sum = luma(image.getRGB(left, top)) + luma(image.getRGB(right, top))
+                        + luma(image.getRGB(left, bottom)) + luma(image.getRGB(right, bottom));
+                luma[y * width + x] = (sum + 2) >> 2;
+            }
+        }
+        return new LumaImage(width, height, step, luma);
+    }
+
+    int get(int x, int y) {
+        return luma[y * width + x];
+    }
+
+    boolean inField(int index) {
+        return luma[index] > FIELD_THRESHOLD;
+    }
+
+    /**
+     * Returns the histogram of the pixels inside the fundus field.
+     */
+    int[] fieldHistogram() {
+        int[] histogram = new int[256];
+        for (int value : luma) {
+            if (value > FIELD_THRESHOLD) {
+                histogram[value]++;
+            }
+        }
+        return histogram;
+    }
+
+    static int percentile(int[] histogram, int total, double fraction) {
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int value = 0; value < histogram.length; value++) {
+            seen += histogram[value];
+            if (seen >= target) {
+                return value;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    private static int luma(int rgb) {
+        // BT.601 weights in 8-bit fixed point.
+        return (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,152 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds the optic disc so that only a padded crop around it is sent to the analyzer.
+ * <p>
+ * The disc is the brightest compact region of the fundus. On a luma copy downscaled to
+ * {@code SCREENING_ROI_ANALYSIS_SIZE} pixels per side, its diameter is estimated from the size of the
+ * illuminated field, and a square window of that size is slid over the field with an integral image;
+ * the window with the highest mean is taken as the disc and centered on its brightest pixels. When
+ * that window is not clearly brighter than the rest of the field, or the padded crop would not be
+ * much smaller than the image, no region is returned and the whole image is analyzed.
+ * </p>
+ */
+@Component
+public class OpticDiscLocator {
+
+    /** Typical ratio between the diameter of the fundus field and that of the optic disc at 45 degrees. */
+    private static final double FIELD_TO_DISC_RATIO = 6.0;
+
+    /** Crops covering more than this fraction of the image are not worth it. */
+    private static final double MAX_REGION_FRACTION = 0.5;
+
+    private final boolean enabled;
+    private final int analysisSize;
+    private final double padding;
+    private final int minContrast;
+
+    /**
+     * @param enabled      whether the analyzer receives a crop instead of the whole image
+     * @param analysisSize longest side of the copy the disc is searched in
+     * @param padding      side of the crop, in disc diameters
+     * @param minContrast  luma by which the disc must exceed the median of the field
+     */
+    public OpticDiscLocator(
+            @Value("${SCREENING_ROI_ENABLED:false}") boolean enabled,
+            @Value("${SCREENING_ROI_ANALYSIS_SIZE:256}") int analysisSize,
+            @Value("${SCREENING_ROI_PADDING:3}") double padding,
+            @Value("${SCREENING_ROI_MIN_CONTRAST:15}") int minContrast) {
+        if (padding < 1) {
+            throw new IllegalArgumentException("The crop must be at least one disc diameter wide");
+        }
+        this.enabled = enabled;
+        this.analysisSize = analysisSize;
+        this.padding = padding;
+        this.minContrast = minContrast;
+    }
+
+    /**
+     * Returns the region of the image to send to the analyzer.
+     *
+     * @param image the decoded fundus image
+     * @return a padded square around the optic disc, clipped to the image, or empty to analyze the whole image
+     */
+    public Optional<Rectangle> locate(BufferedImage image) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        LumaImage luma = LumaImage.downscale(image, analysisSize);
+        int[] fieldHistogram = luma.fieldHistogram();
+        int field = 0;
+        for (int count : fieldHistogram) {
+            field += count;
+        }
+        if (field == 0) {
+            return Optional.empty();
+        }
+
+        int disc = (int) Math.max(3, Math.round(2 * Math.sqrt(field / Math.PI) / FIELD_TO_DISC_RATIO));
+        if (disc > Math.min(luma.width, luma.height)) {
+            return Optional.empty();
+        }
+        long[] brightness = new long[(luma.width + 1) * (luma.height + 1)];
+        int[] coverage = new int[brightness.length];
+        integrate(luma, brightness, coverage);
+
+        // Only windows entirely inside the field are candidates, so the rim never wins.
+        int stride = luma.width + 1;
+        int area = disc * disc;
+        long best = -1;
+        int bestX = 0;
+        int bestY = 0;
+        for (int y = 0; y + disc <= luma.height; y++) {
+            for (int x = 0; x + disc <= luma.width; x++) {
+                int topLeft = y * stride + x;
+                int bottomLeft = (y + disc) * stride + x;
+                int inField = coverage[bottomLeft + disc] - coverage[bottomLeft] - coverage[topLeft + disc]
+                        + coverage[topLeft];
+                if (inField < area) {
+                    continue;
+                }
+                long sum = brightness[bottomLeft + disc] - brightness[bottomLeft] - brightness[topLeft + disc]
+                        + brightness[topLeft];
+                if (sum > best) {
+                    best = sum;
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+        }
+        if (best < 0 || best / area - LumaImage.percentile(fieldHistogram, field, 0.5) < minContrast) {
+            return Optional.empty();
+        }
+
+        // The window can be larger than the disc itself, so it is centered on its brighter half.
+        long mean = best / area;
+        long weight = 0;
+        long sumX = 0;
+        long sumY = 0;
+        for (int y = bestY; y < bestY + disc; y++) {
+            for (int x = bestX; x < bestX + disc; x++) {
+                if (luma.get(x, y) >= mean) {
+                    weight++;
+                    sumX += x;
+                    sumY += y;
+                }
+            }
+        }
+        double centerX = ((double) sumX / weight + 0.5) * luma.step;
+        double centerY = ((double) sumY / weight + 0.5) * luma.step;
+        int side = (int) Math.ceil(disc * luma.step * padding);
+        Rectangle region = new Rectangle((int) Math.round(centerX - side / 2.0), (int) Math.round(centerY - side / 2.0),
+                side, side).intersection(new Rectangle(image.getWidth(), image.getHeight()));
+        if (region.isEmpty()
+                || (double) region.width * region.height > MAX_REGION_FRACTION * image.getWidth() * image.getHeight()) {
+            return Optional.empty();
+        }
+        return Optional.of(region);
+    }
+
+    private static void integrate(LumaImage luma, long[] brightness, int[] coverage) {
+        int stride = luma.width + 1;
+        for (int y = 0; y < luma.height; y++) {
+            long rowBrightness = 0;
+            int rowCoverage = 0;
+            for (int x = 0; x < luma.width; x++) {
+                int index = y * luma.width + x;
+                rowBrightness += luma.luma[index];
+                rowCoverage += luma.inField(index) ? 1 : 0;
+                int cell = (y + 1) * stride + x + 1;
+                brightness[cell] = brightness[cell - stride] + rowBrightness;
+                coverage[cell] = coverage[cell - stride] + rowCoverage;
+            }
+        }
+    }
+}
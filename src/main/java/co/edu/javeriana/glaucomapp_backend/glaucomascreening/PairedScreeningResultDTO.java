@@ -0,0 +1,26 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object representing the screening of both eyes of a patient in a single request.
+ *
+ * @param rightEye                The result for the right eye (OD).
+ * @param leftEye                 The result for the left eye (OS).
+ * @param cupDiscAsymmetry        The absolute difference between the cup-to-disc ratios of both eyes,
+ *                                in the same percentage scale as {@code perimeterRatio}.
+ * @param asymmetric              Whether the asymmetry reaches the configured suspicion threshold.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PairedScreeningResultDTO {
+
+        ImageProcessingResultDTO rightEye;
+        ImageProcessingResultDTO leftEye;
+        Double cupDiscAsymmetry;
+        boolean asymmetric;
+
+}
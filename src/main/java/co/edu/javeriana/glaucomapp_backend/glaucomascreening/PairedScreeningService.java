@@ -0,0 +1,79 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Screens both eyes of a patient concurrently.
+ * <p>
+ * Each eye runs as its own admission-controlled screening on the mobile bulkhead, forked on a virtual
+ * thread. The two forks share one scope: the request only returns once both have finished, and
+ * when one eye fails the other is cancelled instead of holding an analyzer permit for a result that
+ * will be discarded, see {@link ScreeningTaskScope}.
+ * </p>
+ * <p>
+ * The inter-eye asymmetry uses the perimeter ratio, which is the linear cup-to-disc ratio.
+ * An asymmetry of 0.2 or more between both eyes is a common glaucoma suspicion criterion, hence the
+ * default {@code SCREENING_CD_ASYMMETRY_THRESHOLD} of 20 on the percentage scale of the results.
+ * </p>
+ */
+@Service
+public class PairedScreeningService {
+
+    private final GlaucomaScreeningService glaucomaScreeningService;
+    private final ScreeningAdmissionService screeningAdmissionService;
+    private final double asymmetryThreshold;
+
+    public PairedScreeningService(GlaucomaScreeningService glaucomaScreeningService,
+            ScreeningAdmissionService screeningAdmissionService,
+            @Value("${SCREENING_CD_ASYMMETRY_THRESHOLD:20}") double asymmetryThreshold) {
+        this.glaucomaScreeningService = glaucomaScreeningService;
+        this.screeningAdmissionService = screeningAdmissionService;
+        this.asymmetryThreshold = asymmetryThreshold;
+    }
+
+    /**
+     * Screens both eyes concurrently on behalf of the principal.
+     *
+     * @param principal the ophthalmologist the screenings are accounted to
+     * @param rightEye  the right eye (OD) fundus image
+     * @param leftEye   the left eye (OS) fundus image
+     * @return both results and their cup-to-disc asymmetry
+     * @throws ScreeningRejectedException if either eye cannot be admitted
+     * @throws RuntimeException           the first failure of either screening
+     */
+    public PairedScreeningResultDTO screenPair(String principal, MultipartFile rightEye, MultipartFile leftEye) {
+        // Each eye is bounded by its own bulkhead wait and analyzer timeout, so the scope has no deadline.
+        try (ScreeningTaskScope scope = new ScreeningTaskScope("screening-pair-", null)) {
+            Future<ImageProcessingResultDTO> right = scope.fork(() -> screen(principal, rightEye));
+            Future<ImageProcessingResultDTO> left = scope.fork(() -> screen(principal, leftEye));
+            scope.join();
+            return buildResult(right.resultNow(), left.resultNow());
+        }
+    }
+
+    protected PairedScreeningResultDTO buildResult(ImageProcessingResultDTO rightEye, ImageProcessingResultDTO leftEye) {
+        Double asymmetry = calculateAsymmetry(rightEye, leftEye);
+        boolean asymmetric = asymmetry != null && asymmetry >= asymmetryThreshold;
+        return new PairedScreeningResultDTO(rightEye, leftEye, asymmetry, asymmetric);
+    }
+
+    protected Double calculateAsymmetry(ImageProcessingResultDTO rightEye, ImageProcessingResultDTO leftEye) {
+        if (rightEye == null || leftEye == null
+                || rightEye.getPerimeterRatio() == null || leftEye.getPerimeterRatio() == null) {
+            return null;
+        }
+        double difference = Math.abs(rightEye.getPerimeterRatio() - leftEye.getPerimeterRatio());
+        return BigDecimal.valueOf(difference).setScale(3, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private ImageProcessingResultDTO screen(String principal, MultipartFile file) {
+        return screeningAdmissionService.execute(principal, ScreeningChannel.MOBILE,
+                () -> glaucomaScreeningService.sendImageToApi(file));
+    }
+}
@@ -0,0 +1,70 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-principal admission control in front of the image analyzer.
+ * <p>
+ * Every screening request runs inside the {@link ScreeningBulkhead} of the channel it arrived
+ * through. Within a bulkhead, analyzer permits are handed out by a {@link FairShareScheduler}, so a
+ * partner system bursting uploads with its API key only queues behind itself, and mobile traffic
+ * never competes with partner traffic for threads or permits. Requests that cannot be admitted
+ * within the configured wait are rejected with {@link ScreeningRejectedException}.
+ * </p>
+ */
+@Service
+public class ScreeningAdmissionService {
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private final ScreeningBulkhead mobileBulkhead;
+    private final ScreeningBulkhead apiBulkhead;
+
+    public ScreeningAdmissionService(
+            @Qualifier("mobileScreeningBulkhead") ScreeningBulkhead mobileBulkhead,
+            @Qualifier("apiScreeningBulkhead") ScreeningBulkhead apiBulkhead) {
+        this.mobileBulkhead = mobileBulkhead;
+        this.apiBulkhead = apiBulkhead;
+    }
+
+    /**
+     * Runs a screening for the principal inside the bulkhead of its channel and waits for the result.
+     *
+     * @param principal the API key or ophthalmologist the request is accounted to
+     * @param channel   the channel the request arrived through
+     * @param screening the screening to run once an analyzer permit is granted
+     * @return the result of the screening
+     * @throws ScreeningRejectedException if the bulkhead has no capacity left for the request
+     */
+    public <T> T execute(String principal, ScreeningChannel channel, Supplier<T> screening) {
+        return bulkheadFor(channel).execute(principal, screening);
+    }
+
+    /**
+     * Resolves the identity a screening request is accounted to from the security context.
+     * <p>
+     * {@code ApiKeyFilter} authenticates partner requests with the API key as principal and
+     * {@code JwtAuthenticationFilter} authenticates mobile requests with the ophthalmologist
+     * identifier carried in the token subject, so the authentication name identifies the caller
+     * on both channels without parsing the token again.
+     * </p>
+     *
+     * @return the principal name, or {@code "anonymous"} when no authentication is present
+     */
+    public String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            return ANONYMOUS;
+        }
+        return authentication.getName();
+    }
+
+    private ScreeningBulkhead bulkheadFor(ScreeningChannel channel) {
+        return channel == ScreeningChannel.MOBILE ? mobileBulkhead : apiBulkhead;
+    }
+}
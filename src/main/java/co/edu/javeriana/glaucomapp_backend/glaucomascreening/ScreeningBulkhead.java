@@ -0,0 +1,191 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import co.edu.javeriana.glaucomapp_backend.glaucomascreening.FairShareScheduler.Ticket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * An isolated slice of screening capacity for one {@link ScreeningChannel}.
+ * <p>
+ * A bulkhead owns its own worker threads and its own pool of analyzer permits, so a saturated
+ * channel only queues behind itself. Inside the bulkhead, permits are shared between principals
+ * through a {@link FairShareScheduler}. Work is only handed to the executor once a permit is
+ * granted, which keeps the fair-queue order intact instead of degrading to the executor's FIFO queue.
+ * </p>
+ */
+public class ScreeningBulkhead implements AutoCloseable {
+
+    private static final int NEW = 0;
+    private static final int STARTED = 1;
+    private static final int ABANDONED = 2;
+
+    private final String name;
+    private final FairShareScheduler permits;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+
+    private final Counter rejected;
+    private final Timer admissionWait;
+    private final Timer execution;
+
+    /**
+     * @param name                    the bulkhead name, used for thread names and the {@code bulkhead} metric tag
+     * @param threads                 number of worker threads running screenings
+     * @param analyzerPermits         number of screenings allowed to call the analyzer at the same time
+     * @param maxConcurrentPerClient  maximum permits a single principal may hold
+     * @param maxQueued               maximum number of requests waiting for a permit
+     * @param maxWaitMillis           how long a request may wait for a permit before it is rejected
+     * @param meterRegistry           registry the bulkhead metrics are published to
+     */
+    public ScreeningBulkhead(String name, int threads, int analyzerPermits, int maxConcurrentPerClient,
+            int maxQueued, long maxWaitMillis, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = new FairShareScheduler(analyzerPermits, maxConcurrentPerClient, maxQueued);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, analyzerPermits)),
+                Thread.ofPlatform().name("screening-" + name + "-", 1).daemon(true).factory());
+        this.maxWaitMillis = maxWaitMillis;
+
+        Gauge.builder("screening.bulkhead.threads.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("screening.bulkhead.threads.max", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("screening.bulkhead.permits.in_use", permits, FairShareScheduler::inFlight)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("screening.bulkhead.permits.max", permits, FairShareScheduler::capacity)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("screening.bulkhead.queued", permits, FairShareScheduler::queued)
+                .tag("bulkhead", name).register(meterRegistry);
+        this.rejected = Counter.builder("screening.bulkhead.rejected")
+                .tag("bulkhead", name).register(meterRegistry);
+        this.admissionWait = Timer.builder("screening.bulkhead.admission.wait")
+                .tag("bulkhead", name).register(meterRegistry);
+        this.execution = Timer.builder("screening.bulkhead.execution")
+                .tag("bulkhead", name).register(meterRegistry);
+    }
+
+    /**
+     * Runs the work inside this bulkhead on behalf of the principal and waits for its result.
+     *
+     * @param principal the API key or ophthalmologist the request is accounted to
+     * @param work      the screening to run once a permit is granted
+     * @return the result of the work
+     * @throws ScreeningRejectedException if no permit is granted in time or the bulkhead is saturated
+     */
+    public <T> T execute(String principal, Supplier<T> work) {
+        Ticket ticket = admit(principal);
+        // Whoever moves the task out of NEW owns the ticket: the worker when it starts the work, or
+        // the caller when it gives up first and the work never runs.
+        AtomicInteger state = new AtomicInteger(NEW);
+        CountDownLatch finished = new CountDownLatch(1);
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                if (!state.compareAndSet(NEW, STARTED)) {
+                    return null;
+                }
+                try (ticket) {
+                    return execution.record(work);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ticket.close();
+            rejected.increment();
+            throw new ScreeningRejectedException("Screening capacity for " + name + " requests is exhausted, please retry later");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            if (state.compareAndSet(NEW, ABANDONED)) {
+                result.cancel(false);
+                ticket.close();
+            } else {
+                // The work may still be reading request resources, such as the pooled upload buffer,
+                // that are released once the caller returns, so it is stopped and waited for.
+                result.cancel(true);
+                awaitUninterruptibly(finished);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the screening result", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private Ticket admit(String principal) {
+        long start = System.nanoTime();
+        CompletableFuture<Ticket> pending;
+        try {
+            pending = permits.acquire(principal);
+        } catch (ScreeningRejectedException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return pending.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(pending);
+            rejected.increment();
+            throw new ScreeningRejectedException("Timed out waiting for screening capacity, please retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(pending);
+            throw new ScreeningRejectedException("Interrupted while waiting for screening capacity");
+        } catch (ExecutionException e) {
+            rejected.increment();
+            throw new ScreeningRejectedException("Could not admit screening request: " + e.getCause().getMessage());
+        } finally {
+            admissionWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void abandon(CompletableFuture<Ticket> pending) {
+        // The permit may have been granted between the timeout and the cancellation.
+        if (!pending.cancel(false) && !pending.isCompletedExceptionally()) {
+            pending.join().close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the screening bulkheads.
+ * <p>
+ * Mobile ophthalmologists and partner API clients get separate worker threads and separate
+ * analyzer permits, each sized independently, so saturation on one channel cannot add latency
+ * to the other.
+ * </p>
+ */
+@Configuration
+public class ScreeningBulkheadConfig {
+
+    @Value("${SCREENING_MAX_QUEUE_WAIT_MS:30000}")
+    private long maxWaitMillis;
+
+    @Bean(destroyMethod = "close")
+    public ScreeningBulkhead mobileScreeningBulkhead(
+            @Value("${SCREENING_MOBILE_THREADS:4}") int threads,
+            @Value("${SCREENING_MOBILE_ANALYZER_PERMITS:3}") int analyzerPermits,
+            @Value("${SCREENING_MOBILE_MAX_CONCURRENT_PER_CLIENT:2}") int maxConcurrentPerClient,
+            @Value("${SCREENING_MOBILE_MAX_QUEUED:32}") int maxQueued,
+            MeterRegistry meterRegistry) {
+        return new ScreeningBulkhead("mobile", threads, analyzerPermits, maxConcurrentPerClient,
+                maxQueued, maxWaitMillis, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ScreeningBulkhead apiScreeningBulkhead(
+            @Value("${SCREENING_API_THREADS:2}") int threads,
+            @Value("${SCREENING_API_ANALYZER_PERMITS:2}") int analyzerPermits,
+            @Value("${SCREENING_API_MAX_CONCURRENT_PER_CLIENT:1}") int maxConcurrentPerClient,
+            @Value("${SCREENING_API_MAX_QUEUED:64}") int maxQueued,
+            MeterRegistry meterRegistry) {
+        return new ScreeningBulkhead("api", threads, analyzerPermits, maxConcurrentPerClient,
+                maxQueued, maxWaitMillis, meterRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Entry point through which a screening request reached the backend.
+ * <p>
+ * {@link #MOBILE} requests come from ophthalmologists using the mobile app and are interactive;
+ * {@link #API} requests come from partner systems authenticated with an API key and are usually
+ * submitted in bulk.
+ * </p>
+ */
+public enum ScreeningChannel {
+    MOBILE,
+    API
+}
@@ -0,0 +1,178 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decodes uploaded fundus images within a bounded amount of memory.
+ * <p>
+ * The image dimensions are read from the header through {@link ImageReader} before any pixel is
+ * decoded. Images above {@code SCREENING_MAX_DECODE_PIXELS} are decoded with source subsampling,
+ * so a 40 MP DSLR capture never materializes at full resolution. Every decode also reserves its
+ * estimated raster size from a global budget of {@code SCREENING_DECODE_MEMORY_MB}, which bounds
+ * the raster memory held by concurrent screenings regardless of how many requests are admitted.
+ * </p>
+ */
+@Component
+public class ScreeningImageDecoder {
+
+    private static final int DEFAULT_BYTES_PER_PIXEL = 4;
+
+    private final long maxPixels;
+    private final int memoryPermits;
+    private final Semaphore memory;
+    private final long maxWaitMillis;
+
+    /**
+     * @param maxPixels        largest number of pixels decoded for a single image
+     * @param memoryMegabytes  raster memory shared by all concurrent decodes
+     * @param maxWaitMillis    how long a decode may wait for memory before it is rejected
+     */
+    public ScreeningImageDecoder(
+            @Value("${SCREENING_MAX_DECODE_PIXELS:12000000}") long maxPixels,
+            @Value("${SCREENING_DECODE_MEMORY_MB:256}") int memoryMegabytes,
+            @Value("${SCREENING_DECODE_MAX_WAIT_MS:30000}") long maxWaitMillis) {
+        if (maxPixels < 1 || memoryMegabytes < 1) {
+            throw new IllegalArgumentException("Decoding limits must be positive");
+        }
+        this.maxPixels = maxPixels;
+        // One permit per KiB keeps budgets of several gigabytes within int range.
+        this.memoryPermits = Math.multiplyExact(memoryMegabytes, 1024);
+        this.memory = new Semaphore(memoryPermits, true);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Decodes the first image of the stream, subsampled to the pixel budget if necessary.
+     *
+     * @param input the encoded image
+     * @return the decoded image; close it to return its memory to the budget
+     * @throws IOException                if the format is not supported or the image is corrupt
+     * @throws ScreeningRejectedException if no decoding memory becomes available in time
+     */
+    public DecodedImage decode(InputStream input) throws IOException {
+        return decode(ImageIO.createImageInputStream(input));
+    }
+
+    /**
+     * Decodes the first image held in the buffer, reading it in place instead of through an
+     * ImageIO stream cache.
+     *
+     * @param contents the encoded image, from index {@code 0} to the buffer limit
+     * @return the decoded image; close it to return its memory to the budget
+     * @throws IOException                if the format is not supported or the image is corrupt
+     * @throws ScreeningRejectedException if no decoding memory becomes available in time
+     */
+    public DecodedImage decode(ByteBuffer contents) throws IOException {
+        return decode(new ByteBufferImageInputStream(contents));
+    }
+
+    private DecodedImage decode(ImageInputStream input) throws IOException {
+        try (ImageInputStream stream = input) {
+            Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int subsampling = subsamplingFor(width, height);
+                long decodedPixels = (long) ceilDiv(width, subsampling) * ceilDiv(height, subsampling);
+                int permits = reserve(decodedPixels * bytesPerPixel(reader));
+                try {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    BufferedImage image = reader.read(0, param);
+                    return new DecodedImage(image, width, height, subsampling, () -> memory.release(permits));
+                } catch (IOException | RuntimeException | Error e) {
+                    memory.release(permits);
+                    throw e;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest subsampling step that brings the image within the pixel budget.
+     *
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @return {@code 1} if the image fits the budget, otherwise the step to use in both directions
+     */
+    int subsamplingFor(int width, int height) {
+        long pixels = (long) width * height;
+        if (pixels <= maxPixels) {
+            return 1;
+        }
+        int step = (int) Math.ceil(Math.sqrt((double) pixels / maxPixels));
+        while ((long) ceilDiv(width, step) * ceilDiv(height, step) > maxPixels) {
+            step++;
+        }
+        return step;
+    }
+
+    /**
+     * Returns the decoding memory currently available.
+     *
+     * @return the unreserved part of the budget, in bytes
+     */
+    public long availableBytes() {
+        return memory.availablePermits() * 1024L;
+    }
+
+    private int reserve(long bytes) {
+        // An image larger than the whole budget still runs, just never alongside another decode.
+        int permits = (int) Math.min(memoryPermits, Math.max(1, ceilDiv(bytes, 1024)));
+        try {
+            if (!memory.tryAcquire(permits, maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new ScreeningRejectedException("Not enough memory to decode the image, please retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScreeningRejectedException("Interrupted while waiting for decoding memory");
+        }
+        return permits;
+    }
+
+    private static int bytesPerPixel(ImageReader reader) throws IOException {
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        if (type == null) {
+            Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+            type = types.hasNext() ? types.next() : null;
+        }
+        if (type == null) {
+            return DEFAULT_BYTES_PER_PIXEL;
+        }
+        int bits = 0;
+        for (int size : type.getSampleModel().getSampleSize()) {
+            bits += size;
+        }
+        return Math.max(1, (bits + 7) / 8);
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,78 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * A screening enqueued by an API node and processed by a worker node.
+ * <p>
+ * Workers lease a job by setting {@code leaseOwner} and {@code leaseExpiresAt} in the same
+ * transaction that locked the row, so a job whose worker dies becomes claimable again once its
+ * lease expires. The uploaded image is stored separately in {@link ScreeningJobImage} so that
+ * leasing and status queries never load it.
+ * </p>
+ */
+@Data
+@Entity
+@Table(name = "screening_job", indexes = @Index(name = "idx_screening_job_status_available", columnList = "status, available_at"))
+public class ScreeningJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /** The ophthalmologist or API key the screening is accounted to. */
+    @Column(nullable = false)
+    private String principal;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ScreeningChannel channel;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ScreeningJobStatus status = ScreeningJobStatus.QUEUED;
+
+    /** Last stage reported by the worker, streamed to clients following the job. */
+    @Enumerated(EnumType.STRING)
+    private ScreeningStage stage = ScreeningStage.RECEIVED;
+
+    /** Number of times a worker has leased the job. */
+    @Column(nullable = false)
+    private int attempts;
+
+    /** Earliest time a worker may claim a queued job; pushed back on retries. */
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    /** The {@link ImageProcessingResultDTO} as JSON once the job has succeeded. */
+    @Column(length = 4000)
+    private String result;
+
+    /** The last failure, kept while the job is retried. */
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
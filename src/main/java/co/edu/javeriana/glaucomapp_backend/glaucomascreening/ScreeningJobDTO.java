@@ -0,0 +1,36 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object representing the state of an enqueued screening.
+ *
+ * @param id        The identifier of the job.
+ * @param status    The current status of the job.
+ * @param stage     The last pipeline stage the job reached.
+ * @param attempts  How many times a worker has picked the job up.
+ * @param result    The screening result, once the job has succeeded.
+ * @param error     The last failure, if any.
+ * @param createdAt When the job was enqueued.
+ * @param updatedAt When the job last changed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScreeningJobDTO {
+
+        UUID id;
+        ScreeningJobStatus status;
+        ScreeningStage stage;
+        int attempts;
+        ImageProcessingResultDTO result;
+        String error;
+        Instant createdAt;
+        Instant updatedAt;
+
+}
@@ -0,0 +1,40 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The uploaded image of a {@link ScreeningJob}, deleted once the job reaches a final state.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "screening_job_image")
+public class ScreeningJobImage {
+
+    /** The identifier of the job the image belongs to. */
+    @Id
+    @Column(name = "job_id")
+    private UUID jobId;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    /** Lowercase hexadecimal SHA-256 of the content. */
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] content;
+}
@@ -0,0 +1,13 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the images of queued screening jobs.
+ */
+@Repository
+public interface ScreeningJobImageRepository extends JpaRepository<ScreeningJobImage, UUID> {
+}
@@ -0,0 +1,92 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository for the durable screening queue.
+ */
+@Repository
+public interface ScreeningJobRepository extends JpaRepository<ScreeningJob, UUID> {
+
+    /**
+     * Locks the oldest jobs a worker may take: queued jobs that are due, and running jobs whose
+     * lease has expired.
+     * <p>
+     * A lock timeout of {@code -2} is Hibernate's {@code SKIP LOCKED}, so concurrent workers each
+     * lock a disjoint set of rows instead of waiting on each other. Databases without
+     * {@code SKIP LOCKED} fall back to a plain {@code FOR UPDATE}.
+     * </p>
+     *
+     * @param now      the current time
+     * @param pageable the maximum number of jobs to lock
+     * @return the locked jobs, oldest first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select j from ScreeningJob j
+            where (j.status = co.edu.javeriana.glaucomapp_backend.glaucomascreening.ScreeningJobStatus.QUEUED
+                    and j.availableAt <= :now)
+               or (j.status = co.edu.javeriana.glaucomapp_backend.glaucomascreening.ScreeningJobStatus.RUNNING
+                    and j.leaseExpiresAt < :now)
+            order by j.availableAt
+            """)
+    List<ScreeningJob> lockClaimable(@Param("now") Instant now, Pageable pageable);
+
+    /**
+     * Locks a job before a worker records its outcome, so that the outcome is only recorded while
+     * the worker still holds the lease.
+     *
+     * @param id the job identifier
+     * @return the locked job
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select j from ScreeningJob j where j.id = :id")
+    Optional<ScreeningJob> lockById(@Param("id") UUID id);
+
+    Optional<ScreeningJob> findByIdAndPrincipal(UUID id, String principal);
+
+    /**
+     * Records the stage a running job reached and extends its lease, unless the worker no longer holds it.
+     *
+     * @return the number of updated jobs, {@code 0} if the lease was lost
+     */
+    @Modifying
+    @Query("""
+            update ScreeningJob j set j.stage = :stage, j.updatedAt = :now, j.leaseExpiresAt = :leaseExpiresAt
+            where j.id = :id and j.leaseOwner = :workerId
+              and j.status = co.edu.javeriana.glaucomapp_backend.glaucomascreening.ScreeningJobStatus.RUNNING
+            """)
+    int updateStage(@Param("id") UUID id, @Param("workerId") String workerId, @Param("stage") ScreeningStage stage,
+            @Param("now") Instant now, @Param("leaseExpiresAt") Instant leaseExpiresAt);
+
+    /**
+     * Extends the leases the worker still holds on the given jobs.
+     *
+     * @return the number of renewed leases
+     */
+    @Modifying
+    @Query("""
+            update ScreeningJob j set j.leaseExpiresAt = :leaseExpiresAt
+            where j.id in :ids and j.leaseOwner = :workerId
+              and j.status = co.edu.javeriana.glaucomapp_backend.glaucomascreening.ScreeningJobStatus.RUNNING
+            """)
+    int renewLeases(@Param("ids") Collection<UUID> ids, @Param("workerId") String workerId,
+            @Param("leaseExpiresAt") Instant leaseExpiresAt);
+}
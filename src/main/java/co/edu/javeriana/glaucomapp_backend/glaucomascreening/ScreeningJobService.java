@@ -0,0 +1,295 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import co.edu.javeriana.glaucomapp_backend.common.json.JsonCodecs;
+
+import jakarta.transaction.Transactional;
+
+/**
+ * Durable queue of screenings, shared by the API nodes that enqueue uploads and the worker nodes
+ * that process them.
+ * <p>
+ * A worker claims jobs by locking due rows with {@code SKIP LOCKED} and leasing them for
+ * {@code SCREENING_JOB_LEASE_MS}. Every stage the job reaches extends the lease, and the worker
+ * renews the leases of the jobs it is running in between, so a slow job is not claimed again while
+ * it still runs. Outcomes are only recorded by the worker that still holds the lease; a job whose
+ * worker dies is claimed again once its lease expires. Failed attempts are retried with exponential backoff from
+ * {@code SCREENING_JOB_RETRY_BACKOFF_MS}, up to {@code SCREENING_JOB_MAX_ATTEMPTS} leases, except
+ * for failures that a retry cannot fix, such as an unusable image.
+ * </p>
+ */
+@Service
+public class ScreeningJobService {
+
+    private static final ObjectReader RESULT_READER = JsonCodecs.readerFor(ImageProcessingResultDTO.class);
+    private static final ObjectWriter RESULT_WRITER = JsonCodecs.writerFor(ImageProcessingResultDTO.class);
+
+    private final ScreeningJobRepository jobRepository;
+    private final ScreeningJobImageRepository imageRepository;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBackoff;
+
+    public ScreeningJobService(ScreeningJobRepository jobRepository, ScreeningJobImageRepository imageRepository,
+            @Value("${SCREENING_JOB_MAX_ATTEMPTS:3}") int maxAttempts,
+            @Value("${SCREENING_JOB_LEASE_MS:120000}") long leaseMillis,
+            @Value("${SCREENING_JOB_RETRY_BACKOFF_MS:5000}") long retryBackoffMillis) {
+        this.jobRepository = jobRepository;
+        this.imageRepository = imageRepository;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.retryBackoff = Duration.ofMillis(retryBackoffMillis);
+    }
+
+    /**
+     * @return how long a claimed job stays leased to its worker without being renewed
+     */
+    public Duration lease() {
+        return lease;
+    }
+
+    /**
+     * Stores the upload and queues its screening.
+     *
+     * @param principal the ophthalmologist or API key the screening is accounted to
+     * @param channel   the channel the upload arrived through
+     * @param file      the fundus image
+     * @return the queued job
+     * @throws IOException if the upload cannot be read
+     */
+    @Transactional
+    public ScreeningJob enqueue(String principal, ScreeningChannel channel, MultipartFile file) throws IOException {
+        Instant now = Instant.now();
+        ScreeningJob job = new ScreeningJob();
+        job.setPrincipal(principal);
+        job.setChannel(channel);
+        job.setStatus(ScreeningJobStatus.QUEUED);
+        job.setStage(ScreeningStage.RECEIVED);
+        job.setAvailableAt(now);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job = jobRepository.save(job);
+
+        byte[] content = file.getBytes();
+        String contentHash = file instanceof IngestedMultipartFile ingested ? ingested.contentHash() : sha256(content);
+        imageRepository.save(new ScreeningJobImage(job.getId(), file.getOriginalFilename(), file.getContentType(),
+                contentHash, content));
+        return job;
+    }
+
+    /**
+     * Returns a job of the principal.
+     *
+     * @param id        the job identifier
+     * @param principal the principal that enqueued the job
+     * @return the job, or empty if it does not exist or belongs to someone else
+     */
+    public Optional<ScreeningJobDTO> findJob(UUID id, String principal) {
+        return jobRepository.findByIdAndPrincipal(id, principal).map(this::toDto);
+    }
+
+    /**
+     * Leases up to {@code limit} due jobs to the worker.
+     * <p>
+     * Jobs whose lease expired after their last allowed attempt are failed instead of claimed.
+     * </p>
+     *
+     * @param workerId identifier of the claiming worker
+     * @param limit    maximum number of jobs to claim
+     * @return the claimed jobs, now {@link ScreeningJobStatus#RUNNING}
+     */
+    @Transactional
+    public List<ScreeningJob> claim(String workerId, int limit) {
+        Instant now = Instant.now();
+        List<ScreeningJob> claimed = new ArrayList<>();
+        for (ScreeningJob job : jobRepository.lockClaimable(now, PageRequest.of(0, limit))) {
+            if (job.getStatus() == ScreeningJobStatus.RUNNING && job.getAttempts() >= maxAttempts) {
+                finish(job, ScreeningJobStatus.FAILED, ScreeningStage.FAILED, now);
+                job.setError("The screening did not finish within its lease after " + job.getAttempts() + " attempts");
+                continue;
+            }
+            job.setStatus(ScreeningJobStatus.RUNNING);
+            job.setStage(ScreeningStage.RECEIVED);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLeaseOwner(workerId);
+            job.setLeaseExpiresAt(now.plus(lease));
+            job.setUpdatedAt(now);
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    public Optional<ScreeningJobImage> loadImage(UUID jobId) {
+        return imageRepository.findById(jobId);
+    }
+
+    /**
+     * Records the stage a job leased by the worker reached, renewing the lease from now.
+     *
+     * @return {@code false} if the worker lost the lease
+     */
+    @Transactional
+    public boolean recordStage(UUID jobId, String workerId, ScreeningStage stage) {
+        Instant now = Instant.now();
+        return jobRepository.updateStage(jobId, workerId, stage, now, now.plus(lease)) > 0;
+    }
+
+    /**
+     * Renews, from now, the leases the worker still holds on the given jobs.
+     *
+     * @return the number of renewed leases
+     */
+    @Transactional
+    public int renewLeases(Collection<UUID> jobIds, String workerId) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return jobRepository.renewLeases(jobIds, workerId, Instant.now().plus(lease));
+    }
+
+    /**
+     * Returns the current state of the given jobs, regardless of who enqueued them.
+     */
+    public List<ScreeningJob> findJobs(Collection<UUID> ids) {
+        return jobRepository.findAllById(ids);
+    }
+
+    /**
+     * Records the result of a job leased by the worker.
+     *
+     * @return {@code false} if the worker lost the lease, in which case the result is discarded
+     */
+    @Transactional
+    public boolean complete(UUID jobId, String workerId, ImageProcessingResultDTO result) {
+        Optional<ScreeningJob> leased = lockLeased(jobId, workerId);
+        if (leased.isEmpty()) {
+            return false;
+        }
+        ScreeningJob job = leased.get();
+        try {
+            job.setResult(RESULT_WRITER.writeValueAsString(result));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the screening result", e);
+        }
+        job.setError(null);
+        finish(job, ScreeningJobStatus.SUCCEEDED, ScreeningStage.DONE, Instant.now());
+        return true;
+    }
+
+    /**
+     * Records a failed attempt of a job leased by the worker, scheduling a retry if one is left and
+     * could succeed.
+     *
+     * @return {@code false} if the worker lost the lease, in which case the failure is discarded
+     */
+    @Transactional
+    public boolean fail(UUID jobId, String workerId, RuntimeException failure) {
+        Optional<ScreeningJob> leased = lockLeased(jobId, workerId);
+        if (leased.isEmpty()) {
+            return false;
+        }
+        ScreeningJob job = leased.get();
+        Instant now = Instant.now();
+        job.setError(truncate(failure.getMessage()));
+        if (isRetryable(failure) && job.getAttempts() < maxAttempts) {
+            job.setStatus(ScreeningJobStatus.QUEUED);
+            job.setStage(ScreeningStage.RECEIVED);
+            job.setAvailableAt(now.plus(retryBackoff.multipliedBy(1L << Math.min(job.getAttempts() - 1, 16))));
+            job.setLeaseOwner(null);
+            job.setLeaseExpiresAt(null);
+            job.setUpdatedAt(now);
+        } else {
+            finish(job, ScreeningJobStatus.FAILED, ScreeningStage.FAILED, now);
+        }
+        return true;
+    }
+
+    /**
+     * Failures caused by the image itself or rejected by the analyzer fail the same way on every attempt.
+     */
+    protected boolean isRetryable(RuntimeException failure) {
+        if (failure instanceof ImageQualityException) {
+            return false;
+        }
+        if (failure instanceof AnalyzerException analyzerError && analyzerError.isClientError()) {
+            return false;
+        }
+        return !(failure.getCause() instanceof IOException);
+    }
+
+    public ScreeningJobDTO toDto(ScreeningJob job) {
+        ImageProcessingResultDTO result = null;
+        if (job.getResult() != null) {
+            try {
+                result = RESULT_READER.readValue(job.getResult());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not read the result of screening job " + job.getId(), e);
+            }
+        }
+        return new ScreeningJobDTO(job.getId(), job.getStatus(), stageOf(job), job.getAttempts(), result, job.getError(),
+                job.getCreatedAt(), job.getUpdatedAt());
+    }
+
+    private Optional<ScreeningJob> lockLeased(UUID jobId, String workerId) {
+        return jobRepository.lockById(jobId)
+                .filter(job -> job.getStatus() == ScreeningJobStatus.RUNNING && workerId.equals(job.getLeaseOwner()));
+    }
+
+    /**
+     * Jobs enqueued before stages were recorded have none; their status tells as much.
+     */
+    private static ScreeningStage stageOf(ScreeningJob job) {
+        if (job.getStatus() == ScreeningJobStatus.SUCCEEDED) {
+            return ScreeningStage.DONE;
+        }
+        if (job.getStatus() == ScreeningJobStatus.FAILED) {
+            return ScreeningStage.FAILED;
+        }
+        return job.getStage() == null ? ScreeningStage.RECEIVED : job.getStage();
+    }
+
+    private void finish(ScreeningJob job, ScreeningJobStatus status, ScreeningStage stage, Instant now) {
+        job.setStatus(status);
+        job.setStage(stage);
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        job.setUpdatedAt(now);
+        // The upload is only needed while the job can still run.
+        imageRepository.deleteById(job.getId());
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
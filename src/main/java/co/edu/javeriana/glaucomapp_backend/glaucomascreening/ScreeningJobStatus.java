@@ -0,0 +1,13 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Lifecycle of a {@link ScreeningJob}.
+ */
+public enum ScreeningJobStatus {
+    /** Waiting for a worker, either new or scheduled for a retry. */
+    QUEUED,
+    /** Leased by a worker until the lease expires. */
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
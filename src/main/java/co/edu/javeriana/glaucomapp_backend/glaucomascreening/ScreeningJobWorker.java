@@ -0,0 +1,218 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Processes queued screenings on dedicated worker nodes.
+ * <p>
+ * Only active with the {@code worker} profile, so API nodes enqueue and worker nodes analyze, and
+ * each tier can be scaled on its own. A poller claims as many jobs as there are free slots out of
+ * {@code SCREENING_WORKER_CONCURRENCY}, waiting {@code SCREENING_WORKER_POLL_MS} when the queue is
+ * empty, and each job runs on its own virtual thread inside the bulkhead of the channel it was
+ * enqueued through. A running attempt cannot be stopped from outside, since the analyzer call does
+ * not respond to interrupts, so a heartbeat renews the leases of the running jobs every third of
+ * {@code SCREENING_JOB_LEASE_MS} until they finish.
+ * </p>
+ */
+@Component
+@Profile("worker")
+public class ScreeningJobWorker implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScreeningJobWorker.class);
+
+    private final ScreeningJobService screeningJobService;
+    private final GlaucomaScreeningService glaucomaScreeningService;
+    private final ScreeningAdmissionService screeningAdmissionService;
+    private final int concurrency;
+    private final long pollMillis;
+    private final String workerId;
+    private final Semaphore slots;
+
+    private volatile boolean running;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    private Thread poller;
+    private Thread heartbeat;
+    private ExecutorService executor;
+
+    public ScreeningJobWorker(ScreeningJobService screeningJobService,
+            GlaucomaScreeningService glaucomaScreeningService,
+            ScreeningAdmissionService screeningAdmissionService,
+            @Value("${SCREENING_WORKER_CONCURRENCY:4}") int concurrency,
+            @Value("${SCREENING_WORKER_POLL_MS:1000}") long pollMillis) {
+        this.screeningJobService = screeningJobService;
+        this.glaucomaScreeningService = glaucomaScreeningService;
+        this.screeningAdmissionService = screeningAdmissionService;
+        this.concurrency = concurrency;
+        this.pollMillis = pollMillis;
+        this.workerId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.slots = new Semaphore(concurrency);
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("screening-job-", 0).factory());
+        running = true;
+        poller = Thread.ofVirtual().name("screening-job-poller").start(this::poll);
+        heartbeat = Thread.ofVirtual().name("screening-job-heartbeat").start(this::heartbeat);
+        logger.info("Screening worker " + workerId + " started with " + concurrency + " slots");
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        poller.interrupt();
+        // Jobs still running when the executor closes finish first; those cut short are reclaimed after their lease.
+        executor.close();
+        heartbeat.interrupt();
+        logger.info("Screening worker " + workerId + " stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    String workerId() {
+        return workerId;
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                if (pollOnce(executor) == 0) {
+                    TimeUnit.MILLISECONDS.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not claim screening jobs: " + e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pollMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        long intervalMillis = Math.max(1, screeningJobService.lease().toMillis() / 3);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            renewLeases();
+        }
+    }
+
+    /**
+     * Renews the leases of the jobs this worker is running. A failed renewal is retried on the next beat.
+     */
+    void renewLeases() {
+        List<UUID> running = List.copyOf(inFlight);
+        try {
+            int renewed = screeningJobService.renewLeases(running, workerId);
+            if (renewed < running.size()) {
+                logger.warn("Screening worker " + workerId + " lost the lease of " + (running.size() - renewed) + " running jobs");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not renew the leases of running screening jobs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Claims jobs for the free slots and submits them.
+     *
+     * @return the number of jobs claimed
+     */
+    int pollOnce(ExecutorService executor) throws InterruptedException {
+        slots.acquire();
+        int free = 1 + slots.drainPermits();
+        List<ScreeningJob> jobs;
+        try {
+            jobs = screeningJobService.claim(workerId, free);
+        } catch (RuntimeException e) {
+            slots.release(free);
+            throw e;
+        }
+        slots.release(free - jobs.size());
+        for (ScreeningJob job : jobs) {
+            executor.execute(() -> {
+                try {
+                    process(job);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+        return jobs.size();
+    }
+
+    void process(ScreeningJob job) {
+        inFlight.add(job.getId());
+        try {
+            ScreeningJobImage image = screeningJobService.loadImage(job.getId())
+                    .orElseThrow(() -> new UncheckedIOException(
+                            new FileNotFoundException("The image of screening job " + job.getId() + " is missing")));
+            IngestedMultipartFile file = new IngestedMultipartFile("file", image.getOriginalFilename(),
+                    image.getContentType(), image.getContentHash(), ByteBuffer.wrap(image.getContent()), null, null);
+            ScreeningProgressListener progress = stage -> recordStage(job, stage);
+            ImageProcessingResultDTO result = screeningAdmissionService.execute(job.getPrincipal(), job.getChannel(),
+                    () -> glaucomaScreeningService.sendImageToApi(file, progress));
+            if (result == null) {
+                throw new IllegalStateException("The analyzer returned no result");
+            }
+            if (!screeningJobService.complete(job.getId(), workerId, result)) {
+                logger.warn("Screening job " + job.getId() + " finished after its lease was lost; result discarded");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Screening job " + job.getId() + " attempt " + job.getAttempts() + " failed: " + e.getMessage());
+            screeningJobService.fail(job.getId(), workerId, e);
+        } finally {
+            inFlight.remove(job.getId());
+        }
+    }
+
+    /**
+     * Progress is best effort: a failure to record it never fails the screening.
+     */
+    private void recordStage(ScreeningJob job, ScreeningStage stage) {
+        try {
+            screeningJobService.recordStage(job.getId(), workerId, stage);
+        } catch (RuntimeException e) {
+            logger.warn("Could not record stage " + stage + " of screening job " + job.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "worker";
+        }
+    }
+}
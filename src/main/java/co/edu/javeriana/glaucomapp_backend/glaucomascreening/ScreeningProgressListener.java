@@ -0,0 +1,16 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Receives the stages a screening goes through while {@link GlaucomaScreeningService} runs it.
+ * <p>
+ * Called on the screening thread, so implementations must return quickly.
+ * </p>
+ */
+@FunctionalInterface
+public interface ScreeningProgressListener {
+
+    ScreeningProgressListener NONE = stage -> {
+    };
+
+    void onStage(ScreeningStage stage);
+}
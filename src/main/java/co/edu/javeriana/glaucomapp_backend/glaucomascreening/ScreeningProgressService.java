@@ -0,0 +1,204 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams the progress of screening jobs to clients over Server-Sent Events.
+ * <p>
+ * Jobs usually run on a worker node, so progress is read back from the job table rather than
+ * received in process: a single poller loads every followed job with one query each
+ * {@code SCREENING_PROGRESS_POLL_MS} and sends an event named after the {@link ScreeningStage}
+ * whenever a job reaches a new stage, with the {@link ScreeningJobDTO} as data. The {@code done}
+ * event carries the result, and the stream completes on {@code done} or {@code failed}. A comment
+ * is sent every {@code SCREENING_PROGRESS_HEARTBEAT_MS} so that proxies keep idle streams open and
+ * closed connections are noticed.
+ * </p>
+ */
+@Service
+public class ScreeningProgressService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScreeningProgressService.class);
+
+    private final ScreeningJobService screeningJobService;
+    private final long timeoutMillis;
+    private final long pollMillis;
+    private final long heartbeatMillis;
+    private final Map<UUID, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread poller;
+    private long lastHeartbeat;
+
+    public ScreeningProgressService(ScreeningJobService screeningJobService,
+            @Value("${SCREENING_PROGRESS_TIMEOUT_MS:300000}") long timeoutMillis,
+            @Value("${SCREENING_PROGRESS_POLL_MS:500}") long pollMillis,
+            @Value("${SCREENING_PROGRESS_HEARTBEAT_MS:15000}") long heartbeatMillis) {
+        this.screeningJobService = screeningJobService;
+        this.timeoutMillis = timeoutMillis;
+        this.pollMillis = pollMillis;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * Opens a progress stream for a job of the principal. The current stage is sent right away.
+     *
+     * @param jobId     the job to follow
+     * @param principal the principal that enqueued the job
+     * @return the stream, or empty if the job does not exist or belongs to someone else
+     */
+    public Optional<SseEmitter> subscribe(UUID jobId, String principal) {
+        Optional<ScreeningJobDTO> job = screeningJobService.findJob(jobId, principal);
+        if (job.isEmpty()) {
+            return Optional.empty();
+        }
+        Subscription subscription = new Subscription(new SseEmitter(timeoutMillis));
+        if (!subscription.send(job.get()) || job.get().getStage().isTerminal()) {
+            return Optional.of(subscription.emitter);
+        }
+        List<Subscription> followers = subscriptions.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        followers.add(subscription);
+        Runnable remove = () -> unsubscribe(jobId, subscription);
+        subscription.emitter.onCompletion(remove);
+        subscription.emitter.onTimeout(remove);
+        subscription.emitter.onError(error -> remove.run());
+        return Optional.of(subscription.emitter);
+    }
+
+    /**
+     * Sends the stages the followed jobs reached since the last poll.
+     */
+    void pollOnce() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        for (ScreeningJob job : screeningJobService.findJobs(subscriptions.keySet())) {
+            List<Subscription> followers = subscriptions.get(job.getId());
+            if (followers == null) {
+                continue;
+            }
+            ScreeningJobDTO dto = screeningJobService.toDto(job);
+            for (Subscription subscription : followers) {
+                if (!subscription.send(dto) || dto.getStage().isTerminal()) {
+                    unsubscribe(job.getId(), subscription);
+                }
+            }
+        }
+        long now = System.nanoTime();
+        if (now - lastHeartbeat >= TimeUnit.MILLISECONDS.toNanos(heartbeatMillis)) {
+            lastHeartbeat = now;
+            subscriptions.forEach((jobId, followers) -> followers.forEach(subscription -> {
+                if (!subscription.heartbeat()) {
+                    unsubscribe(jobId, subscription);
+                }
+            }));
+        }
+    }
+
+    int followedJobs() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        lastHeartbeat = System.nanoTime();
+        poller = Thread.ofVirtual().name("screening-progress-poller").start(this::poll);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        poller.interrupt();
+        subscriptions.values().forEach(followers -> followers.forEach(subscription -> subscription.emitter.complete()));
+        subscriptions.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                pollOnce();
+            } catch (RuntimeException e) {
+                logger.error("Could not poll screening progress: " + e.getMessage());
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void unsubscribe(UUID jobId, Subscription subscription) {
+        subscriptions.computeIfPresent(jobId, (id, followers) -> {
+            followers.remove(subscription);
+            return followers.isEmpty() ? null : followers;
+        });
+        subscription.emitter.complete();
+    }
+
+    /**
+     * One client stream and the last stage it was sent.
+     */
+    private static final class Subscription {
+
+        private final SseEmitter emitter;
+        private ScreeningStage lastStage;
+
+        private Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Sends the job if its stage changed since the last event of this stream.
+         *
+         * @return {@code false} if the client is gone
+         */
+        synchronized boolean send(ScreeningJobDTO job) {
+            if (job.getStage() == lastStage) {
+                return true;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(job.getStage().name().toLowerCase())
+                        .data(job, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+            lastStage = job.getStage();
+            if (lastStage.isTerminal()) {
+                emitter.complete();
+            }
+            return true;
+        }
+
+        synchronized boolean heartbeat() {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+}
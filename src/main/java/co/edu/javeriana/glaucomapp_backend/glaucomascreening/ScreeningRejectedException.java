@@ -0,0 +1,11 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Thrown when a screening request cannot be admitted because the analyzer capacity
+ * available to the caller is exhausted. Controllers translate it into HTTP 429.
+ */
+public class ScreeningRejectedException extends RuntimeException {
+    public ScreeningRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Progress of a screening through the pipeline, as reported to clients following a
+ * {@link ScreeningJob}.
+ */
+public enum ScreeningStage {
+    /** The upload is stored and waiting for, or just picked up by, a worker. */
+    RECEIVED,
+    /** The image was decoded and passed the quality checks. */
+    DECODED,
+    /** The image was sent to the analyzer. */
+    ANALYZING,
+    /** The analyzer answered; the overlay is being stored and the result computed. */
+    UPLOADING,
+    DONE,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -0,0 +1,127 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the independent stages of one screening concurrently, each on its own virtual thread.
+ * <p>
+ * All stages forked into a scope share its deadline and its fate: {@link #join()} returns once every
+ * stage has succeeded, and the first failure, or the deadline passing, cancels the stages still
+ * running. Closing the scope cancels whatever was not joined and waits for the threads to finish,
+ * so no stage outlives the request that forked it. This is the shutdown-on-failure policy of
+ * {@code StructuredTaskScope}, which is still a preview API in Java 21.
+ * </p>
+ */
+public class ScreeningTaskScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final List<Future<?>> forks = new ArrayList<>();
+    private final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+
+    /**
+     * @param name    prefix of the names of the stage threads
+     * @param timeout how long {@link #join()} waits for all stages, or {@code null} to wait without a deadline
+     */
+    public ScreeningTaskScope(String name, Duration timeout) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name, 0).factory());
+        this.timeout = timeout;
+    }
+
+    /**
+     * Starts a stage on a new virtual thread.
+     *
+     * @param stage the work to run
+     * @return the stage result, available once {@link #join()} has returned
+     */
+    public <T> Future<T> fork(Callable<T> stage) {
+        FutureTask<T> future = new FutureTask<>(stage) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        forks.add(future);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Waits for every forked stage to succeed.
+     * <p>
+     * Stages are joined in completion order, so a failure cancels the remaining stages as soon as it
+     * happens rather than after the stages forked before it have finished.
+     * </p>
+     *
+     * @throws UncheckedIOException  if a stage failed with an {@link IOException}
+     * @throws ScreeningTimeoutException if the deadline passed
+     * @throws IllegalStateException if the waiting thread was interrupted
+     * @throws RuntimeException      the first failure of any stage
+     */
+    public void join() {
+        long deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        for (int joined = 0; joined < forks.size(); joined++) {
+            Future<?> next;
+            try {
+                next = timeout == null ? completed.take()
+                        : completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+                throw new IllegalStateException("Interrupted while waiting for the screening stages", e);
+            }
+            if (next == null) {
+                cancelAll();
+                throw new ScreeningTimeoutException("Screening stages did not finish within " + timeout.toMillis() + " ms");
+            }
+            try {
+                next.get();
+            } catch (InterruptedException e) {
+                // Unreachable: the future has completed.
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                cancelAll();
+                throw propagate(e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+    private void cancelAll() {
+        for (Future<?> fork : forks) {
+            fork.cancel(true);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        if (cause instanceof IOException ioException) {
+            return new UncheckedIOException(ioException);
+        }
+        return new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,11 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+/**
+ * Thrown when the stages of a screening do not finish within their deadline. Controllers translate
+ * it into HTTP 504.
+ */
+public class ScreeningTimeoutException extends IllegalStateException {
+    public ScreeningTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,166 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+
+/**
+ * Warms up the screening pipeline at startup, before the application reports itself ready.
+ * <p>
+ * Application runners complete before Spring Boot publishes the readiness state, so a rolling deploy
+ * only routes traffic to the node once this has run. It pushes a synthetic fundus image through the
+ * same decode, quality, encode, response parsing and PNG stages a real screening uses, which loads the
+ * ImageIO plugins, creates the Jackson factories and lets the JIT compile the raster loops. It then
+ * opens a keep-alive connection to the analyzer through the client screenings use. Failures are logged and never prevent startup.
+ * Set {@code WARMUP_ENABLED=false} to skip it.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "WARMUP_ENABLED", havingValue = "true", matchIfMissing = true)
+public class ScreeningWarmUp implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScreeningWarmUp.class);
+
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 768;
+
+    private final GlaucomaScreeningService glaucomaScreeningService;
+    private final ScreeningImageDecoder imageDecoder;
+    private final FundusQualityInspector qualityInspector;
+    private final OpticDiscLocator opticDiscLocator;
+    private final BufferPool bufferPool;
+    private final HttpClient analyzerHttpClient;
+    private final int iterations;
+    private final long connectTimeoutMillis;
+
+    public ScreeningWarmUp(GlaucomaScreeningService glaucomaScreeningService, ScreeningImageDecoder imageDecoder,
+            FundusQualityInspector qualityInspector, OpticDiscLocator opticDiscLocator, BufferPool bufferPool,
+            HttpClient analyzerHttpClient,
+            @Value("${SCREENING_WARMUP_ITERATIONS:10}") int iterations,
+            @Value("${SCREENING_WARMUP_CONNECT_TIMEOUT_MS:2000}") long connectTimeoutMillis) {
+        this.glaucomaScreeningService = glaucomaScreeningService;
+        this.imageDecoder = imageDecoder;
+        this.qualityInspector = qualityInspector;
+        this.opticDiscLocator = opticDiscLocator;
+        this.bufferPool = bufferPool;
+        this.analyzerHttpClient = analyzerHttpClient;
+        this.iterations = iterations;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            warmUpPipeline();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Screening pipeline warm-up failed: " + e.getMessage());
+        }
+        warmUpAnalyzerConnection();
+        logger.info("Screening warm-up finished in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+    /**
+     * Runs the CPU-bound stages of a screening on a synthetic image, once per supported upload format.
+     */
+    void warmUpPipeline() throws IOException {
+        BufferedImage fundus = syntheticFundus();
+        List<byte[]> uploads = List.of(encode(fundus, "jpeg"), encode(fundus, "png"));
+        ResponseEntity<String> response = syntheticResponse();
+
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] upload : uploads) {
+                try (DecodedImage decoded = imageDecoder.decode(ByteBuffer.wrap(upload))) {
+                    BufferedImage image = decoded.image();
+                    qualityInspector.inspect(image);
+                    opticDiscLocator.locate(image);
+                    AnalyzerPayloadEncoder.encode(image, bufferPool).close();
+                }
+            }
+            ServerResultDTO result = glaucomaScreeningService.parseResponse(response,
+                    glaucomaScreeningService.analyzerResponseReader());
+            try (AnalyzerBitmap bitmap = glaucomaScreeningService.decodeBitmap(result.getBitmap())) {
+                BufferedImage overlay = glaucomaScreeningService.postprocessImage(bitmap.array(), bitmap.length(), WIDTH,
+                        HEIGHT);
+                ImageIO.write(overlay, "png", OutputStream.nullOutputStream());
+            }
+        }
+    }
+
+    /**
+     * Opens a connection to the analyzer so that the first screening does not pay for DNS, TCP and TLS.
+     * Any HTTP status means the connection was established. The request goes through the shared analyzer
+     * client, so the connection stays in the pool screenings draw from; only its timeout is shorter.
+     */
+    void warmUpAnalyzerConnection() {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(analyzerHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(connectTimeoutMillis));
+        try {
+            new RestTemplate(requestFactory).headForHeaders(glaucomaScreeningService.pythonApiUrl);
+        } catch (RuntimeException e) {
+            // Error statuses also leave a warm connection behind.
+            logger.debug("Analyzer warm-up request completed with: " + e.getMessage());
+        }
+    }
+
+    private static BufferedImage syntheticFundus() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(0x8C4628));
+            graphics.fillOval((WIDTH - HEIGHT) / 2, 0, HEIGHT, HEIGHT);
+            graphics.setColor(new Color(0xF0D2A0));
+            graphics.fillOval(WIDTH / 2 + 120, HEIGHT / 2 - 60, 120, 120);
+            // Vessel-like strokes give the JPEG encoder and the quality checks realistic detail.
+            Random random = new Random(WIDTH);
+            graphics.setColor(new Color(0x5A1E14));
+            for (int i = 0; i < 40; i++) {
+                graphics.drawLine(WIDTH / 2 + 180, HEIGHT / 2, (WIDTH - HEIGHT) / 2 + random.nextInt(HEIGHT),
+                        random.nextInt(HEIGHT));
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+
+    private static ResponseEntity<String> syntheticResponse() {
+        String bitmap = Base64.getEncoder().encodeToString(new byte[WIDTH * HEIGHT * 3]);
+        return new ResponseEntity<>("{\"image\": {\"bitmap\": \"" + bitmap + "\"}, \"coordinates\": [1.0, 2.0],"
+                + " \"distances\": [10.0, 4.0], \"perimeters\": [100.0, 50.0], \"areas\": [800.0, 200.0]}",
+                HttpStatus.OK);
+    }
+}
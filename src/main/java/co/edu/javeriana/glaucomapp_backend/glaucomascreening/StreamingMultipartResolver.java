@@ -0,0 +1,255 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Multipart resolver that reads every file part exactly once from the request stream.
+ * <p>
+ * The servlet container's multipart support spools each part to memory or a temporary file before
+ * the controller runs, and the screening pipeline then read that copy again. This resolver parses
+ * the request as a stream instead: each file part is hashed while it is received and kept in a pooled
+ * buffer, or, once it exceeds {@code SCREENING_UPLOAD_SPILL_THRESHOLD}, written to a temporary file
+ * that is memory-mapped for the decoder. The uploads are released when the request completes.
+ * </p>
+ * <p>
+ * The size limits are still taken from {@code spring.servlet.multipart.max-file-size} and
+ * {@code max-request-size}; the container's own multipart handling is disabled in {@code application.yml}.
+ * </p>
+ */
+@Component("multipartResolver")
+public class StreamingMultipartResolver implements MultipartResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingMultipartResolver.class);
+
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private final BufferPool bufferPool;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+    private final int spillThreshold;
+    private final Path spillDirectory;
+
+    public StreamingMultipartResolver(BufferPool bufferPool,
+            @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxFileSize,
+            @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize,
+            @Value("${SCREENING_UPLOAD_SPILL_THRESHOLD:4MB}") DataSize spillThreshold,
+            @Value("${SCREENING_UPLOAD_SPILL_DIR:${java.io.tmpdir}}") Path spillDirectory) {
+        this.bufferPool = bufferPool;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxRequestSize = maxRequestSize.toBytes();
+        this.spillThreshold = Math.toIntExact(spillThreshold.toBytes());
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public boolean isMultipart(HttpServletRequest request) {
+        return StringUtils.startsWithIgnoreCase(request.getContentType(), "multipart/");
+    }
+
+    @Override
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(maxFileSize);
+        upload.setSizeMax(maxRequestSize);
+
+        MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<>();
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        Map<String, String> contentTypes = new LinkedHashMap<>();
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+        try {
+            FileItemInputIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                try (InputStream content = item.getInputStream()) {
+                    if (item.isFormField()) {
+                        String value = new String(content.readAllBytes(), charset);
+                        parameters.merge(item.getFieldName(), new String[] { value }, StreamingMultipartResolver::append);
+                    } else {
+                        files.add(item.getFieldName(), ingest(item.getFieldName(), item.getName(),
+                                item.getContentType(), declaredLength(item), content));
+                        contentTypes.put(item.getFieldName(), item.getContentType());
+                    }
+                }
+            }
+        } catch (FileUploadSizeException e) {
+            release(files);
+            throw new MaxUploadSizeExceededException(e.getPermitted(), e);
+        } catch (IOException | RuntimeException e) {
+            release(files);
+            throw new MultipartException("Failed to parse multipart request", e);
+        }
+        return new DefaultMultipartHttpServletRequest(request, files, parameters, contentTypes);
+    }
+
+    @Override
+    public void cleanupMultipart(MultipartHttpServletRequest request) {
+        release(request.getMultiFileMap());
+    }
+
+    /**
+     * Reads a file part to the end, hashing it and keeping it in memory or in a mapped spill file.
+     *
+     * @param name             the form field name
+     * @param originalFilename the file name sent by the client
+     * @param contentType      the content type of the part
+     * @param declaredLength   the size the part declared in its headers, or {@code -1} if it declared none
+     * @param content          the part content, read exactly once
+     * @return the ingested file; it must be closed to release its memory or spill file
+     * @throws IOException if the part cannot be read or spilled
+     */
+    IngestedMultipartFile ingest(String name, String originalFilename, String contentType, long declaredLength,
+            InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        // One byte more than the threshold tells a part of exactly the threshold size from a larger one.
+        int limit = spillThreshold + 1;
+        // The buffer starts at the declared size, or one chunk, and only grows with the part, so a
+        // small upload never borrows a threshold-sized array.
+        PooledBuffer buffer = bufferPool.acquire(declaredLength >= 0
+                ? (int) Math.min(declaredLength + 1, limit)
+                : Math.min(COPY_CHUNK, limit));
+        try {
+            int length = 0;
+            while (length < limit) {
+                if (length == buffer.capacity()) {
+                    buffer = grow(buffer, length, limit);
+                }
+                int read = content.read(buffer.array(), length, Math.min(buffer.capacity(), limit) - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+            digest.update(buffer.array(), 0, length);
+            if (length <= spillThreshold) {
+                return new IngestedMultipartFile(name, originalFilename, contentType,
+                        HexFormat.of().formatHex(digest.digest()), ByteBuffer.wrap(buffer.array(), 0, length),
+                        buffer, null);
+            }
+            return spill(name, originalFilename, contentType, content, digest, buffer, length);
+        } catch (IOException | RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves the bytes read so far into a buffer twice as large, at most {@code limit} bytes.
+     */
+    private PooledBuffer grow(PooledBuffer buffer, int length, int limit) {
+        PooledBuffer larger = bufferPool.acquire((int) Math.min((long) buffer.capacity() * 2, limit));
+        System.arraycopy(buffer.array(), 0, larger.array(), 0, length);
+        buffer.close();
+        return larger;
+    }
+
+    private static long declaredLength(FileItemInput item) {
+        String length = item.getHeaders() == null ? null : item.getHeaders().getHeader("Content-Length");
+        if (length == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private IngestedMultipartFile spill(String name, String originalFilename, String contentType, InputStream content,
+            MessageDigest digest, PooledBuffer buffer, int buffered) throws IOException {
+        Path file = Files.createTempFile(spillDirectory, "screening-upload-", ".part");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            write(channel, ByteBuffer.wrap(buffer.array(), 0, buffered));
+            buffer.close();
+            try (PooledBuffer chunk = bufferPool.acquire(COPY_CHUNK)) {
+                int read;
+                while ((read = content.read(chunk.array(), 0, chunk.capacity())) != -1) {
+                    digest.update(chunk.array(), 0, read);
+                    write(channel, ByteBuffer.wrap(chunk.array(), 0, read));
+                }
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            logger.debug("Spilled upload {} of {} bytes to {}", originalFilename, channel.size(), file);
+            return new IngestedMultipartFile(name, originalFilename, contentType,
+                    HexFormat.of().formatHex(digest.digest()), mapped, null, file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static void release(MultiValueMap<String, MultipartFile> files) {
+        for (List<MultipartFile> parts : files.values()) {
+            for (MultipartFile part : parts) {
+                if (part instanceof IngestedMultipartFile ingested) {
+                    try {
+                        ingested.close();
+                    } catch (IOException e) {
+                        logger.warn("Could not release upload {}", ingested.getOriginalFilename(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String[] append(String[] existing, String[] added) {
+        String[] merged = new String[existing.length + added.length];
+        System.arraycopy(existing, 0, merged, 0, existing.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,4 +1,4 @@
 @org.springframework.modulith.ApplicationModule(
-    allowedDependencies = {"s3::exposed"}
+    allowedDependencies = {"s3::exposed", "common"}
 )
 package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
@@ -0,0 +1,32 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Derives object keys from the content of the object.
+ */
+final class ContentAddress {
+
+    static final String KEY_PREFIX = "sha256-";
+
+    private ContentAddress() {
+    }
+
+    /**
+     * @param content   the bytes of the object; its position is left unchanged
+     * @param extension the extension of the key, such as {@code .png}
+     * @return {@value #KEY_PREFIX} followed by the lowercase hexadecimal SHA-256 of the content
+     */
+    static String keyOf(ByteBuffer content, String extension) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.duplicate());
+            return KEY_PREFIX + HexFormat.of().formatHex(digest.digest()) + extension;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * An object deletion recorded in the same transaction as the rows that referenced the object, and
+ * carried out later by the {@link ImageDeletionDispatcher}. The row is removed once the object is
+ * gone.
+ */
+@Data
+@Entity
+@Table(name = "image_deletion_outbox", indexes = {
+        @Index(name = "idx_image_deletion_available", columnList = "available_at"),
+        @Index(name = "idx_image_deletion_object_key", columnList = "object_key")
+})
+public class ImageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "object_key", length = 1024, nullable = false)
+    private String objectKey;
+
+    /** Number of failed deletion attempts. */
+    @Column(nullable = false)
+    private int attempts;
+
+    /** Earliest time the dispatcher may try again; pushed back after each failure. */
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    /** The last failure, kept while the deletion is retried. */
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,84 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+
+/**
+ * Carries out the deletions recorded in the {@link ImageDeletionOutbox} in the background.
+ * <p>
+ * A poller dispatches batches back to back while the outbox has a full batch due, and otherwise
+ * waits {@code IMAGE_DELETION_POLL_MS}. Every node runs one; the outbox skips rows locked by other
+ * nodes, so they share the backlog.
+ * </p>
+ */
+@Component
+public class ImageDeletionDispatcher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDeletionDispatcher.class);
+
+    private final ImageDeletionOutbox outbox;
+    private final S3Service s3Service;
+    private final long pollMillis;
+
+    private volatile boolean running;
+    private Thread poller;
+
+    public ImageDeletionDispatcher(ImageDeletionOutbox outbox, S3Service s3Service,
+            @Value("${IMAGE_DELETION_POLL_MS:5000}") long pollMillis) {
+        this.outbox = outbox;
+        this.s3Service = s3Service;
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        poller = Thread.ofVirtual().name("image-deletion-dispatcher").start(this::poll);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        poller.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Dispatches one batch of due deletions.
+     *
+     * @return {@code true} if the batch was full and more deletions may be due
+     */
+    boolean dispatchOnce() {
+        return outbox.dispatchOnce(s3Service::deleteImages) >= outbox.batchSize();
+    }
+
+    private void poll() {
+        while (running) {
+            boolean more = false;
+            try {
+                more = dispatchOnce();
+            } catch (RuntimeException e) {
+                logger.error("Could not dispatch image deletions: " + e.getMessage());
+            }
+            if (!more) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
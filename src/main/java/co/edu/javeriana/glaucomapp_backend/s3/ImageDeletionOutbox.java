@@ -0,0 +1,146 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+
+/**
+ * Records object deletions in the {@code image_deletion_outbox} table and carries them out in
+ * batches.
+ * <p>
+ * {@link #record(Collection)} joins the caller's transaction, so a deletion exists only if the rows
+ * that referenced the object were removed, and requests no longer wait for the object store.
+ * {@link #dispatchOnce(Function)} deletes up to {@code IMAGE_DELETION_BATCH_SIZE} due objects and
+ * removes their rows; failed objects are retried after {@code IMAGE_DELETION_BACKOFF_MS}, doubled on
+ * every further failure up to {@code IMAGE_DELETION_MAX_BACKOFF_MS}. The number of pending deletions
+ * is published as the {@code image.deletion.backlog} gauge.
+ * </p>
+ */
+@Component
+public class ImageDeletionOutbox {
+
+    private final ImageDeletionRepository repository;
+    private final int batchSize;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter deleted;
+    private final Counter failed;
+
+    public ImageDeletionOutbox(ImageDeletionRepository repository, MeterRegistry meterRegistry,
+            @Value("${IMAGE_DELETION_BATCH_SIZE:1000}") int batchSize,
+            @Value("${IMAGE_DELETION_BACKOFF_MS:5000}") long backoffMillis,
+            @Value("${IMAGE_DELETION_MAX_BACKOFF_MS:3600000}") long maxBackoffMillis) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.deleted = Counter.builder("image.deletion.deleted").register(meterRegistry);
+        this.failed = Counter.builder("image.deletion.failed").register(meterRegistry);
+        Gauge.builder("image.deletion.backlog", backlog, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Records objects to delete once the current transaction commits.
+     *
+     * @param objectKeys the object keys; {@code null} keys are ignored
+     */
+    @Transactional
+    public void record(Collection<String> objectKeys) {
+        Instant now = Instant.now();
+        List<ImageDeletion> deletions = objectKeys.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(key -> {
+                    ImageDeletion deletion = new ImageDeletion();
+                    deletion.setObjectKey(key);
+                    deletion.setAvailableAt(now);
+                    deletion.setCreatedAt(now);
+                    return deletion;
+                })
+                .toList();
+        if (!deletions.isEmpty()) {
+            repository.saveAll(deletions);
+            backlog.addAndGet(deletions.size());
+        }
+    }
+
+    /**
+     * Drops the pending deletions of an object that is referenced again. A deletion the dispatcher
+     * is carrying out holds its row, so this waits for it to finish.
+     *
+     * @param objectKey the object key
+     */
+    @Transactional
+    public void cancel(String objectKey) {
+        int cancelled = repository.deleteByObjectKey(objectKey);
+        if (cancelled > 0) {
+            backlog.addAndGet(-cancelled);
+        }
+    }
+
+    /**
+     * Deletes one batch of due objects.
+     *
+     * @param deleter deletes the given keys and returns the ones that failed with the reason
+     * @return the number of deletions attempted
+     */
+    @Transactional
+    public int dispatchOnce(Function<Collection<String>, Map<String, String>> deleter) {
+        Instant now = Instant.now();
+        List<ImageDeletion> due = repository.lockDue(now, PageRequest.of(0, batchSize));
+        if (!due.isEmpty()) {
+            Map<String, String> failures;
+            try {
+                failures = deleter.apply(due.stream().map(ImageDeletion::getObjectKey).toList());
+            } catch (RuntimeException e) {
+                String error = "Error deleting file: " + e.getMessage();
+                failures = due.stream().collect(Collectors.toMap(
+                        ImageDeletion::getObjectKey, deletion -> error, (first, second) -> first));
+            }
+            for (ImageDeletion deletion : due) {
+                String error = failures.get(deletion.getObjectKey());
+                if (error == null) {
+                    repository.delete(deletion);
+                    deleted.increment();
+                } else {
+                    deletion.setAttempts(deletion.getAttempts() + 1);
+                    deletion.setAvailableAt(now.plus(backoff(deletion.getAttempts())));
+                    deletion.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+                    failed.increment();
+                }
+            }
+        }
+        backlog.set(repository.count());
+        return due.size();
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    long backlog() {
+        return backlog.get();
+    }
+
+    private Duration backoff(int attempts) {
+        long millis = backoffMillis << Math.min(attempts - 1, 30);
+        return Duration.ofMillis(millis <= 0 ? maxBackoffMillis : Math.min(millis, maxBackoffMillis));
+    }
+}
@@ -0,0 +1,47 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository for the object deletion outbox.
+ */
+@Repository
+public interface ImageDeletionRepository extends JpaRepository<ImageDeletion, UUID> {
+
+    /**
+     * Locks the oldest deletions that are due, skipping rows locked by the dispatcher of another
+     * node so that nodes never delete the same batch twice.
+     *
+     * @param now      the current time
+     * @param pageable the maximum number of deletions to lock
+     * @return the locked deletions, oldest first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select d from ImageDeletion d where d.availableAt <= :now order by d.availableAt")
+    List<ImageDeletion> lockDue(@Param("now") Instant now, Pageable pageable);
+
+    /**
+     * Removes the pending deletions of an object.
+     *
+     * @param objectKey the object key
+     * @return the number of deletions removed
+     */
+    @Modifying
+    @Query("delete from ImageDeletion d where d.objectKey = :objectKey")
+    int deleteByObjectKey(@Param("objectKey") String objectKey);
+}
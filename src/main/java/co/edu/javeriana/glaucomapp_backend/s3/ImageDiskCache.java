@@ -0,0 +1,248 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * A read-through cache of stored images on local disk, in front of S3 reads.
+ * <p>
+ * A miss downloads the object into {@code IMAGE_CACHE_DIR}; hits memory-map the cached file once and
+ * hand out read-only views of the mapping, so repeated reads neither go to S3 nor copy the bytes
+ * onto the heap. The cache holds at most {@code IMAGE_CACHE_MAX_MB}, evicting the least recently
+ * used images first, and an image older than {@code IMAGE_CACHE_MAX_AGE_MINUTES} is fetched again.
+ * Object keys are never reused for different content, so cached images are not revalidated; they
+ * are dropped when the object is deleted. The index lives in memory, so each instance keeps its files
+ * in a directory of its own under {@code IMAGE_CACHE_DIR}, created on startup and deleted on
+ * shutdown; processes sharing the base directory never touch each other's files. Hits, misses, evictions and the cached bytes are published as {@code image.cache.*}
+ * metrics.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "STORAGE_BACKEND", havingValue = "s3", matchIfMissing = true)
+public class ImageDiskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDiskCache.class);
+
+    /**
+     * Downloads an object into a file.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * @param key    the object key
+         * @param target the file to write the object to
+         * @return the content type and entity tag of the object, or empty if it does not exist
+         */
+        Optional<Metadata> load(String key, Path target) throws IOException;
+    }
+
+    /**
+     * @param contentType the content type of the object
+     * @param etag        the entity tag of the object
+     */
+    public record Metadata(String contentType, String etag) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong fileCounter = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public ImageDiskCache(MeterRegistry meterRegistry,
+            @Value("${IMAGE_CACHE_DIR:${java.io.tmpdir}/glaucomapp-image-cache}") String directory,
+            @Value("${IMAGE_CACHE_MAX_MB:512}") long maxMegabytes,
+            @Value("${IMAGE_CACHE_MAX_AGE_MINUTES:1440}") long maxAgeMinutes) throws IOException {
+        this(meterRegistry, Path.of(directory), maxMegabytes * 1024 * 1024, Duration.ofMinutes(maxAgeMinutes),
+                Clock.systemUTC());
+    }
+
+    ImageDiskCache(MeterRegistry meterRegistry, Path directory, long maxBytes, Duration maxAge, Clock clock)
+            throws IOException {
+        this.directory = Files.createTempDirectory(Files.createDirectories(directory), "cache-");
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.hits = Counter.builder("image.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("image.cache.misses").register(meterRegistry);
+        this.evictions = Counter.builder("image.cache.evictions").register(meterRegistry);
+        Gauge.builder("image.cache.bytes", cachedBytes, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Returns a cached image, or loads it into the cache first.
+     *
+     * @param key    the object key
+     * @param loader downloads the object on a miss
+     * @return the image, or empty if the loader did not find it
+     */
+    public Optional<StoredImage> get(String key, Loader loader) {
+        Instant now = clock.instant();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now.isBefore(entry.loadedAt().plus(maxAge))) {
+                hits.increment();
+                return Optional.of(entry.toImage(key));
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        }
+        misses.increment();
+        Path file = directory.resolve(fileCounter.incrementAndGet() + ".img");
+        try {
+            Optional<Metadata> metadata = loader.load(key, file);
+            if (metadata.isEmpty()) {
+                Files.deleteIfExists(file);
+                return Optional.empty();
+            }
+            Entry entry = new Entry(file, map(file), metadata.get(), now);
+            List<Path> evicted = put(key, entry);
+            evicted.forEach(ImageDiskCache::deleteQuietly);
+            return Optional.of(entry.toImage(key));
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops a cached image, so that a deleted object is never served from the cache.
+     *
+     * @param key the object key
+     */
+    public void invalidate(String key) {
+        Path file;
+        synchronized (entries) {
+            file = remove(key);
+        }
+        if (file != null) {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Deletes the cached files and the directory of this instance.
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (entries) {
+            entries.clear();
+            cachedBytes.set(0);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(ImageDiskCache::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Could not list cached images in " + directory + ": " + e.getMessage());
+        }
+        deleteQuietly(directory);
+    }
+
+    long cachedBytes() {
+        return cachedBytes.get();
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Adds an entry and evicts the least recently used ones beyond the byte budget.
+     *
+     * @return the files of the replaced and evicted entries, deleted by the caller outside the lock
+     */
+    private List<Path> put(String key, Entry entry) {
+        List<Path> removed = new ArrayList<>();
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                cachedBytes.addAndGet(-previous.size());
+                removed.add(previous.file());
+            }
+            cachedBytes.addAndGet(entry.size());
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (cachedBytes.get() > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> candidate = eldest.next();
+                if (candidate.getValue() == entry) {
+                    continue;
+                }
+                eldest.remove();
+                cachedBytes.addAndGet(-candidate.getValue().size());
+                removed.add(candidate.getValue().file());
+                evictions.increment();
+            }
+        }
+        return removed;
+    }
+
+    private Path remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        cachedBytes.addAndGet(-entry.size());
+        return entry.file();
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete cached image " + file + ": " + e.getMessage());
+        }
+    }
+
+    private record Entry(Path file, MappedByteBuffer mapping, Metadata metadata, Instant loadedAt) {
+
+        long size() {
+            return mapping.capacity();
+        }
+
+        StoredImage toImage(String key) {
+            return new StoredImage(key, metadata.contentType(), metadata.etag(), mapping.asReadOnlyBuffer());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The number of records that refer to a stored object. Content-addressed objects are shared by
+ * every record whose image has the same bytes, so an object is only deleted once its count drops to
+ * zero. Objects without a row have a single reference.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "image_reference")
+public class ImageReference {
+
+    @Id
+    @Column(name = "object_key", length = 1024)
+    private String objectKey;
+
+    @Column(name = "reference_count", nullable = false)
+    private int referenceCount;
+
+    public ImageReference(String objectKey, int referenceCount) {
+        this.objectKey = objectKey;
+        this.referenceCount = referenceCount;
+    }
+}
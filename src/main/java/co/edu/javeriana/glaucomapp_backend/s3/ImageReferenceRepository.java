@@ -0,0 +1,42 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository for the reference counts of stored objects.
+ */
+@Repository
+public interface ImageReferenceRepository extends JpaRepository<ImageReference, String> {
+
+    /**
+     * Creates an empty reference count for an object unless it has one, without failing when a
+     * concurrent transaction creates it first.
+     *
+     * @param objectKey the object key
+     * @return 1 if the count was created, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = "insert into image_reference (object_key, reference_count) values (:objectKey, 0) "
+            + "on conflict do nothing", nativeQuery = true)
+    int createIfMissing(@Param("objectKey") String objectKey);
+
+    /**
+     * Locks the reference count of an object, so that a reference taken while the last one is being
+     * dropped waits for the drop to commit.
+     *
+     * @param objectKey the object key
+     * @return the locked reference count, or empty if the object has none recorded
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from ImageReference r where r.objectKey = :objectKey")
+    Optional<ImageReference> lockByKey(@Param("objectKey") String objectKey);
+}
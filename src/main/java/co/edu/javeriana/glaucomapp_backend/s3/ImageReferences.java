@@ -0,0 +1,80 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.transaction.Transactional;
+
+/**
+ * Counts the references to stored objects in the {@code image_reference} table.
+ * <p>
+ * Both operations lock the row of the object and join the caller's transaction, so taking and
+ * dropping references to the same object are serialized. The row of a first reference is inserted
+ * before it is locked, so concurrent first references queue on the same row instead of both
+ * inserting it. Taking the first reference to an object cancels a deletion still waiting in the
+ * {@link ImageDeletionOutbox}.
+ * </p>
+ */
+@Component
+public class ImageReferences {
+
+    private final ImageReferenceRepository repository;
+    private final ImageDeletionOutbox imageDeletionOutbox;
+
+    public ImageReferences(ImageReferenceRepository repository, ImageDeletionOutbox imageDeletionOutbox) {
+        this.repository = repository;
+        this.imageDeletionOutbox = imageDeletionOutbox;
+    }
+
+    /**
+     * Adds a reference to an object.
+     *
+     * @param objectKey the object key
+     */
+    @Transactional
+    public void retain(String objectKey) {
+        Optional<ImageReference> reference = Optional.empty();
+        while (reference.isEmpty()) {
+            // A release may drop the row between the insert and the lock; insert it again then
+            repository.createIfMissing(objectKey);
+            reference = repository.lockByKey(objectKey);
+        }
+        int referenceCount = reference.get().getReferenceCount();
+        reference.get().setReferenceCount(referenceCount + 1);
+        if (referenceCount == 0) {
+            imageDeletionOutbox.cancel(objectKey);
+        }
+    }
+
+    /**
+     * Drops one reference per occurrence of each key.
+     *
+     * @param objectKeys the object keys; {@code null} keys are ignored
+     * @return the keys no longer referenced, which may be deleted
+     */
+    @Transactional
+    public List<String> release(Collection<String> objectKeys) {
+        Map<String, Long> releases = objectKeys.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        List<String> unreferenced = new ArrayList<>();
+        releases.forEach((objectKey, count) -> {
+            Optional<ImageReference> reference = repository.lockByKey(objectKey);
+            if (reference.isEmpty() || reference.get().getReferenceCount() <= count) {
+                reference.ifPresent(repository::delete);
+                unreferenced.add(objectKey);
+            } else {
+                reference.get().setReferenceCount(reference.get().getReferenceCount() - count.intValue());
+            }
+        });
+        return unreferenced;
+    }
+}
@@ -0,0 +1,58 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.NoSuchFileException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the objects of the {@link LocalStorageService} through the presigned URLs it issues. The
+ * signature is the only credential, like an S3 presigned URL.
+ */
+@RestController
+@ConditionalOnProperty(name = "STORAGE_BACKEND", havingValue = "local")
+public class LocalStorageController {
+
+    static final String PATH = "/storage";
+
+    private final LocalStorageService localStorageService;
+
+    public LocalStorageController(LocalStorageService localStorageService) {
+        this.localStorageService = localStorageService;
+    }
+
+    /**
+     * Captures the rest of the path so that keys under a prefix, such as {@code staging/}, resolve
+     * too; the capture starts with the separating slash.
+     */
+    @GetMapping(PATH + "/{*objectKey}")
+    public void getObject(@PathVariable("objectKey") String path, @RequestParam long expires,
+            @RequestParam String signature, HttpServletResponse response) throws IOException {
+        String objectKey = path.startsWith("/") ? path.substring(1) : path;
+        if (!localStorageService.verify(objectKey, expires, signature)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        long size;
+        String contentType;
+        try {
+            size = localStorageService.size(objectKey);
+            contentType = localStorageService.contentType(objectKey);
+        } catch (NoSuchFileException | IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType(contentType);
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=300");
+        localStorageService.transferTo(objectKey, Channels.newChannel(response.getOutputStream()));
+    }
+}
@@ -0,0 +1,429 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledByteArrayOutputStream;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredObject;
+
+/**
+ * Stores images on the local filesystem instead of S3, for on-premises clinics and for running the
+ * application without AWS. Enabled with {@code STORAGE_BACKEND=local}.
+ * <p>
+ * Objects are files under {@code LOCAL_STORAGE_ROOT}, written through a {@link FileChannel} to a
+ * temporary file that is then moved into place, so readers never see a partial image. The content
+ * type is kept in a {@value #CONTENT_TYPE_SUFFIX} sidecar next to each object. Presigned URLs point
+ * to {@link LocalStorageController} under {@code LOCAL_STORAGE_BASE_URL} and carry an expiry and an
+ * HMAC-SHA256 signature keyed with {@code LOCAL_STORAGE_SIGNING_KEY}; every node serving the same
+ * directory must share that key.
+ * </p>
+ */
+@Service
+@ConditionalOnProperty(name = "STORAGE_BACKEND", havingValue = "local")
+public class LocalStorageService implements S3Service {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStorageService.class);
+
+    static final String CONTENT_TYPE_SUFFIX = ".content-type";
+
+    private static final String TEMPORARY_PREFIX = ".upload-";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Path root;
+    private final String baseUrl;
+    private final SecretKeySpec signingKey;
+    private final BufferPool bufferPool;
+    private final PresignedUrlCache presignedUrlCache;
+    private final ImageDeletionOutbox imageDeletionOutbox;
+    private final ImageReferences imageReferences;
+    private final Clock clock;
+
+    @Autowired
+    public LocalStorageService(BufferPool bufferPool, PresignedUrlCache presignedUrlCache,
+            ImageDeletionOutbox imageDeletionOutbox, ImageReferences imageReferences,
+            @Value("${LOCAL_STORAGE_ROOT:storage}") String root,
+            @Value("${LOCAL_STORAGE_BASE_URL:http://localhost:8080}") String baseUrl,
+            @Value("${LOCAL_STORAGE_SIGNING_KEY:}") String signingKey) throws IOException {
+        this(bufferPool, presignedUrlCache, imageDeletionOutbox, imageReferences, Path.of(root), baseUrl, signingKey,
+                Clock.systemUTC());
+    }
+
+    LocalStorageService(BufferPool bufferPool, PresignedUrlCache presignedUrlCache,
+            ImageDeletionOutbox imageDeletionOutbox, ImageReferences imageReferences, Path root, String baseUrl,
+            String signingKey, Clock clock) throws IOException {
+        this.bufferPool = bufferPool;
+        this.presignedUrlCache = presignedUrlCache;
+        this.imageDeletionOutbox = imageDeletionOutbox;
+        this.imageReferences = imageReferences;
+        this.root = Files.createDirectories(root).toRealPath();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.signingKey = new SecretKeySpec(signingKeyBytes(signingKey), HMAC_ALGORITHM);
+        this.clock = clock;
+    }
+
+    @Override
+    public String generatePresignedUrl(String objectKey) {
+        return presignedUrlCache.get(objectKey, this::presign);
+    }
+
+    @Override
+    public String uploadImage(BufferedImage image, String fileName) {
+        try (PooledByteArrayOutputStream png = encode(image)) {
+            write(fileName, png.toByteBuffer(), "image/png");
+            return objectUrl(fileName);
+        } catch (IOException | IllegalArgumentException e) {
+            return "Error uploading file: " + e.getMessage();
+        }
+    }
+
+    @Override
+    public String uploadImageByContent(BufferedImage image, String prefix) {
+        try (PooledByteArrayOutputStream png = encode(image)) {
+            String name = ContentAddress.keyOf(png.toByteBuffer(), ".png");
+            if (STAGING_PREFIX.equals(prefix) && Files.exists(resolve(name))) {
+                return name;
+            }
+            String key = prefix + name;
+            if (!Files.exists(resolve(key))) {
+                write(key, png.toByteBuffer(), "image/png");
+            }
+            return key;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the stored file directly; the filesystem is already local, so no cache sits in front of it.
+     * The entity tag is derived from the size and modification time of the file.
+     */
+    @Override
+    public Optional<StoredImage> getImage(String fileName) {
+        try {
+            Path path = resolve(fileName);
+            MappedByteBuffer mapping;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            String etag = "\"" + Long.toHexString(mapping.capacity()) + "-"
+                    + Long.toHexString(Files.getLastModifiedTime(path).toMillis()) + "\"";
+            return Optional.of(new StoredImage(fileName, contentType(fileName), etag, mapping.asReadOnlyBuffer()));
+        } catch (NoSuchFileException | IllegalArgumentException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String deleteImage(String fileName) {
+        presignedUrlCache.invalidate(fileName);
+        try {
+            delete(fileName);
+            return "File deleted successfully: " + fileName;
+        } catch (IOException | IllegalArgumentException e) {
+            return "Error deleting file: " + e.getMessage();
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteImages(Collection<String> fileNames) {
+        Map<String, String> failures = new HashMap<>();
+        fileNames.stream().filter(Objects::nonNull).distinct().forEach(fileName -> {
+            presignedUrlCache.invalidate(fileName);
+            try {
+                delete(fileName);
+            } catch (IOException | IllegalArgumentException e) {
+                failures.put(fileName, "Error deleting file: " + e.getMessage());
+            }
+        });
+        return failures;
+    }
+
+    @Override
+    public void scheduleDeletion(Collection<String> fileNames) {
+        fileNames.stream().filter(Objects::nonNull).forEach(presignedUrlCache::invalidate);
+        imageDeletionOutbox.record(fileNames);
+    }
+
+    /**
+     * Staged images are renamed into place, so nothing is left behind to delete.
+     */
+    @Override
+    public String promote(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        if (!fileName.startsWith(STAGING_PREFIX)) {
+            imageReferences.retain(fileName);
+            // Una imagen reutilizada sin referencias pudo eliminarse antes de que la referencia cancelara su borrado
+            if (!Files.exists(resolve(fileName))) {
+                throw new IllegalArgumentException("The image " + fileName + " expired before the exam was saved");
+            }
+            return fileName;
+        }
+        String key = fileName.substring(STAGING_PREFIX.length());
+        imageReferences.retain(key);
+        presignedUrlCache.invalidate(fileName);
+        try {
+            Path staged = resolve(fileName);
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            if (Files.exists(sidecar(staged))) {
+                move(sidecar(staged), sidecar(target));
+            }
+            move(staged, target);
+        } catch (NoSuchFileException e) {
+            if (!Files.exists(resolve(key))) {
+                throw new IllegalArgumentException("The image " + fileName + " expired before the exam was saved");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return key;
+    }
+
+    @Override
+    public void release(Collection<String> fileNames) {
+        scheduleDeletion(imageReferences.release(fileNames));
+    }
+
+    @Override
+    public int purgeStaged(Instant stagedBefore) {
+        Path staging = root.resolve(STAGING_PREFIX);
+        if (!Files.isDirectory(staging)) {
+            return 0;
+        }
+        List<Path> expired;
+        try (Stream<Path> files = Files.walk(staging)) {
+            expired = files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(CONTENT_TYPE_SUFFIX))
+                    .filter(path -> lastModified(path).isBefore(stagedBefore))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> keys = expired.stream().map(this::key).toList();
+        return keys.size() - deleteImages(keys).size();
+    }
+
+    /**
+     * Directory walks are not ordered, so the listing is sorted in memory before it is returned.
+     */
+    @Override
+    public Stream<StoredObject> listImages() {
+        List<StoredObject> objects;
+        try (Stream<Path> files = Files.walk(root)) {
+            objects = files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(CONTENT_TYPE_SUFFIX))
+                    .filter(path -> !path.getFileName().toString().startsWith(TEMPORARY_PREFIX))
+                    .map(path -> new StoredObject(key(path), lastModified(path)))
+                    .sorted(Comparator.comparing(StoredObject::key))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return objects.stream();
+    }
+
+    /**
+     * Checks the expiry and signature of a presigned URL.
+     *
+     * @param objectKey the object key
+     * @param expires   the expiry in epoch seconds
+     * @param signature the signature of the URL
+     * @return {@code true} if the URL was issued by a node sharing the signing key and has not expired
+     */
+    public boolean verify(String objectKey, long expires, String signature) {
+        if (clock.instant().getEpochSecond() > expires) {
+            return false;
+        }
+        byte[] expected = sign(objectKey, expires).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param objectKey the object key
+     * @return the size of the object in bytes
+     * @throws NoSuchFileException if the object does not exist
+     */
+    public long size(String objectKey) throws IOException {
+        return Files.size(resolve(objectKey));
+    }
+
+    /**
+     * @param objectKey the object key
+     * @return the content type recorded when the object was stored
+     */
+    public String contentType(String objectKey) throws IOException {
+        Path sidecar = sidecar(resolve(objectKey));
+        return Files.exists(sidecar) ? Files.readString(sidecar, StandardCharsets.US_ASCII).trim() : "application/octet-stream";
+    }
+
+    /**
+     * Copies an object to a channel with {@link FileChannel#transferTo}, which lets the kernel move the
+     * bytes without copying them through the heap where the target allows it.
+     *
+     * @param objectKey the object key
+     * @param target    the channel to write to
+     * @throws NoSuchFileException if the object does not exist
+     */
+    public void transferTo(String objectKey, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(objectKey), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    private PooledByteArrayOutputStream encode(BufferedImage image) throws IOException {
+        PooledByteArrayOutputStream png = new PooledByteArrayOutputStream(bufferPool, image.getWidth() * image.getHeight());
+        try {
+            try (ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(png)) {
+                ImageIO.write(image, "png", imageOutput);
+            }
+            return png;
+        } catch (IOException | RuntimeException e) {
+            png.close();
+            throw e;
+        }
+    }
+
+    private void write(String objectKey, ByteBuffer content, String contentType) throws IOException {
+        Path target = resolve(objectKey);
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), TEMPORARY_PREFIX, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+            }
+            Files.writeString(sidecar(target), contentType, StandardCharsets.US_ASCII);
+            move(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void delete(String objectKey) throws IOException {
+        Path target = resolve(objectKey);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(sidecar(target));
+    }
+
+    private String presign(String objectKey) {
+        long expires = clock.instant().plus(presignedUrlCache.validity()).getEpochSecond();
+        return objectUrl(objectKey) + "?expires=" + expires + "&signature=" + sign(objectKey, expires);
+    }
+
+    private String objectUrl(String objectKey) {
+        return baseUrl + LocalStorageController.PATH + "/" + UriUtils.encodePath(objectKey, StandardCharsets.UTF_8);
+    }
+
+    private String sign(String objectKey, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            byte[] digest = mac.doFinal((objectKey + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign local storage URL", e);
+        }
+    }
+
+    /**
+     * Resolves an object key inside the storage root, rejecting keys that would escape it or name a
+     * sidecar.
+     */
+    private Path resolve(String objectKey) {
+        Path path = root.resolve(objectKey).normalize();
+        if (!path.startsWith(root) || path.equals(root) || objectKey.endsWith(CONTENT_TYPE_SUFFIX)) {
+            throw new IllegalArgumentException("Invalid object key: " + objectKey);
+        }
+        return path;
+    }
+
+    private String key(Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static Instant lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant();
+        } catch (IOException e) {
+            // A file deleted during the walk no longer needs purging
+            return Instant.MAX;
+        }
+    }
+
+    private static Path sidecar(Path object) {
+        return object.resolveSibling(object.getFileName() + CONTENT_TYPE_SUFFIX);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] signingKeyBytes(String signingKey) {
+        if (signingKey != null && !signingKey.isBlank()) {
+            return signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        logger.warn("LOCAL_STORAGE_SIGNING_KEY is not set; using a random key, so presigned URLs stop working"
+                + " after a restart and are only valid on this node");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
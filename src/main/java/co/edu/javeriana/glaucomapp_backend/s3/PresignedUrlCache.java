@@ -0,0 +1,127 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A bounded cache of presigned GET URLs keyed by object key.
+ * <p>
+ * Exam listings presign the image of every row on every request, and each signature is an HMAC
+ * chain. A URL stays valid for {@code S3_PRESIGN_VALIDITY_MINUTES}, so it is reused until
+ * {@code S3_PRESIGN_REFRESH_FRACTION} of that validity has elapsed and signed again afterwards.
+ * Clients therefore always receive a URL with at least the remaining fraction of its validity left.
+ * At most {@code S3_PRESIGN_CACHE_SIZE} keys are kept, evicting the least recently used one.
+ * </p>
+ * <p>
+ * Signing happens outside the lock, so two requests that miss on the same key at the same time may
+ * both sign it; the last URL wins, and both are valid.
+ * </p>
+ */
+@Component
+public class PresignedUrlCache {
+
+    private final Duration validity;
+    private final Duration reuseFor;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param meterRegistry   registry the cache metrics are published to
+     * @param validityMinutes how long a presigned URL is valid
+     * @param refreshFraction fraction of the validity after which a cached URL is signed again
+     * @param maxEntries      largest number of object keys kept
+     */
+    @Autowired
+    public PresignedUrlCache(MeterRegistry meterRegistry,
+            @Value("${S3_PRESIGN_VALIDITY_MINUTES:60}") long validityMinutes,
+            @Value("${S3_PRESIGN_REFRESH_FRACTION:0.5}") double refreshFraction,
+            @Value("${S3_PRESIGN_CACHE_SIZE:10000}") int maxEntries) {
+        this(meterRegistry, Duration.ofMinutes(validityMinutes), refreshFraction, maxEntries, Clock.systemUTC());
+    }
+
+    PresignedUrlCache(MeterRegistry meterRegistry, Duration validity, double refreshFraction, int maxEntries,
+            Clock clock) {
+        if (refreshFraction <= 0 || refreshFraction > 1) {
+            throw new IllegalArgumentException("S3_PRESIGN_REFRESH_FRACTION must be in (0, 1]: " + refreshFraction);
+        }
+        this.validity = validity;
+        this.reuseFor = Duration.ofMillis((long) (validity.toMillis() * refreshFraction));
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("s3.presign.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("s3.presign.cache.misses").register(meterRegistry);
+        Gauge.builder("s3.presign.cache.size", this, PresignedUrlCache::size).register(meterRegistry);
+    }
+
+    /**
+     * @return how long the URLs passed to {@link #get(String, Function)} must be signed for
+     */
+    public Duration validity() {
+        return validity;
+    }
+
+    /**
+     * Returns the cached URL of an object, or signs and caches a new one if there is none or it is
+     * due for renewal.
+     *
+     * @param objectKey the object key
+     * @param signer    signs a URL for the object key, valid for {@link #validity()}
+     * @return a URL with at least the remaining fraction of its validity left
+     */
+    public String get(String objectKey, Function<String, String> signer) {
+        Instant now = clock.instant();
+        synchronized (entries) {
+            Entry entry = entries.get(objectKey);
+            if (entry != null && now.isBefore(entry.renewAt())) {
+                hits.increment();
+                return entry.url();
+            }
+        }
+        misses.increment();
+        String url = signer.apply(objectKey);
+        synchronized (entries) {
+            entries.put(objectKey, new Entry(url, now.plus(reuseFor)));
+        }
+        return url;
+    }
+
+    /**
+     * Drops the URL of an object, so that a deleted object is never served from the cache.
+     *
+     * @param objectKey the object key
+     */
+    public void invalidate(String objectKey) {
+        synchronized (entries) {
+            entries.remove(objectKey);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(String url, Instant renewAt) {
+    }
+}
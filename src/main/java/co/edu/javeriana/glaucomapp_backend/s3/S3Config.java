@@ -1,17 +1,26 @@
 package co.edu.javeriana.glaucomapp_backend.s3;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 @Configuration
+@ConditionalOnProperty(name = "STORAGE_BACKEND", havingValue = "s3", matchIfMissing = true)
 public class S3Config {
 
     @Value("${AWS_ACCESS_KEY_ID}")
@@ -22,15 +31,40 @@ public class S3Config {
 
     @Value("${AWS_REGION_NAME}")
     private String region;
+
+    /** Simultaneous connections of the asynchronous client, which bounds the parts uploaded in parallel. */
+    @Value("${S3_ASYNC_MAX_CONNECTIONS:64}")
+    private int asyncMaxConnections;
+
+    @Value("${S3_ASYNC_CONNECTION_ACQUIRE_TIMEOUT_MS:10000}")
+    private long asyncConnectionAcquireTimeoutMillis;
+
+    /** Objects of at least this size are uploaded in parts. */
+    @Value("${S3_MULTIPART_THRESHOLD_MB:8}")
+    private long multipartThresholdMegabytes;
+
+    @Value("${S3_MULTIPART_PART_SIZE_MB:8}")
+    private long multipartPartSizeMegabytes;
+
+    /** Upper bound on the bytes buffered across the parts of one upload that are in flight. */
+    @Value("${S3_MULTIPART_BUFFER_MB:64}")
+    private long multipartBufferMegabytes;
+
+    /**
+     * Upper bound on one S3 call, retries included. Uploads and presigning run inside the screening
+     * stages, which cannot interrupt a blocked SDK call, so it defaults to their deadline.
+     */
+    @Value("${S3_API_CALL_TIMEOUT_MS:${SCREENING_POST_ANALYZER_TIMEOUT_MS:30000}}")
+    private long apiCallTimeoutMillis;
     
 
     @Bean
     public S3Client s3Client() {
-        Region region = Region.US_EAST_1;
         AwsCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
         S3Client s3Client = S3Client.builder()
-                .region(region)
+                .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .overrideConfiguration(callTimeouts(apiCallTimeoutMillis))
                 .build();
         return s3Client;
     }
@@ -38,7 +72,45 @@ public class S3Config {
     public S3Presigner s3Presigner() {
         return S3Presigner.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
-                .region(Region.US_EAST_1)
+                .region(Region.of(region))
+                .build();
+    }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient() {
+        return S3AsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .region(Region.of(region))
+                .overrideConfiguration(callTimeouts(apiCallTimeoutMillis))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(asyncMaxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(asyncConnectionAcquireTimeoutMillis)))
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(multipartThresholdMegabytes * 1024 * 1024)
+                        .minimumPartSizeInBytes(multipartPartSizeMegabytes * 1024 * 1024)
+                        .apiCallBufferSizeInBytes(multipartBufferMegabytes * 1024 * 1024)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Bounds each call and each of its attempts, so that a hung connection still leaves time for a
+     * retry. A timeout of {@code 0} leaves the SDK defaults in place.
+     */
+    static ClientOverrideConfiguration callTimeouts(long apiCallTimeoutMillis) {
+        ClientOverrideConfiguration.Builder configuration = ClientOverrideConfiguration.builder();
+        if (apiCallTimeoutMillis > 0) {
+            configuration.apiCallTimeout(Duration.ofMillis(apiCallTimeoutMillis))
+                    .apiCallAttemptTimeout(Duration.ofMillis(Math.max(1, apiCallTimeoutMillis / 2)));
+        }
+        return configuration.build();
+    }
+
+    @Bean
+    public S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3AsyncClient)
                 .build();
     }
 }
@@ -1,32 +1,69 @@
 package co.edu.javeriana.glaucomapp_backend.s3;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
-import java.time.Duration;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledByteArrayOutputStream;
 import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredObject;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetUrlRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 
 @Service
+@ConditionalOnProperty(name = "STORAGE_BACKEND", havingValue = "s3", matchIfMissing = true)
 public class S3ServiceImpl implements S3Service{
 
+    /** Limite de claves por solicitud DeleteObjects impuesto por S3. */
+    static final int MAX_KEYS_PER_DELETE = 1000;
+
         @Value("${AWS_BUCKET_NAME}")
     private String bucketName;
     
@@ -34,14 +71,47 @@ public class S3ServiceImpl implements S3Service{
 
     private final S3Presigner s3Presigner;
 
-    public S3ServiceImpl(S3Client s3Client, S3Presigner s3Presigner) {
+    private final BufferPool bufferPool;
+
+    private final PresignedUrlCache presignedUrlCache;
+
+    private final ImageDeletionOutbox imageDeletionOutbox;
+
+    private final S3TransferManager transferManager;
+
+    private final ImageDiskCache imageDiskCache;
+
+    private final ImageReferences imageReferences;
+
+    private final Semaphore deleteRequests;
+
+    private final long multipartThresholdBytes;
+
+    public S3ServiceImpl(S3Client s3Client, S3Presigner s3Presigner, BufferPool bufferPool,
+            PresignedUrlCache presignedUrlCache, ImageDeletionOutbox imageDeletionOutbox,
+            S3TransferManager transferManager, ImageDiskCache imageDiskCache, ImageReferences imageReferences,
+            @Value("${S3_DELETE_CONCURRENCY:4}") int deleteConcurrency,
+            @Value("${S3_MULTIPART_THRESHOLD_MB:8}") long multipartThresholdMegabytes) {
         this.s3Client = s3Client;
         this.s3Presigner = s3Presigner;
+        this.bufferPool = bufferPool;
+        this.presignedUrlCache = presignedUrlCache;
+        this.imageDeletionOutbox = imageDeletionOutbox;
+        this.transferManager = transferManager;
+        this.imageDiskCache = imageDiskCache;
+        this.imageReferences = imageReferences;
+        this.multipartThresholdBytes = multipartThresholdMegabytes * 1024 * 1024;
+        this.deleteRequests = new Semaphore(Math.max(1, deleteConcurrency));
     }
 
 
     @Override
     public String generatePresignedUrl(String objectKey) {
+        // Reutilizar la URL firmada mientras le quede suficiente vigencia
+        return presignedUrlCache.get(objectKey, this::presign);
+    }
+
+    private String presign(String objectKey) {
         // Crear la solicitud para obtener el objeto
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
@@ -50,7 +120,7 @@ public class S3ServiceImpl implements S3Service{
 
         // Crear la solicitud para presignar el objeto
         GetObjectPresignRequest getObjectPresignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofHours(1)) // Duración de la firma
+                .signatureDuration(presignedUrlCache.validity()) // Duración de la firma
                 .getObjectRequest(getObjectRequest) // Solicitud para el objeto
                 .build();
 
@@ -62,23 +132,9 @@ public class S3ServiceImpl implements S3Service{
     @Override
         public String uploadImage(BufferedImage image, String fileName) {
         System.out.println("Uploading image to S3");
-        try {
-            // Convertir BufferedImage a InputStream
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos); // Puedes cambiar "png" por el formato deseado
-            InputStream inputStream = new ByteArrayInputStream(baos.toByteArray());
-            System.out.println("InputStream: ");
-
-            // Crear la solicitud para subir el objeto con tipo de contenido
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(fileName)
-                    .contentType("image/png") // Cambia esto según el tipo de imagen
-                    .build();
+        try (PooledByteArrayOutputStream png = encode(image)) {
             System.out.println("Bucket: " + bucketName);
-            // Subir el objeto
-            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(inputStream, baos.size()));
-            
+            put(fileName, png);
             System.out.println("File uploaded to S3");
 
             // Generar la URL del archivo subido
@@ -95,8 +151,81 @@ public class S3ServiceImpl implements S3Service{
         }
     }
 
+    @Override
+    public String uploadImageByContent(BufferedImage image, String prefix) {
+        try (PooledByteArrayOutputStream png = encode(image)) {
+            String name = ContentAddress.keyOf(png.toByteBuffer(), ".png");
+            // Una imagen identica ya promovida no necesita otra copia en staging
+            if (STAGING_PREFIX.equals(prefix) && exists(name)) {
+                return name;
+            }
+            String key = prefix + name;
+            // HeadObject es mas barato que volver a subir los mismos bytes
+            if (!exists(key)) {
+                put(key, png);
+            }
+            return key;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PooledByteArrayOutputStream encode(BufferedImage image) throws IOException {
+        // Codificar el PNG en un buffer del pool; un PNG rara vez supera un byte por pixel
+        PooledByteArrayOutputStream png = new PooledByteArrayOutputStream(bufferPool, image.getWidth() * image.getHeight());
+        try {
+            // La cache en memoria evita el archivo temporal que ImageIO usa por defecto
+            try (ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(png)) {
+                ImageIO.write(image, "png", imageOutput); // Puedes cambiar "png" por el formato deseado
+            }
+            return png;
+        } catch (IOException | RuntimeException e) {
+            png.close();
+            throw e;
+        }
+    }
+
+    private void put(String key, PooledByteArrayOutputStream png) {
+        // Crear la solicitud para subir el objeto con tipo de contenido
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType("image/png") // Cambia esto según el tipo de imagen
+                .build();
+        // Subir el objeto; los archivos grandes se suben en partes paralelas
+        if (png.size() >= multipartThresholdBytes) {
+            transferManager.upload(UploadRequest.builder()
+                    .putObjectRequest(putObjectRequest)
+                    .requestBody(AsyncRequestBody.fromByteBufferUnsafe(png.toByteBuffer()))
+                    .build()).completionFuture().join();
+        } else {
+            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(png.toInputStream(), png.size()));
+        }
+    }
+
+    @Override
+    public Optional<StoredImage> getImage(String fileName) {
+        // Las lecturas pasan por la cache en disco; solo los fallos descargan de S3
+        return imageDiskCache.get(fileName, this::download);
+    }
+
+    private Optional<ImageDiskCache.Metadata> download(String objectKey, Path target) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
+        try {
+            GetObjectResponse response = s3Client.getObject(getObjectRequest, ResponseTransformer.toFile(target));
+            return Optional.of(new ImageDiskCache.Metadata(response.contentType(), response.eTag()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        }
+    }
+
     @Override
     public String deleteImage(String fileName) {
+        presignedUrlCache.invalidate(fileName);
+        imageDiskCache.invalidate(fileName);
         try {
             // Crear la solicitud para eliminar el objeto
             DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
@@ -112,4 +241,138 @@ public class S3ServiceImpl implements S3Service{
             return "Error deleting file: " + e.getMessage();
         }
     }
+
+    @Override
+    public Map<String, String> deleteImages(Collection<String> fileNames) {
+        List<String> keys = fileNames.stream().filter(Objects::nonNull).distinct().toList();
+        keys.forEach(presignedUrlCache::invalidate);
+        keys.forEach(imageDiskCache::invalidate);
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        // Agrupar las claves en solicitudes DeleteObjects y enviarlas en paralelo, con un limite de solicitudes simultaneas
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+                List<String> batch = keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()));
+                executor.execute(() -> deleteBatch(batch, failures));
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public void scheduleDeletion(Collection<String> fileNames) {
+        // La URL firmada deja de servirse de inmediato; el objeto se elimina en segundo plano
+        fileNames.stream().filter(Objects::nonNull).forEach(key -> {
+            presignedUrlCache.invalidate(key);
+            imageDiskCache.invalidate(key);
+        });
+        imageDeletionOutbox.record(fileNames);
+    }
+
+    @Override
+    public String promote(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        if (!fileName.startsWith(STAGING_PREFIX)) {
+            imageReferences.retain(fileName);
+            // Una imagen reutilizada sin referencias pudo eliminarse antes de que la referencia cancelara su borrado
+            if (!exists(fileName)) {
+                throw new IllegalArgumentException("The image " + fileName + " expired before the exam was saved");
+            }
+            return fileName;
+        }
+        String key = fileName.substring(STAGING_PREFIX.length());
+        // La referencia se toma antes de copiar, para cancelar una eliminacion pendiente de la misma clave
+        imageReferences.retain(key);
+        try {
+            // CopyObject copia dentro de S3; los bytes no pasan por la JVM
+            s3Client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(fileName)
+                    .destinationBucket(bucketName)
+                    .destinationKey(key)
+                    .build());
+        } catch (S3Exception e) {
+            // Si la copia temporal ya no existe, la imagen pudo haberse promovido en un intento anterior
+            if (e.statusCode() != 404 || !exists(key)) {
+                throw e.statusCode() == 404
+                        ? new IllegalArgumentException("The image " + fileName + " expired before the exam was saved")
+                        : e;
+            }
+        }
+        scheduleDeletion(List.of(fileName));
+        return key;
+    }
+
+    @Override
+    public void release(Collection<String> fileNames) {
+        scheduleDeletion(imageReferences.release(fileNames));
+    }
+
+    @Override
+    public int purgeStaged(Instant stagedBefore) {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(STAGING_PREFIX)
+                .build();
+        int purged = 0;
+        // Cada pagina trae hasta 1000 claves, lo mismo que admite una solicitud DeleteObjects
+        for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(listRequest)) {
+            List<String> expired = page.contents().stream()
+                    .filter(object -> object.lastModified().isBefore(stagedBefore))
+                    .map(S3Object::key)
+                    .toList();
+            if (!expired.isEmpty()) {
+                purged += expired.size() - deleteImages(expired).size();
+            }
+        }
+        return purged;
+    }
+
+    @Override
+    public Stream<StoredObject> listImages() {
+        // S3 lista las claves en orden binario UTF-8, que coincide con String.compareTo para claves ASCII
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .build();
+        return s3Client.listObjectsV2Paginator(listRequest).contents().stream()
+                .map(object -> new StoredObject(object.key(), object.lastModified()));
+    }
+
+    private boolean exists(String objectKey) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(objectKey).build());
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private void deleteBatch(List<String> keys, Map<String, String> failures) {
+        try {
+            deleteRequests.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            keys.forEach(key -> failures.put(key, "Interrupted before deleting"));
+            return;
+        }
+        try {
+            List<ObjectIdentifier> objects = new ArrayList<>(keys.size());
+            keys.forEach(key -> objects.add(ObjectIdentifier.builder().key(key).build()));
+            DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    // En modo silencioso S3 solo responde con las claves que fallaron
+                    .delete(Delete.builder().objects(objects).quiet(true).build())
+                    .build();
+            DeleteObjectsResponse response = s3Client.deleteObjects(deleteObjectsRequest);
+            response.errors().forEach(error -> failures.put(error.key(), error.code() + ": " + error.message()));
+        } catch (Exception e) {
+            keys.forEach(key -> failures.put(key, "Error deleting file: " + e.getMessage()));
+        } finally {
+            deleteRequests.release();
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+
+/**
+ * Opens a pooled connection to S3 and initializes the request signer at startup, before the
+ * application reports itself ready, so the first screening does not pay for the TLS handshake,
+ * credential resolution and signer setup. Failures are logged and never prevent startup.
+ * Set {@code WARMUP_ENABLED=false} to skip it. Not used with the local storage backend.
+ */
+@Component
+@ConditionalOnExpression("${WARMUP_ENABLED:true} and '${STORAGE_BACKEND:s3}' == 's3'")
+public class S3WarmUp implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3WarmUp.class);
+
+    @Value("${AWS_BUCKET_NAME}")
+    private String bucketName;
+
+    private final S3Client s3Client;
+
+    private final S3Service s3Service;
+
+    public S3WarmUp(S3Client s3Client, S3Service s3Service) {
+        this.s3Client = s3Client;
+        this.s3Service = s3Service;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            s3Client.headBucket(HeadBucketRequest.builder().bucket(bucketName).build());
+        } catch (SdkException e) {
+            // Even a rejected request leaves a warm connection in the client pool.
+            logger.warn("S3 warm-up request failed: " + e.getMessage());
+        }
+        try {
+            s3Service.generatePresignedUrl("warm-up");
+        } catch (SdkException e) {
+            logger.warn("S3 presigner warm-up failed: " + e.getMessage());
+        }
+        logger.info("S3 warm-up finished in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+}
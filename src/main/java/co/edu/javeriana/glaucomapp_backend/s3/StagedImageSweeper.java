@@ -0,0 +1,108 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Deletes screening overlays that were staged under {@link S3Service#STAGING_PREFIX} and never
+ * promoted into an exam.
+ * <p>
+ * Every {@code STORAGE_STAGING_SWEEP_MINUTES} the images staged more than
+ * {@code STORAGE_STAGING_TTL_HOURS} ago are purged. Buckets with a lifecycle rule expiring the
+ * staging prefix do this on their own, so the sweeper can be turned off with
+ * {@code STORAGE_STAGING_SWEEP_ENABLED=false}; the local backend has no such rule and relies on it.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "STORAGE_STAGING_SWEEP_ENABLED", havingValue = "true", matchIfMissing = true)
+public class StagedImageSweeper implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedImageSweeper.class);
+
+    private final S3Service s3Service;
+    private final Duration ttl;
+    private final long sweepMillis;
+    private final Clock clock;
+    private final Counter purged;
+
+    private volatile boolean running;
+    private Thread sweeper;
+
+    @Autowired
+    public StagedImageSweeper(S3Service s3Service, MeterRegistry meterRegistry,
+            @Value("${STORAGE_STAGING_TTL_HOURS:24}") long ttlHours,
+            @Value("${STORAGE_STAGING_SWEEP_MINUTES:60}") long sweepMinutes) {
+        this(s3Service, meterRegistry, Duration.ofHours(ttlHours), TimeUnit.MINUTES.toMillis(sweepMinutes),
+                Clock.systemUTC());
+    }
+
+    StagedImageSweeper(S3Service s3Service, MeterRegistry meterRegistry, Duration ttl, long sweepMillis, Clock clock) {
+        this.s3Service = s3Service;
+        this.ttl = ttl;
+        this.sweepMillis = sweepMillis;
+        this.clock = clock;
+        this.purged = Counter.builder("image.staging.purged").register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        sweeper = Thread.ofVirtual().name("staged-image-sweeper").start(this::sweep);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        sweeper.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Purges the staged images older than the TTL.
+     *
+     * @return the number of images purged
+     */
+    int sweepOnce() {
+        Instant stagedBefore = clock.instant().minus(ttl);
+        int count = s3Service.purgeStaged(stagedBefore);
+        purged.increment(count);
+        if (count > 0) {
+            logger.info("Purged " + count + " staged images older than " + stagedBefore);
+        }
+        return count;
+    }
+
+    private void sweep() {
+        while (running) {
+            try {
+                sweepOnce();
+            } catch (RuntimeException e) {
+                logger.error("Could not purge staged images: " + e.getMessage());
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(sweepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -1,8 +1,94 @@
 package co.edu.javeriana.glaucomapp_backend.s3.exposed;
 import java.awt.image.BufferedImage;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface  S3Service {
+
+    /**
+     * Prefix of the keys screening overlays are written under until an exam is saved with them.
+     * Staged images that are never promoted are purged after a TTL.
+     */
+    String STAGING_PREFIX = "staging/";
+
     String generatePresignedUrl(String objectKey);
     String uploadImage(BufferedImage image, String fileName);
+
+    /**
+     * Stores an image as a PNG under a key derived from its bytes, so identical images share one
+     * object. The upload is skipped when an object with that key exists, or when the image is being
+     * staged and was already promoted, in which case the permanent key is returned.
+     *
+     * @param image  the image
+     * @param prefix the prefix of the key, such as {@link #STAGING_PREFIX}, or an empty string
+     * @return the key the image is stored under
+     */
+    String uploadImageByContent(BufferedImage image, String prefix);
+
+    /**
+     * Reads a stored image back.
+     *
+     * @param fileName the object key
+     * @return the image, or empty if there is no object with that key
+     */
+    Optional<StoredImage> getImage(String fileName);
+
     String deleteImage(String fileName);
+
+    /**
+     * Deletes many objects with as few requests as possible.
+     *
+     * @param fileNames the object keys to delete
+     * @return the keys that could not be deleted, with the reason, so they can be retried
+     */
+    Map<String, String> deleteImages(Collection<String> fileNames);
+
+    /**
+     * Records objects to delete once the current transaction commits. The objects are deleted in
+     * the background and retried until they are gone.
+     *
+     * @param fileNames the object keys to delete
+     */
+    void scheduleDeletion(Collection<String> fileNames);
+
+    /**
+     * Makes a staged image permanent by moving it out of the {@link #STAGING_PREFIX} inside the
+     * storage itself, without reading it back, and adds a reference to it. The staged copy is
+     * scheduled for deletion. Promoting an image that was already promoted returns the same key.
+     * Every promoted image must eventually be passed to {@link #release(Collection)}.
+     *
+     * @param fileName the key of the staged image
+     * @return the permanent key; keys outside the staging prefix are returned unchanged
+     * @throws IllegalArgumentException if the staged image no longer exists
+     */
+    String promote(String fileName);
+
+    /**
+     * Drops one reference per occurrence of each image, as taken by {@link #promote(String)}, and
+     * schedules the deletion of the images that are no longer referenced, like
+     * {@link #scheduleDeletion(Collection)}.
+     *
+     * @param fileNames the object keys
+     */
+    void release(Collection<String> fileNames);
+
+    /**
+     * Deletes staged images that were never promoted.
+     *
+     * @param stagedBefore images staged before this instant are deleted
+     * @return the number of images deleted
+     */
+    int purgeStaged(Instant stagedBefore);
+
+    /**
+     * Lists every stored image, staged ones included, in ascending key order as compared by
+     * {@link String#compareTo}. Listings are fetched page by page as the stream is consumed, so the
+     * stream should be closed when done.
+     *
+     * @return the stored images
+     */
+    Stream<StoredObject> listImages();
 }
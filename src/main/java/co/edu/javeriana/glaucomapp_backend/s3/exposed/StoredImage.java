@@ -0,0 +1,22 @@
+package co.edu.javeriana.glaucomapp_backend.s3.exposed;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An image read back from storage.
+ *
+ * @param key         the object key
+ * @param contentType the content type recorded when the image was stored
+ * @param etag        an entity tag that changes whenever the stored bytes change, quoted as in HTTP
+ * @param content     the bytes of the image, usually a read-only view of a memory-mapped file; it is
+ *                    not shared with other callers, so its position may be moved freely
+ */
+public record StoredImage(String key, String contentType, String etag, ByteBuffer content) {
+
+    /**
+     * @return the size of the image in bytes
+     */
+    public long size() {
+        return content.limit();
+    }
+}
@@ -0,0 +1,12 @@
+package co.edu.javeriana.glaucomapp_backend.s3.exposed;
+
+import java.time.Instant;
+
+/**
+ * An entry of a storage listing.
+ *
+ * @param key          the object key
+ * @param lastModified when the object was last written
+ */
+public record StoredObject(String key, Instant lastModified) {
+}
@@ -133,6 +133,8 @@ public class WebSecurityConfig {
              .authorizeHttpRequests(requests -> 
                  requests
                      .requestMatchers("/mobile/glaucoma-screening/process").authenticated() // Require ADMIN role for /glaucoma-screening/admin/**
+                     .requestMatchers("/mobile/glaucoma-screening/process-pair").authenticated()
+                     .requestMatchers("/mobile/glaucoma-screening/jobs", "/mobile/glaucoma-screening/jobs/**").authenticated()
                      
                      .anyRequest().permitAll() // Require authentication for all other requests
                      )
@@ -14,9 +14,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import co.edu.javeriana.glaucomapp_backend.common.JwtUtil;
+import co.edu.javeriana.glaucomapp_backend.common.json.JsonCodecs;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
@@ -30,6 +31,8 @@ import jakarta.servlet.http.HttpServletResponse;
  */
 @Component
 public class JwtAuthenticationFilterWeb extends OncePerRequestFilter {
+    private static final ObjectWriter ERROR_WRITER = JsonCodecs.writerFor(Map.class);
+
     private final JwtUtil jwtUtil;
 
     public JwtAuthenticationFilterWeb(JwtUtil jwtUtil) {
@@ -129,7 +132,6 @@ public class JwtAuthenticationFilterWeb extends OncePerRequestFilter {
         errorDetails.put("status", status);
         errorDetails.put("message", message);
         errorDetails.put("timestamp", System.currentTimeMillis());
-        ObjectMapper mapper = new ObjectMapper();
-        response.getWriter().write(mapper.writeValueAsString(errorDetails));
+        response.getWriter().write(ERROR_WRITER.writeValueAsString(errorDetails));
     }
 }
@@ -2,8 +2,15 @@ package co.edu.javeriana.glaucomapp_backend.clinical_history.Unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +18,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import co.edu.javeriana.glaucomapp_backend.clinical_history.controller.CHController;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.ErrorResponse;
@@ -19,16 +31,24 @@ import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamRes;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamsResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.PacientRequest;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.PacientResponse;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.ExamService;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.PatientService;
 import co.edu.javeriana.glaucomapp_backend.common.JwtUtil;
 import co.edu.javeriana.glaucomapp_backend.common.exceptions.UnauthorizedException;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public class CHControllerTest {
+
+    private static final String IMAGE_ETAG =
+            "\"" + DigestUtils.md5DigestAsHex("image-key".getBytes(StandardCharsets.UTF_8)) + "\"";
     @Mock
     private PatientService pacientService;
 
@@ -244,6 +264,26 @@ public class CHControllerTest {
 
     
 
+    @Test
+    public void testGetProgression_Success() throws Exception {
+        // Arrange
+        String token = "Bearer valid_token";
+        String pacientId = "pacient_id";
+        String ophtalId = "ophtal_id";
+        ProgressionResponse progression = new ProgressionResponse(UUID.randomUUID(), 2, 0, null, null,
+                0.05, 0.1, 1.0, 0.05, 0.1, 1, 2, 2, 1, 0);
+
+        when(jwtUtil.extractIdFromToken(token)).thenReturn(ophtalId);
+        when(examService.getProgression(ophtalId, pacientId)).thenReturn(progression);
+
+        // Act
+        ResponseEntity<?> response = chController.getProgression(token, pacientId);
+
+        // Assert
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(progression, response.getBody());
+    }
+
     @Test
     public void testGetExam_Success() throws Exception {
         // Arrange
@@ -351,4 +391,77 @@ public class CHControllerTest {
         assertEquals("Bad Request", ((ErrorResponse) response.getBody()).getMessage());
     }
     
+    @Test
+    public void testGetExamImage_StreamsWithCacheHeaders() throws Exception {
+        MockMvc mockMvc = examImageMockMvc();
+
+        mockMvc.perform(get("/mobile/clinical_history/get/exam/image")
+                        .header("Authorization", "Bearer valid_token")
+                        .param("examId", "exam_id")
+                        .param("pacientId", "pacient_id"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", IMAGE_ETAG))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, private, immutable"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }));
+    }
+
+    @Test
+    public void testGetExamImage_NotModified() throws Exception {
+        MockMvc mockMvc = examImageMockMvc();
+
+        mockMvc.perform(get("/mobile/clinical_history/get/exam/image")
+                        .header("Authorization", "Bearer valid_token")
+                        .header("If-None-Match", IMAGE_ETAG)
+                        .param("examId", "exam_id")
+                        .param("pacientId", "pacient_id"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", IMAGE_ETAG))
+                .andExpect(content().bytes(new byte[0]));
+        // La revalidación no descarga la imagen
+        verify(examService, never()).getExamImage(any(), any(), any());
+    }
+
+    @Test
+    public void testGetExamImage_Range() throws Exception {
+        MockMvc mockMvc = examImageMockMvc();
+
+        mockMvc.perform(get("/mobile/clinical_history/get/exam/image")
+                        .header("Authorization", "Bearer valid_token")
+                        .header("Range", "bytes=2-5")
+                        .param("examId", "exam_id")
+                        .param("pacientId", "pacient_id"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(content().bytes(new byte[] { 2, 3, 4, 5 }));
+
+        mockMvc.perform(get("/mobile/clinical_history/get/exam/image")
+                        .header("Authorization", "Bearer valid_token")
+                        .header("Range", "bytes=20-30")
+                        .param("examId", "exam_id")
+                        .param("pacientId", "pacient_id"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+
+    @Test
+    public void testGetExamImage_NotFound() throws Exception {
+        when(jwtUtil.extractIdFromToken("Bearer valid_token")).thenReturn("ophtal_id");
+        when(examService.getExamImageKey("ophtal_id", "pacient_id", "exam_id")).thenReturn(Optional.empty());
+
+        ResponseEntity<?> response = chController.getExamImage("Bearer valid_token", "exam_id", "pacient_id",
+                new ServletWebRequest(new MockHttpServletRequest()));
+
+        assertEquals(404, response.getStatusCode().value());
+    }
+
+    private MockMvc examImageMockMvc() {
+        byte[] bytes = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+        when(jwtUtil.extractIdFromToken("Bearer valid_token")).thenReturn("ophtal_id");
+        when(examService.getExamImageKey("ophtal_id", "pacient_id", "exam_id")).thenReturn(Optional.of("image-key"));
+        when(examService.getExamImage("ophtal_id", "pacient_id", "exam_id")).thenAnswer(invocation -> Optional.of(
+                new StoredImage("image-key", "image/png", "\"v1\"", ByteBuffer.wrap(bytes).asReadOnlyBuffer())));
+        return MockMvcBuilders.standaloneSetup(chController).build();
+    }
+
 }
@@ -7,6 +7,7 @@ import static org.mockito.Mockito.*;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +15,7 @@ import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -25,9 +27,12 @@ import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.ExamsResp
 import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.Pacient;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ExamRepository;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.PacientRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.service.PatientProgressionService;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.ReviewOphthalmologistEvent;
 import co.edu.javeriana.glaucomapp_backend.clinical_history.service.impl.ExamServiceImpl;
 import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
 
 public class ExamServiceImplTest {
 
@@ -43,6 +48,9 @@ public class ExamServiceImplTest {
     @Mock
     private ReviewOphthalmologistEvent reviewOphthalmologistEvent;
 
+    @Mock
+    private PatientProgressionService progressionService;
+
     @InjectMocks
     private ExamServiceImpl examServiceImpl;
 
@@ -64,6 +72,23 @@ public class ExamServiceImplTest {
 
         verify(reviewOphthalmologistEvent).verifyOphtalmologist(ophtalIdString);
         verify(examRepository).save(any(Exam.class));
+        verify(progressionService).recordExam(any(Exam.class));
+    }
+
+    @Test
+    public void testSaveExam_PromotesStagedImage() {
+        ExamRequest examRequest = mock(ExamRequest.class);
+        when(examRequest.cedula()).thenReturn("123456");
+        when(examRequest.urlImage()).thenReturn(S3Service.STAGING_PREFIX + "image.png");
+        when(pacientRepository.findPacientByCedulaAndDoctorId(anyString(), any(UUID.class)))
+                .thenReturn(mock(Pacient.class));
+        when(s3Service.promote(S3Service.STAGING_PREFIX + "image.png")).thenReturn("image.png");
+
+        examServiceImpl.saveExam(UUID.randomUUID().toString(), examRequest);
+
+        ArgumentCaptor<Exam> saved = ArgumentCaptor.forClass(Exam.class);
+        verify(examRepository).save(saved.capture());
+        assertEquals("image.png", saved.getValue().getUrlImage());
     }
 
     @Test
@@ -102,6 +127,52 @@ public class ExamServiceImplTest {
         });
     }
 
+    @Test
+    public void testGetExamImage() {
+        String ophtalIdString = UUID.randomUUID().toString();
+        String pacientIdString = UUID.randomUUID().toString();
+        String examIdString = UUID.randomUUID().toString();
+        UUID examId = UUID.fromString(examIdString);
+
+        Exam exam = mock(Exam.class);
+        when(examRepository.findById(examId)).thenReturn(Optional.of(exam));
+        when(exam.getPacient()).thenReturn(mock(Pacient.class));
+        when(exam.getPacient().getId()).thenReturn(UUID.fromString(pacientIdString));
+        when(exam.getPacient().getDoctorId()).thenReturn(UUID.fromString(ophtalIdString));
+        when(exam.getUrlImage()).thenReturn("image-key");
+        StoredImage image = new StoredImage("image-key", "image/png", "\"etag\"", ByteBuffer.wrap(new byte[] { 1, 2 }));
+        when(s3Service.getImage("image-key")).thenReturn(Optional.of(image));
+
+        assertEquals(Optional.of(image), examServiceImpl.getExamImage(ophtalIdString, pacientIdString, examIdString));
+    }
+
+    @Test
+    public void testGetExamImageKey_DoesNotReadTheImage() {
+        String ophtalIdString = UUID.randomUUID().toString();
+        String pacientIdString = UUID.randomUUID().toString();
+        String examIdString = UUID.randomUUID().toString();
+
+        Exam exam = mock(Exam.class);
+        when(examRepository.findById(UUID.fromString(examIdString))).thenReturn(Optional.of(exam));
+        when(exam.getPacient()).thenReturn(mock(Pacient.class));
+        when(exam.getPacient().getId()).thenReturn(UUID.fromString(pacientIdString));
+        when(exam.getPacient().getDoctorId()).thenReturn(UUID.fromString(ophtalIdString));
+        when(exam.getUrlImage()).thenReturn("image-key");
+
+        assertEquals(Optional.of("image-key"), examServiceImpl.getExamImageKey(ophtalIdString, pacientIdString, examIdString));
+        verify(s3Service, never()).getImage(any());
+    }
+
+    @Test
+    public void testGetExamImage_Unauthorized() {
+        String examIdString = UUID.randomUUID().toString();
+        when(examRepository.findById(UUID.fromString(examIdString))).thenReturn(Optional.empty());
+
+        assertThrows(AccessDeniedException.class, () -> examServiceImpl.getExamImage(
+                UUID.randomUUID().toString(), UUID.randomUUID().toString(), examIdString));
+        verify(s3Service, never()).getImage(any());
+    }
+
     @Test
     public void testDeleteExam() {
         String ophtalIdString = UUID.randomUUID().toString();
@@ -126,7 +197,7 @@ public class ExamServiceImplTest {
         examServiceImpl.deleteExam(ophtalIdString, pacientIdString, examIdString);
 
         // Verify that the correct interactions occurred
-        verify(s3Service).deleteImage(imageUrl); // Check for the correct image URL
+        verify(s3Service).release(List.of(imageUrl)); // Check for the correct image URL
         verify(examRepository).deleteById(examId); // Ensure the exam is deleted from the repository
     }
 
@@ -318,4 +389,28 @@ public class ExamServiceImplTest {
         InvocationTargetException exception = assertThrows(InvocationTargetException.class, () -> method.invoke(examServiceImpl, ophtalId, pacientId, examId));
         assertTrue(exception.getCause() instanceof AccessDeniedException);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetProgression() {
+        UUID ophtalId = UUID.randomUUID();
+        UUID pacientId = UUID.randomUUID();
+        Pacient pacient = Pacient.builder().id(pacientId).doctorId(ophtalId).build();
+        ProgressionResponse progression = mock(ProgressionResponse.class);
+        when(pacientRepository.findById(pacientId)).thenReturn(Optional.of(pacient));
+        when(progressionService.getProgression(pacient)).thenReturn(progression);
+
+        assertEquals(progression, examServiceImpl.getProgression(ophtalId.toString(), pacientId.toString()));
+        verify(reviewOphthalmologistEvent).verifyOphtalmologist(ophtalId.toString());
+    }
+
+    @Test
+    public void testGetProgression_OtherOphthalmologist() {
+        UUID pacientId = UUID.randomUUID();
+        Pacient pacient = Pacient.builder().id(pacientId).doctorId(UUID.randomUUID()).build();
+        when(pacientRepository.findById(pacientId)).thenReturn(Optional.of(pacient));
+
+        assertThrows(AccessDeniedException.class,
+                () -> examServiceImpl.getProgression(UUID.randomUUID().toString(), pacientId.toString()));
+        verify(progressionService, never()).getProgression(any());
+    }
+}
@@ -0,0 +1,128 @@
+package co.edu.javeriana.glaucomapp_backend.clinical_history.Unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.reconciliation.ImageReconciliationRun;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ExamRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ImageReconciliationRunRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.service.ImageReconciliationService;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredObject;
+
+public class ImageReconciliationServiceTest {
+
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(2));
+
+    private ExamRepository examRepository;
+    private ImageReconciliationRunRepository runRepository;
+    private S3Service s3Service;
+    private ImageReconciliationService reconciliationService;
+
+    @BeforeEach
+    public void setUp() {
+        examRepository = mock(ExamRepository.class);
+        runRepository = mock(ImageReconciliationRunRepository.class);
+        s3Service = mock(S3Service.class);
+        reconciliationService = new ImageReconciliationService(examRepository, runRepository, s3Service, 24, true);
+    }
+
+    @Test
+    public void testReconcileSchedulesOrphansAndReportsMissingImages() {
+        when(s3Service.listImages()).thenReturn(Stream.of(
+                new StoredObject("a.png", OLD),
+                new StoredObject("b.png", OLD),
+                new StoredObject("c.png", Instant.now()),
+                new StoredObject("d.png", OLD),
+                new StoredObject(S3Service.STAGING_PREFIX + "e.png", OLD)));
+        when(examRepository.streamImageKeys()).thenReturn(Stream.of("b.png", "b.png", "bb.png", "d.png"));
+
+        ImageReconciliationService.Report report = reconciliationService.reconcile();
+
+        assertEquals(new ImageReconciliationService.Report(5, 3, 1, 1), report);
+        verify(s3Service).scheduleDeletion(List.of("a.png"));
+    }
+
+    @Test
+    public void testReconcileSchedulesOrphansInBatches() {
+        List<StoredObject> stored = new ArrayList<>();
+        IntStream.range(0, 2500).forEach(i -> stored.add(new StoredObject(String.format("image_%05d.png", i), OLD)));
+        when(s3Service.listImages()).thenReturn(stored.stream());
+        when(examRepository.streamImageKeys()).thenReturn(Stream.empty());
+
+        assertEquals(2500, reconciliationService.reconcile().orphans());
+
+        ArgumentCaptor<List<String>> batches = ArgumentCaptor.forClass(List.class);
+        verify(s3Service, times(3)).scheduleDeletion(batches.capture());
+        assertEquals(List.of(1000, 1000, 500), batches.getAllValues().stream().map(List::size).toList());
+    }
+
+    @Test
+    public void testReconcileFailsWhenKeysAreOutOfOrder() {
+        when(s3Service.listImages()).thenReturn(Stream.of(new StoredObject("a.png", OLD)));
+        when(examRepository.streamImageKeys()).thenReturn(Stream.of("c.png", "b.png"));
+
+        assertThrows(IllegalStateException.class, () -> reconciliationService.reconcile());
+    }
+
+    @Test
+    public void testReconcileOnlyReportsWhenDeletionIsDisabled() {
+        reconciliationService = new ImageReconciliationService(examRepository, runRepository, s3Service, 24, false);
+        when(s3Service.listImages()).thenReturn(Stream.of(new StoredObject("a.png", OLD)));
+        when(examRepository.streamImageKeys()).thenReturn(Stream.empty());
+
+        assertEquals(1, reconciliationService.reconcile().orphans());
+        verify(s3Service, never()).scheduleDeletion(any());
+    }
+
+    @Test
+    public void testClaimRunWhenNoNodeRanItYet() {
+        ImageReconciliationRun run = new ImageReconciliationRun();
+        when(runRepository.lockIfFree("image-reconciliation")).thenReturn(Optional.of(run));
+
+        assertTrue(reconciliationService.claimRun(Duration.ofHours(24)));
+        assertNotNull(run.getLastRunAt());
+        verify(runRepository).createIfMissing("image-reconciliation");
+    }
+
+    @Test
+    public void testClaimRunSkipsWhenAnotherNodeRanItRecently() {
+        // Otro nodo reconcilió hace una hora
+        ImageReconciliationRun run = new ImageReconciliationRun();
+        Instant lastRunAt = Instant.now().minus(Duration.ofHours(1));
+        run.setLastRunAt(lastRunAt);
+        when(runRepository.lockIfFree("image-reconciliation")).thenReturn(Optional.of(run));
+
+        assertFalse(reconciliationService.claimRun(Duration.ofHours(24)));
+        assertEquals(lastRunAt, run.getLastRunAt());
+    }
+
+    @Test
+    public void testClaimRunSkipsWhenAnotherNodeHoldsTheRun() {
+        // La fila está bloqueada por otro nodo, SKIP LOCKED no la devuelve
+        when(runRepository.lockIfFree("image-reconciliation")).thenReturn(Optional.empty());
+
+        assertFalse(reconciliationService.claimRun(Duration.ofHours(24)));
+    }
+}
@@ -0,0 +1,34 @@
+package co.edu.javeriana.glaucomapp_backend.clinical_history.Unit.Model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
+
+public class ProgressionResponseTest {
+
+    @Test
+    public void testProgressionResponseCreation() {
+        UUID pacientId = UUID.randomUUID();
+        LocalDate firstExamDate = LocalDate.of(2022, 1, 1);
+        LocalDate lastExamDate = LocalDate.of(2023, 10, 1);
+
+        ProgressionResponse progression = new ProgressionResponse(pacientId, 3, 0, firstExamDate, lastExamDate,
+                0.05, 0.08, 1.2, 0.1, 0.15, 1, 3, 3, 2, 0);
+
+        assertNotNull(progression);
+        assertEquals(pacientId, progression.pacientId());
+        assertEquals(3, progression.examCount());
+        assertEquals(firstExamDate, progression.firstExamDate());
+        assertEquals(lastExamDate, progression.lastExamDate());
+        assertEquals(0.05, progression.distanceRatioSlopePerYear());
+        assertEquals(0.15, progression.areaRatioChange());
+        assertEquals(3, progression.maxDdlStage());
+        assertEquals(2, progression.stageIncreases());
+    }
+}
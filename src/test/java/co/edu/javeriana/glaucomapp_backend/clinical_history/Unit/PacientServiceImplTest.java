@@ -63,7 +63,7 @@ class PacientServiceImplTest {
         pacientServiceImpl.deletePacient(pacientId);
 
         // Verify the interactions
-        verify(s3Service).deleteImage("image.png"); // Check that the correct image was deleted
+        verify(s3Service).release(List.of("image.png")); // Check that the correct image was deleted
         verify(examRepository).deleteAll(exams); // Ensure exams are deleted
         verify(pacientRepository).delete(pacient); // Ensure the pacient is deleted
     }
@@ -154,7 +154,7 @@ class PacientServiceImplTest {
         pacientServiceImpl.deletePacient(ophtalIdString, pacientIdString);
 
         // Verify the interactions
-        verify(s3Service).deleteImage("image.png"); // Check that the correct image was deleted
+        verify(s3Service).release(List.of("image.png")); // Check that the correct image was deleted
         verify(pacientRepository).delete(pacient); // Ensure the pacient is deleted
     }
 
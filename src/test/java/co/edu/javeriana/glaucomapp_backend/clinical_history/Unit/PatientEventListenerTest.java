@@ -9,7 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.mock;
@@ -68,7 +68,7 @@ public class PatientEventListenerTest {
 
         verify(examRepository).deleteAll(exams);
         verify(pacientRepository).delete(pacient);
-        verify(s3Service).deleteImage("urlImage");
+        verify(s3Service).release(List.of("urlImage"));
     }
 
     @Test
@@ -82,6 +82,6 @@ public class PatientEventListenerTest {
 
         verify(examRepository, never()).deleteAll(anyList());
         verify(pacientRepository, never()).delete(any(Pacient.class));
-        verify(s3Service, never()).deleteImage(anyString());
+        verify(s3Service, never()).release(anyCollection());
     }
 }
@@ -61,7 +61,7 @@ public class PatientEventServiceTest {
 
         verify(examRepository).deleteAll(exams);
         verify(pacientRepository).delete(pacient);
-        verify(s3Service).deleteImage("urlImage");
+        verify(s3Service).release(List.of("urlImage"));
     }
 
     @Test
@@ -75,6 +75,6 @@ public class PatientEventServiceTest {
 
         verify(examRepository, never()).deleteAll(anyList());
         verify(pacientRepository, never()).delete(any(Pacient.class));
-        verify(s3Service, never()).deleteImage(anyString());
+        verify(s3Service, never()).release(anyCollection());
     }
 }
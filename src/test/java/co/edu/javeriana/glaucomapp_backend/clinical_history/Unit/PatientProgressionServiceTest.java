@@ -0,0 +1,173 @@
+package co.edu.javeriana.glaucomapp_backend.clinical_history.Unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.exam.Exam;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.pacient.Pacient;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.PatientProgression;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.model.progression.ProgressionResponse;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.ExamRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.PacientRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.repository.PatientProgressionRepository;
+import co.edu.javeriana.glaucomapp_backend.clinical_history.service.PatientProgressionService;
+
+public class PatientProgressionServiceTest {
+
+    @Mock
+    private PatientProgressionRepository progressionRepository;
+
+    @Mock
+    private ExamRepository examRepository;
+
+    @Mock
+    private PacientRepository pacientRepository;
+
+    @InjectMocks
+    private PatientProgressionService progressionService;
+
+    private Pacient pacient;
+    private List<Exam> exams;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        pacient = Pacient.builder().id(UUID.randomUUID()).doctorId(UUID.randomUUID()).build();
+        exams = new ArrayList<>();
+        when(examRepository.findByPacient_DoctorIdAndPacient_Id(pacient.getDoctorId(), pacient.getId())).thenReturn(exams);
+        when(progressionRepository.save(any(PatientProgression.class))).thenAnswer(invocation -> {
+            PatientProgression saved = invocation.getArgument(0);
+            when(progressionRepository.findForUpdate(pacient.getId())).thenReturn(Optional.of(saved));
+            when(progressionRepository.findById(pacient.getId())).thenReturn(Optional.of(saved));
+            return saved;
+        });
+    }
+
+    @Test
+    public void testTrendsAcrossExams() {
+        record(exam("2022-01-01", 0.30, 0.10, 1));
+        record(exam("2023-01-01", 0.40, 0.20, 2));
+        record(exam("2024-01-01", 0.50, 0.30, 4));
+
+        ProgressionResponse progression = progressionService.getProgression(pacient);
+
+        assertEquals(3, progression.examCount());
+        assertEquals(LocalDate.of(2022, 1, 1), progression.firstExamDate());
+        assertEquals(LocalDate.of(2024, 1, 1), progression.lastExamDate());
+        assertEquals(0.1, progression.distanceRatioSlopePerYear(), 1e-3);
+        assertEquals(0.1, progression.areaRatioSlopePerYear(), 1e-3);
+        assertEquals(1.5, progression.ddlStageSlopePerYear(), 1e-2);
+        assertEquals(0.2, progression.distanceRatioChange(), 1e-9);
+        assertEquals(1, progression.firstDdlStage());
+        assertEquals(4, progression.lastDdlStage());
+        assertEquals(4, progression.maxDdlStage());
+        assertEquals(2, progression.stageIncreases());
+        assertEquals(0, progression.stageDecreases());
+    }
+
+    @Test
+    public void testNewestExamIsAddedWithoutReadingExams() {
+        record(exam("2022-01-01", 0.30, 0.10, 2));
+        clearInvocations(examRepository);
+
+        record(exam("2023-01-01", 0.20, 0.10, 1));
+
+        verify(examRepository, never()).findByPacient_DoctorIdAndPacient_Id(any(), any());
+        ProgressionResponse progression = progressionService.getProgression(pacient);
+        assertEquals(2, progression.examCount());
+        assertEquals(1, progression.stageDecreases());
+        assertEquals(2, progression.maxDdlStage());
+    }
+
+    @Test
+    public void testBackDatedExamRebuildsInDateOrder() {
+        record(exam("2023-01-01", 0.40, 0.20, 3));
+        record(exam("2022-01-01", 0.30, 0.10, 1));
+
+        ProgressionResponse progression = progressionService.getProgression(pacient);
+
+        assertEquals(LocalDate.of(2022, 1, 1), progression.firstExamDate());
+        assertEquals(3, progression.lastDdlStage());
+        assertEquals(1, progression.stageIncreases());
+        assertEquals(0.1, progression.distanceRatioSlopePerYear(), 1e-3);
+    }
+
+    @Test
+    public void testRebuildAfterDeletion() {
+        record(exam("2022-01-01", 0.30, 0.10, 1));
+        record(exam("2023-01-01", 0.40, 0.20, 3));
+        exams.remove(1);
+
+        progressionService.rebuild(pacient);
+
+        ProgressionResponse progression = progressionService.getProgression(pacient);
+        assertEquals(1, progression.examCount());
+        assertEquals(1, progression.lastDdlStage());
+        assertNull(progression.distanceRatioSlopePerYear());
+        assertEquals(0, progression.stageIncreases());
+    }
+
+    @Test
+    public void testUndatedExamsAreCountedButNotTrended() {
+        record(exam("2022-01-01", 0.30, 0.10, 1));
+        record(exam("sin fecha", 0.90, 0.90, 6));
+
+        ProgressionResponse progression = progressionService.getProgression(pacient);
+
+        assertEquals(2, progression.examCount());
+        assertEquals(1, progression.undatedExamCount());
+        assertEquals(1, progression.maxDdlStage());
+    }
+
+    @Test
+    public void testMissingAggregateIsBuiltOnRead() {
+        exams.add(exam("2022-01-01", 0.30, 0.10, 1));
+        exams.add(exam("2022-07-01", 0.35, 0.15, 1));
+
+        ProgressionResponse progression = progressionService.getProgression(pacient);
+
+        assertEquals(2, progression.examCount());
+        assertEquals(0.1, progression.distanceRatioSlopePerYear(), 1e-2);
+    }
+
+    @Test
+    public void testFirstAggregateIsCreatedUnderPatientLock() {
+        // Sin agregado no hay fila que bloquear: se bloquea antes la fila del paciente
+        record(exam("2022-01-01", 0.30, 0.10, 1));
+
+        InOrder order = inOrder(pacientRepository, progressionRepository);
+        order.verify(pacientRepository).lockById(pacient.getId());
+        order.verify(progressionRepository).findForUpdate(pacient.getId());
+        order.verify(progressionRepository).save(any(PatientProgression.class));
+    }
+
+    private void record(Exam exam) {
+        exams.add(exam);
+        progressionService.recordExam(exam);
+    }
+
+    private Exam exam(String date, double distanceRatio, double areaRatio, int ddlStage) {
+        return Exam.builder()
+                   .id(UUID.randomUUID())
+                   .date(date)
+                   .distanceRatio(distanceRatio)
+                   .areaRatio(areaRatio)
+                   .ddlStage(ddlStage)
+                   .pacient(pacient)
+                   .build();
+    }
+}
@@ -0,0 +1,121 @@
+package co.edu.javeriana.glaucomapp_backend.common.buffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BufferPoolTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BufferPool bufferPool;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bufferPool = new BufferPool(meterRegistry, 4, 8);
+    }
+
+    @Test
+    public void testBuffersAreRoundedUpToSizeClasses() {
+        try (PooledBuffer small = bufferPool.acquire(10);
+                PooledBuffer medium = bufferPool.acquire(BufferPool.MIN_CLASS_BYTES + 1);
+                PooledBuffer large = bufferPool.acquire(3 * 1024 * 1024)) {
+            assertEquals(BufferPool.MIN_CLASS_BYTES, small.capacity());
+            assertEquals(2 * BufferPool.MIN_CLASS_BYTES, medium.capacity());
+            assertEquals(4 * 1024 * 1024, large.capacity());
+        }
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        PooledBuffer first = bufferPool.acquire(100_000);
+        byte[] array = first.array();
+        first.close();
+
+        try (PooledBuffer second = bufferPool.acquire(120_000)) {
+            assertSame(array, second.array());
+        }
+        assertEquals(1.0, meterRegistry.get("buffer.pool.hits").counter().count());
+        assertEquals(1.0, meterRegistry.get("buffer.pool.misses").counter().count());
+    }
+
+    @Test
+    public void testOutstandingBytesAndDoubleClose() {
+        PooledBuffer buffer = bufferPool.acquire(1);
+        assertEquals(BufferPool.MIN_CLASS_BYTES, bufferPool.outstandingBytes());
+        assertEquals(BufferPool.MIN_CLASS_BYTES, meterRegistry.get("buffer.pool.outstanding.bytes").gauge().value());
+
+        buffer.close();
+        buffer.close();
+        assertEquals(0, bufferPool.outstandingBytes());
+        assertEquals(BufferPool.MIN_CLASS_BYTES, bufferPool.retainedBytes());
+    }
+
+    @Test
+    public void testOversizedBuffersAreNotRetained() {
+        PooledBuffer buffer = bufferPool.acquire(5 * 1024 * 1024);
+        assertEquals(5 * 1024 * 1024, buffer.capacity());
+
+        buffer.close();
+        assertEquals(0, bufferPool.retainedBytes());
+        try (PooledBuffer next = bufferPool.acquire(5 * 1024 * 1024)) {
+            assertNotSame(buffer.array(), next.array());
+        }
+    }
+
+    @Test
+    public void testRetainedBytesAreBounded() {
+        PooledBuffer[] buffers = new PooledBuffer[3];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = bufferPool.acquire(4 * 1024 * 1024);
+        }
+        for (PooledBuffer buffer : buffers) {
+            buffer.close();
+        }
+
+        assertEquals(8 * 1024 * 1024, bufferPool.retainedBytes());
+    }
+
+    @Test
+    public void testUnreleasedBufferIsReportedAsLeak() throws InterruptedException {
+        leakBuffer();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (bufferPool.leaks() == 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(1.0, bufferPool.leaks());
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testPooledOutputStreamGrows() throws IOException {
+        byte[] data = new byte[BufferPool.MIN_CLASS_BYTES + 10];
+        data[data.length - 1] = 42;
+
+        try (PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(bufferPool, 16)) {
+            out.write(7);
+            out.write(data);
+
+            assertEquals(data.length + 1, out.size());
+            byte[] written = out.toInputStream().readAllBytes();
+            assertEquals(7, written[0]);
+            assertArrayEquals(data, java.util.Arrays.copyOfRange(written, 1, written.length));
+        }
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    private void leakBuffer() {
+        bufferPool.acquire(1);
+    }
+}
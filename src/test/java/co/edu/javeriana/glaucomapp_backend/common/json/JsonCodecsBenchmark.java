@@ -0,0 +1,84 @@
+package co.edu.javeriana.glaucomapp_backend.common.json;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Measures the shared {@link JsonCodecs} readers and writers against creating an
+ * {@link ObjectMapper} per call, which is what the authentication error responses and the analyzer
+ * response parsing used to do.
+ * <p>
+ * Not part of the test suite. Run {@link #main(String[])} from the IDE, or after
+ * {@code mvn test-compile} with the test classpath:
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main JsonCodecsBenchmark -prof gc}.
+ * The {@code gc} profiler reports the bytes allocated per call next to the time.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecsBenchmark {
+
+    private static final ObjectWriter ERROR_WRITER = JsonCodecs.writerFor(Map.class);
+    private static final ObjectReader TREE_READER = JsonCodecs.treeReader();
+
+    private Map<String, Object> errorDetails;
+    private String analyzerResponse;
+
+    @Setup
+    public void setUp() {
+        errorDetails = Map.of("status", 401, "message", "Token has expired", "timestamp", 1_700_000_000_000L);
+        analyzerResponse = "{\"distance_ratio\":0.42,\"perimeter_ratio\":0.37,\"area_ratio\":0.18,\"ddls_stage\":3,"
+                + "\"bitmap\":\"" + "A".repeat(4096) + "\"}";
+    }
+
+    @Benchmark
+    public String writeWithNewMapper() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(errorDetails);
+    }
+
+    @Benchmark
+    public String writeWithSharedWriter() throws JsonProcessingException {
+        return ERROR_WRITER.writeValueAsString(errorDetails);
+    }
+
+    @Benchmark
+    public JsonNode readWithNewMapper() throws JsonProcessingException {
+        return new ObjectMapper().readTree(analyzerResponse);
+    }
+
+    @Benchmark
+    public JsonNode readWithSharedReader() throws JsonProcessingException {
+        return TREE_READER.readTree(analyzerResponse);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonCodecsBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,46 @@
+package co.edu.javeriana.glaucomapp_backend.common.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonCodecsTest {
+
+    public record Sample(String name, LocalDate date) {
+    }
+
+    @Test
+    public void testWriterAndReaderRoundTripJavaTimeTypes() throws Exception {
+        Sample sample = new Sample("exam", LocalDate.of(2024, 3, 1));
+
+        String json = JsonCodecs.writerFor(Sample.class).writeValueAsString(sample);
+        Sample read = JsonCodecs.readerFor(Sample.class).readValue(json);
+
+        assertEquals(sample, read);
+    }
+
+    @Test
+    public void testWriterSerializesMaps() throws Exception {
+        String json = JsonCodecs.writerFor(Map.class).writeValueAsString(Map.of("status", 401));
+
+        assertEquals("{\"status\":401}", json);
+    }
+
+    @Test
+    public void testCreateMapperAppliesReadConstraints() {
+        ObjectMapper mapper = JsonCodecs.createMapper(StreamReadConstraints.builder().maxStringLength(8).build());
+
+        assertEquals(8, mapper.getFactory().streamReadConstraints().getMaxStringLength());
+        assertThrows(StreamConstraintsException.class, () -> mapper.reader().readTree("{\"bitmap\":\"AAAAAAAAAAAA\"}"));
+        assertTrue(mapper.getRegisteredModuleIds().stream().anyMatch(id -> id.toString().contains("Blackbird")));
+    }
+}
@@ -0,0 +1,101 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures {@link AnalyzerPayloadEncoder} for every raster layout it has a dedicated path for,
+ * against redrawing the image into a {@code TYPE_3BYTE_BGR} copy first.
+ * <p>
+ * Not part of the test suite. Run {@link #main(String[])} from the IDE, or after
+ * {@code mvn test-compile} with the test classpath:
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main AnalyzerPayloadEncoderBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerPayloadEncoderBenchmark {
+
+    @Param({ "3BYTE_BGR", "4BYTE_ABGR", "INT_RGB", "INT_ARGB", "USHORT_RGB", "BYTE_GRAY", "USHORT_GRAY", "BYTE_INDEXED" })
+    public String format;
+
+    /** A typical fundus camera resolution. */
+    @Param({ "2048x1536" })
+    public String size;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        image = switch (format) {
+            case "3BYTE_BGR" -> new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            case "4BYTE_ABGR" -> new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+            case "INT_RGB" -> new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            case "INT_ARGB" -> new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            case "USHORT_RGB" -> AnalyzerPayloadEncoderTest.sixteenBitRgb(width, height);
+            case "BYTE_GRAY" -> new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            case "USHORT_GRAY" -> new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+            case "BYTE_INDEXED" -> new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED,
+                    grayPalette());
+            default -> throw new IllegalArgumentException(format);
+        };
+        AnalyzerPayloadEncoderTest.fill(image);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return AnalyzerPayloadEncoder.encode(image);
+    }
+
+    @Benchmark
+    public byte[] redrawThenCopy() {
+        BufferedImage bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = bgr.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        byte[] pixels = ((DataBufferByte) bgr.getRaster().getDataBuffer()).getData();
+        byte[] payload = new byte[AnalyzerPayloadEncoder.payloadSize(bgr.getWidth(), bgr.getHeight())];
+        AnalyzerPayloadEncoder.writeHeader(payload, bgr.getWidth(), bgr.getHeight());
+        System.arraycopy(pixels, 0, payload, AnalyzerPayloadEncoder.HEADER_SIZE, pixels.length);
+        return payload;
+    }
+
+    private static IndexColorModel grayPalette() {
+        byte[] levels = new byte[256];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = (byte) i;
+        }
+        return new IndexColorModel(8, 256, levels, levels, levels);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnalyzerPayloadEncoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
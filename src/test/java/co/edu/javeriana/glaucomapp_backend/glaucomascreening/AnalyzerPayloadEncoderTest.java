@@ -0,0 +1,161 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class AnalyzerPayloadEncoderTest {
+
+    private static final int WIDTH = 5;
+    private static final int HEIGHT = 3;
+
+    @Test
+    public void testHeader() {
+        byte[] payload = AnalyzerPayloadEncoder.encode(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR));
+
+        ByteBuffer header = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(22, header.get());
+        assertEquals(HEIGHT, header.getInt());
+        assertEquals(WIDTH, header.getInt());
+        assertEquals(1.0f, header.getFloat());
+        assertEquals(1.0f, header.getFloat());
+        assertEquals(0.0f, header.getFloat());
+        assertEquals(0.0f, header.getFloat());
+        assertEquals(AnalyzerPayloadEncoder.HEADER_SIZE + WIDTH * HEIGHT * 3, payload.length);
+    }
+
+    @Test
+    public void testThreeByteBgrIsCopiedAsIs() {
+        assertMatchesRgb(BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    @Test
+    public void testFourByteAbgrDropsAlpha() {
+        assertMatchesRgb(BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @Test
+    public void testPackedIntLayouts() {
+        assertMatchesRgb(BufferedImage.TYPE_INT_RGB);
+        assertMatchesRgb(BufferedImage.TYPE_INT_ARGB);
+        assertMatchesRgb(BufferedImage.TYPE_INT_BGR);
+    }
+
+    @Test
+    public void testSubimageHonoursRasterOffsets() {
+        for (int type : new int[] { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB }) {
+            BufferedImage image = new BufferedImage(WIDTH + 4, HEIGHT + 3, type);
+            fill(image);
+            BufferedImage subimage = image.getSubimage(2, 1, WIDTH, HEIGHT);
+
+            assertArrayEquals(expectedFromRgb(subimage), pixels(AnalyzerPayloadEncoder.encode(subimage)));
+        }
+    }
+
+    @Test
+    public void testByteGrayIsReplicated() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setSample(3, 1, 0, 180);
+
+        byte[] pixels = pixels(AnalyzerPayloadEncoder.encode(image));
+
+        int index = (WIDTH + 3) * 3;
+        assertArrayEquals(new byte[] { (byte) 180, (byte) 180, (byte) 180 }, Arrays.copyOfRange(pixels, index, index + 3));
+        assertEquals(0, pixels[0]);
+    }
+
+    @Test
+    public void testUShortGrayKeepsHighByte() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_USHORT_GRAY);
+        image.getRaster().setSample(0, 2, 0, 0xABCD);
+
+        byte[] pixels = pixels(AnalyzerPayloadEncoder.encode(image));
+
+        int index = 2 * WIDTH * 3;
+        assertArrayEquals(new byte[] { (byte) 0xAB, (byte) 0xAB, (byte) 0xAB }, Arrays.copyOfRange(pixels, index, index + 3));
+    }
+
+    @Test
+    public void testSixteenBitRgbKeepsHighBytesInBgrOrder() {
+        BufferedImage image = sixteenBitRgb(WIDTH, HEIGHT);
+        image.getRaster().setPixel(4, 0, new int[] { 0x1234, 0x5678, 0x9ABC });
+
+        byte[] pixels = pixels(AnalyzerPayloadEncoder.encode(image));
+
+        int index = 4 * 3;
+        assertArrayEquals(new byte[] { (byte) 0x9A, 0x56, 0x12 }, Arrays.copyOfRange(pixels, index, index + 3));
+    }
+
+    @Test
+    public void testIndexedUsesPalette() {
+        byte[] reds = { 0, 10 };
+        byte[] greens = { 0, 20 };
+        byte[] blues = { 0, 30 };
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_INDEXED,
+                new IndexColorModel(8, 2, reds, greens, blues));
+        image.getRaster().setSample(1, 0, 0, 1);
+
+        byte[] pixels = pixels(AnalyzerPayloadEncoder.encode(image));
+
+        assertArrayEquals(new byte[] { 30, 20, 10 }, Arrays.copyOfRange(pixels, 3, 6));
+    }
+
+    @Test
+    public void testUnsupportedLayoutFallsBackToColorModel() {
+        assertMatchesRgb(BufferedImage.TYPE_BYTE_BINARY);
+        assertMatchesRgb(BufferedImage.TYPE_USHORT_565_RGB);
+    }
+
+    private static void assertMatchesRgb(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        fill(image);
+
+        assertArrayEquals(expectedFromRgb(image), pixels(AnalyzerPayloadEncoder.encode(image)));
+    }
+
+    static void fill(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 40 << 16) | (y * 70 << 8) | ((x + y) * 25));
+            }
+        }
+    }
+
+    static BufferedImage sixteenBitRgb(int width, int height) {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_USHORT);
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, width, height, 3, null);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    private static byte[] expectedFromRgb(BufferedImage image) {
+        byte[] expected = new byte[image.getWidth() * image.getHeight() * 3];
+        int index = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                expected[index++] = (byte) rgb;
+                expected[index++] = (byte) (rgb >> 8);
+                expected[index++] = (byte) (rgb >> 16);
+            }
+        }
+        return expected;
+    }
+
+    private static byte[] pixels(byte[] payload) {
+        return Arrays.copyOfRange(payload, AnalyzerPayloadEncoder.HEADER_SIZE, payload.length);
+    }
+}
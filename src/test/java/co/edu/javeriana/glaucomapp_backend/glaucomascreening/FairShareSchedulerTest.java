@@ -0,0 +1,97 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import co.edu.javeriana.glaucomapp_backend.glaucomascreening.FairShareScheduler.Ticket;
+
+public class FairShareSchedulerTest {
+
+    @Test
+    public void testAcquire_GrantsImmediatelyWhenCapacityIsFree() {
+        FairShareScheduler scheduler = new FairShareScheduler(2, 2, 10);
+
+        CompletableFuture<Ticket> ticket = scheduler.acquire("partner");
+
+        assertTrue(ticket.isDone());
+        assertEquals(1, scheduler.inFlight());
+    }
+
+    @Test
+    public void testAcquire_LimitsConcurrencyPerPrincipal() {
+        FairShareScheduler scheduler = new FairShareScheduler(4, 1, 10);
+
+        CompletableFuture<Ticket> first = scheduler.acquire("partner");
+        CompletableFuture<Ticket> second = scheduler.acquire("partner");
+        CompletableFuture<Ticket> other = scheduler.acquire("doctor");
+
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertTrue(other.isDone());
+
+        first.join().close();
+
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    public void testRelease_ServesLightPrincipalBeforeBurstingPrincipal() {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 1, 100);
+        Ticket running = scheduler.acquire("partner").join();
+
+        CompletableFuture<Ticket> burst1 = scheduler.acquire("partner");
+        CompletableFuture<Ticket> burst2 = scheduler.acquire("partner");
+        CompletableFuture<Ticket> doctor = scheduler.acquire("doctor");
+
+        running.close();
+
+        assertTrue(doctor.isDone());
+        assertFalse(burst1.isDone());
+        assertFalse(burst2.isDone());
+
+        doctor.join().close();
+
+        assertTrue(burst1.isDone());
+        assertFalse(burst2.isDone());
+    }
+
+    @Test
+    public void testAcquire_RejectsWhenQueueIsFull() {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 1, 1);
+        scheduler.acquire("partner");
+        scheduler.acquire("partner");
+
+        assertThrows(ScreeningRejectedException.class, () -> scheduler.acquire("partner"));
+        assertEquals(1, scheduler.queued());
+    }
+
+    @Test
+    public void testCancel_WithdrawsWaiterFromQueue() {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 1, 10);
+        Ticket running = scheduler.acquire("partner").join();
+        CompletableFuture<Ticket> waiting = scheduler.acquire("doctor");
+
+        waiting.cancel(false);
+        running.close();
+
+        assertEquals(0, scheduler.queued());
+        assertEquals(0, scheduler.inFlight());
+    }
+
+    @Test
+    public void testClose_ReleasesSlotOnlyOnce() {
+        FairShareScheduler scheduler = new FairShareScheduler(2, 2, 10);
+        Ticket ticket = scheduler.acquire("partner").join();
+
+        ticket.close();
+        ticket.close();
+
+        assertEquals(0, scheduler.inFlight());
+    }
+}
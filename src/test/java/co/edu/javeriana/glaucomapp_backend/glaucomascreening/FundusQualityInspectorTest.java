@@ -0,0 +1,128 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class FundusQualityInspectorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FundusQualityInspector inspector;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inspector = new FundusQualityInspector(meterRegistry, true, true, 512, 0.2, 0.6, 40, 0.1, 5);
+    }
+
+    @Test
+    public void testSharpFundusIsAccepted() {
+        ImageQualityReport report = inspector.inspect(fundus(1600, 1200, 0xB45A28, 25));
+
+        assertNull(report.issue());
+        assertTrue(report.acceptable());
+        assertTrue(report.fieldCoverage() > 0.4);
+        assertEquals(1.0, report.cornerDarkness());
+        assertTrue(report.sharpness() > 5);
+        assertDoesNotThrow(() -> inspector.check(fundus(1600, 1200, 0xB45A28, 25)));
+    }
+
+    @Test
+    public void testBlurryFundusIsRejected() {
+        ImageQualityReport report = inspector.inspect(fundus(800, 600, 0xB45A28, 0));
+
+        assertEquals(ImageQualityIssue.BLURRY, report.issue());
+        assertTrue(report.sharpness() < 1);
+    }
+
+    @Test
+    public void testPhotoWithoutCircularFieldIsRejected() {
+        BufferedImage photo = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int y = 0; y < photo.getHeight(); y++) {
+            for (int x = 0; x < photo.getWidth(); x++) {
+                photo.setRGB(x, y, 0x606060 + random.nextInt(0x40) * 0x010101);
+            }
+        }
+
+        assertEquals(ImageQualityIssue.NO_FUNDUS_FIELD, inspector.inspect(photo).issue());
+    }
+
+    @Test
+    public void testSaturatedFundusIsRejected() {
+        assertEquals(ImageQualityIssue.OVEREXPOSED, inspector.inspect(fundus(800, 600, 0xFFFFFF, 0)).issue());
+    }
+
+    @Test
+    public void testDarkImagesAreRejected() {
+        assertEquals(ImageQualityIssue.UNDEREXPOSED,
+                inspector.inspect(new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR)).issue());
+        assertEquals(ImageQualityIssue.UNDEREXPOSED, inspector.inspect(fundus(800, 600, 0x281E1E, 3)).issue());
+    }
+
+    @Test
+    public void testRejectionCarriesReportAndIsCounted() {
+        ImageQualityException rejection = assertThrows(ImageQualityException.class,
+                () -> inspector.check(fundus(800, 600, 0xB45A28, 0)));
+
+        assertEquals(ImageQualityIssue.BLURRY, rejection.getReport().issue());
+        assertEquals(1.0, meterRegistry.get("screening.quality.rejections").tag("reason", "BLURRY").counter().count());
+    }
+
+    @Test
+    public void testDisabledInspectorAcceptsEverything() {
+        FundusQualityInspector disabled = new FundusQualityInspector(meterRegistry, false, true, 512, 0.2, 0.6, 40,
+                0.1, 5);
+
+        assertDoesNotThrow(() -> disabled.check(new BufferedImage(64, 64, BufferedImage.TYPE_3BYTE_BGR)));
+    }
+
+    @Test
+    public void testLogOnlyInspectorCountsButAcceptsFailedImages() {
+        FundusQualityInspector logOnly = new FundusQualityInspector(meterRegistry, true, false, 512, 0.2, 0.6, 40,
+                0.1, 5);
+
+        assertDoesNotThrow(() -> logOnly.check(fundus(800, 600, 0xB45A28, 0)));
+        assertEquals(1.0, meterRegistry.get("screening.quality.flagged").tag("reason", "BLURRY").counter().count());
+        assertNull(meterRegistry.find("screening.quality.rejections").counter());
+    }
+
+    /**
+     * Draws a circular field of the given color on a black background, with per-pixel noise of the
+     * given amplitude standing in for vessel detail.
+     */
+    static BufferedImage fundus(int width, int height, int rgb, int noise) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(width);
+        int centerX = width / 2;
+        int centerY = height / 2;
+        long radius = Math.min(width, height) * 45L / 100;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long dx = x - centerX;
+                long dy = y - centerY;
+                if (dx * dx + dy * dy > radius * radius) {
+                    continue;
+                }
+                int offset = noise == 0 ? 0 : random.nextInt(2 * noise + 1) - noise;
+                image.setRGB(x, y, (clamp((rgb >> 16 & 0xFF) + offset) << 16)
+                        | (clamp((rgb >> 8 & 0xFF) + offset) << 8) | clamp((rgb & 0xFF) + offset));
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
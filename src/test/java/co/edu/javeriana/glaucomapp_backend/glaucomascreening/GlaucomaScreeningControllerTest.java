@@ -2,9 +2,14 @@ package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.function.Supplier;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -22,12 +27,17 @@ public class GlaucomaScreeningControllerTest {
     @Mock
     private GlaucomaScreeningService glaucomaScreeningService;
 
+    @Mock
+    private ScreeningAdmissionService screeningAdmissionService;
+
     @Mock
     private MultipartFile mockFile;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        when(screeningAdmissionService.execute(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
     }
 
     // Test de éxito para la carga de imagen
@@ -86,4 +96,29 @@ public class GlaucomaScreeningControllerTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, responseUnexpectedError.getStatusCode());
         assertEquals("An unexpected error occurred.", responseUnexpectedError.getBody());
     }
+
+    // Test para un tamizaje que excede su plazo
+    @Test
+    public void test_upload_image_timeout_returns_504() {
+        doThrow(new ScreeningTimeoutException("Screening stages did not finish within 30000 ms"))
+                .when(glaucomaScreeningService).sendImageToApi(any(MultipartFile.class));
+
+        ResponseEntity<?> response = glaucomaScreeningController.uploadImage(mockFile);
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+    }
+
+    // Test para rechazar solicitudes cuando no hay capacidad de análisis
+    @Test
+    public void test_upload_image_rejected_returns_429() {
+        when(screeningAdmissionService.currentPrincipal()).thenReturn("api-key");
+        doThrow(new ScreeningRejectedException("Screening queue is full, please retry later"))
+                .when(screeningAdmissionService).execute(eq("api-key"), eq(ScreeningChannel.API), any());
+
+        ResponseEntity<?> response = glaucomaScreeningController.uploadImage(mockFile);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("Screening queue is full, please retry later", response.getBody());
+        verify(glaucomaScreeningService, never()).sendImageToApi(any(MultipartFile.class));
+    }
 }
@@ -1,5 +1,9 @@
 package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
 
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +16,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public class GlaucomaScreeningMobileControllerTest {
 
@@ -19,15 +24,32 @@ public class GlaucomaScreeningMobileControllerTest {
     @InjectMocks
     private GlaucomaScreeningController glaucomaScreeningController;
 
+    @InjectMocks
+    private GlaucomaScreeningMobileController glaucomaScreeningMobileController;
+
     @Mock
     private GlaucomaScreeningService glaucomaScreeningService;
 
+    @Mock
+    private PairedScreeningService pairedScreeningService;
+
+    @Mock
+    private ScreeningAdmissionService screeningAdmissionService;
+
+    @Mock
+    private ScreeningJobService screeningJobService;
+
+    @Mock
+    private ScreeningProgressService screeningProgressService;
+
     @Mock
     private MultipartFile mockFile;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        when(screeningAdmissionService.execute(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
     }
 
     // Test de éxito para la carga de imagen
@@ -86,4 +108,121 @@ public class GlaucomaScreeningMobileControllerTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, responseUnexpectedError.getStatusCode());
         assertEquals("An unexpected error occurred.", responseUnexpectedError.getBody());
     }
+
+    // Test de éxito para la carga de ambos ojos
+    @Test
+    public void test_upload_image_pair_success_returns_200() {
+        PairedScreeningResultDTO expectedResult = new PairedScreeningResultDTO();
+        when(screeningAdmissionService.currentPrincipal()).thenReturn("doctor");
+        when(pairedScreeningService.screenPair("doctor", mockFile, mockFile)).thenReturn(expectedResult);
+
+        ResponseEntity<?> response = glaucomaScreeningMobileController.uploadImagePair(mockFile, mockFile);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResult, response.getBody());
+    }
+
+    // Test para manejar un ojo faltante
+    @Test
+    public void test_upload_image_pair_missing_eye_returns_400() {
+        ResponseEntity<?> response = glaucomaScreeningMobileController.uploadImagePair(mockFile, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Both eye images must be provided and non-empty.", response.getBody());
+    }
+
+    // Test para manejar errores del servicio pareado
+    @Test
+    public void test_upload_image_pair_errors_are_mapped() {
+        doThrow(new ScreeningRejectedException("Too many concurrent screenings")).when(pairedScreeningService)
+                .screenPair(any(), any(), any());
+        ResponseEntity<?> responseRejected = glaucomaScreeningMobileController.uploadImagePair(mockFile, mockFile);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, responseRejected.getStatusCode());
+
+        doThrow(new RuntimeException("Client error: Invalid input")).when(pairedScreeningService)
+                .screenPair(any(), any(), any());
+        ResponseEntity<?> responseClientError = glaucomaScreeningMobileController.uploadImagePair(mockFile, mockFile);
+        assertEquals(HttpStatus.BAD_REQUEST, responseClientError.getStatusCode());
+    }
+
+    // Test para imágenes rechazadas por calidad
+    @Test
+    public void test_upload_image_pair_quality_rejection_returns_422() {
+        ImageQualityReport report = new ImageQualityReport(ImageQualityIssue.BLURRY, 0.6, 1, 120, 0, 1.5);
+        doThrow(new ImageQualityException(report)).when(pairedScreeningService).screenPair(any(), any(), any());
+
+        ResponseEntity<?> response = glaucomaScreeningMobileController.uploadImagePair(mockFile, mockFile);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(report, response.getBody());
+    }
+
+    // Test para un tamizaje que excede su plazo
+    @Test
+    public void test_upload_image_timeout_returns_504() {
+        doThrow(new ScreeningTimeoutException("Screening stages did not finish within 30000 ms"))
+                .when(glaucomaScreeningService).sendImageToApi(any(MultipartFile.class));
+
+        ResponseEntity<?> response = glaucomaScreeningMobileController.uploadImage(mockFile);
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+        assertEquals("Screening stages did not finish within 30000 ms", response.getBody());
+    }
+
+    // Test para encolar una imagen
+    @Test
+    public void test_enqueue_image_returns_202_with_location() throws Exception {
+        ScreeningJob job = new ScreeningJob();
+        job.setId(UUID.randomUUID());
+        ScreeningJobDTO dto = new ScreeningJobDTO(job.getId(), ScreeningJobStatus.QUEUED, ScreeningStage.RECEIVED, 0, null, null, null, null);
+        when(screeningAdmissionService.currentPrincipal()).thenReturn("doctor");
+        when(screeningJobService.enqueue("doctor", ScreeningChannel.MOBILE, mockFile)).thenReturn(job);
+        when(screeningJobService.toDto(job)).thenReturn(dto);
+
+        ResponseEntity<?> response = glaucomaScreeningMobileController.enqueueImage(mockFile);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/mobile/glaucoma-screening/jobs/" + job.getId(), response.getHeaders().getLocation().toString());
+        assertEquals(dto, response.getBody());
+    }
+
+    // Test para encolar sin archivo
+    @Test
+    public void test_enqueue_image_no_file_returns_400() {
+        ResponseEntity<?> response = glaucomaScreeningMobileController.enqueueImage(null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    // Test para consultar un trabajo
+    @Test
+    public void test_get_job_returns_200_or_404() {
+        UUID jobId = UUID.randomUUID();
+        ScreeningJobDTO dto = new ScreeningJobDTO(jobId, ScreeningJobStatus.SUCCEEDED, ScreeningStage.DONE, 1, null, null, null, null);
+        when(screeningAdmissionService.currentPrincipal()).thenReturn("doctor");
+        when(screeningJobService.findJob(jobId, "doctor")).thenReturn(Optional.of(dto));
+
+        ResponseEntity<?> found = glaucomaScreeningMobileController.getJob(jobId);
+        assertEquals(HttpStatus.OK, found.getStatusCode());
+        assertEquals(dto, found.getBody());
+
+        ResponseEntity<?> missing = glaucomaScreeningMobileController.getJob(UUID.randomUUID());
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    // Test para seguir el progreso de un trabajo
+    @Test
+    public void test_stream_job_progress_returns_emitter_or_404() {
+        UUID jobId = UUID.randomUUID();
+        SseEmitter emitter = new SseEmitter();
+        when(screeningAdmissionService.currentPrincipal()).thenReturn("doctor");
+        when(screeningProgressService.subscribe(jobId, "doctor")).thenReturn(Optional.of(emitter));
+
+        ResponseEntity<SseEmitter> found = glaucomaScreeningMobileController.streamJobProgress(jobId);
+        assertEquals(HttpStatus.OK, found.getStatusCode());
+        assertEquals(emitter, found.getBody());
+
+        ResponseEntity<SseEmitter> missing = glaucomaScreeningMobileController.streamJobProgress(UUID.randomUUID());
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
 }
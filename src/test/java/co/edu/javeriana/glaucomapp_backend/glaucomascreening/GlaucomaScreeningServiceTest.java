@@ -1,33 +1,52 @@
 package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.common.buffer.PooledBuffer;
 import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import org.junit.jupiter.api.BeforeEach;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 public class GlaucomaScreeningServiceTest {
 
@@ -37,6 +56,19 @@ public class GlaucomaScreeningServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Spy
+    private ScreeningImageDecoder imageDecoder = new ScreeningImageDecoder(12_000_000, 64, 1_000);
+
+    @Spy
+    private BufferPool bufferPool = new BufferPool(new SimpleMeterRegistry(), 64, 16);
+
+    @Spy
+    private FundusQualityInspector qualityInspector = new FundusQualityInspector(new SimpleMeterRegistry(), false, true,
+            512, 0.2, 0.6, 40, 0.1, 5);
+
+    @Spy
+    private OpticDiscLocator opticDiscLocator = new OpticDiscLocator(false, 256, 3, 15);
+
     @InjectMocks
     private GlaucomaScreeningService glaucomaScreeningService;
 
@@ -44,6 +76,7 @@ public class GlaucomaScreeningServiceTest {
     public void setUp() {
         MockitoAnnotations.openMocks(this);
         glaucomaScreeningService.pythonApiUrl = "http://mock-api-url";
+        glaucomaScreeningService.postAnalyzerTimeoutMillis = 5_000;
     }
 
     @Test
@@ -55,14 +88,11 @@ public class GlaucomaScreeningServiceTest {
     }
     @Test
     public void testHandleApiResponse_Error() throws Exception {
-        MultipartFile file = mock(MultipartFile.class);
-        byte[] imageBytes = new byte[] { 1, 2, 3 };
-        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(imageBytes));
-        when(file.getBytes()).thenReturn(imageBytes);
+        AnalyzerRequest request = new AnalyzerRequest(bufferPool.acquire(3), 3, 10, 10, 1);
 
         ResponseEntity<String> response = new ResponseEntity<>("Error", HttpStatus.BAD_REQUEST);
 
-        assertThrows(RuntimeException.class, () -> glaucomaScreeningService.handleApiResponse(file, response));
+        assertThrows(RuntimeException.class, () -> glaucomaScreeningService.handleApiResponse(request, response));
     }
 
     @Test
@@ -108,17 +138,173 @@ public class GlaucomaScreeningServiceTest {
     }
 
 
+    @Test
+    public void testPreprocessImage_GrayscalePng() throws Exception {
+        BufferedImage gray = new BufferedImage(4, 3, BufferedImage.TYPE_BYTE_GRAY);
+        gray.getRaster().setSample(1, 2, 0, 200);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(gray, "png", png);
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(png.toByteArray()));
+
+        AnalyzerRequest request = glaucomaScreeningService.preprocessImage(file);
+        byte[] payload = request.payload().array();
+
+        assertEquals(AnalyzerPayloadEncoder.HEADER_SIZE + 4 * 3 * 3, request.payloadLength());
+        int pixel = AnalyzerPayloadEncoder.HEADER_SIZE + (2 * 4 + 1) * 3;
+        assertEquals((byte) 200, payload[pixel]);
+        assertEquals((byte) 200, payload[pixel + 2]);
+        assertEquals(4, request.width());
+        assertEquals(1, request.subsampling());
+
+        request.close();
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testSendImageToApi_QualityRejection() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR), "png", png);
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(png.toByteArray()));
+        ImageQualityReport report = new ImageQualityReport(ImageQualityIssue.UNDEREXPOSED, 0, 1, 0, 0, 0);
+        doThrow(new ImageQualityException(report)).when(qualityInspector).check(any());
+
+        ImageQualityException rejection = assertThrows(ImageQualityException.class,
+                () -> glaucomaScreeningService.sendImageToApi(file));
+
+        assertEquals(report, rejection.getReport());
+        assertEquals(0, bufferPool.outstandingBytes());
+        assertEquals(64L * 1024 * 1024, imageDecoder.availableBytes());
+    }
+
+    @Test
+    public void testSendImageToApi_ReportsStages() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR), "png", png);
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(png.toByteArray()));
+        GlaucomaScreeningService service = spy(glaucomaScreeningService);
+        ResponseEntity<String> response = new ResponseEntity<>("{}", HttpStatus.OK);
+        ImageProcessingResultDTO result = new ImageProcessingResultDTO();
+        doReturn(response).when(service).sendImageToExternalApi(any());
+        doReturn(result).when(service).handleApiResponse(any(), eq(response));
+        List<ScreeningStage> stages = new ArrayList<>();
+
+        assertEquals(result, service.sendImageToApi(file, stages::add));
+
+        assertEquals(List.of(ScreeningStage.DECODED, ScreeningStage.ANALYZING, ScreeningStage.UPLOADING), stages);
+    }
+
+    @Test
+    public void testPreprocessImage_CropsOpticDiscRegion() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_3BYTE_BGR), "png", png);
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(png.toByteArray()));
+        Rectangle region = new Rectangle(40, 20, 30, 30);
+        doReturn(Optional.of(region)).when(opticDiscLocator).locate(any());
+        long budget = imageDecoder.availableBytes();
+
+        AnalyzerRequest request = glaucomaScreeningService.preprocessImage(file);
+
+        assertTrue(request.isCropped());
+        assertEquals(region, request.region());
+        assertEquals(30, request.width());
+        assertEquals(AnalyzerPayloadEncoder.HEADER_SIZE + 30 * 30 * 3, request.payloadLength());
+        assertEquals(100, request.frame().image().getWidth());
+        // The frame holds its decoding memory until the result has been composited.
+        assertTrue(imageDecoder.availableBytes() < budget);
+
+        request.close();
+        assertEquals(budget, imageDecoder.availableBytes());
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testCompositeIntoFrame() {
+        BufferedImage frame = new BufferedImage(20, 10, BufferedImage.TYPE_BYTE_GRAY);
+        frame.getRaster().setSample(0, 0, 0, 90);
+        BufferedImage overlay = new BufferedImage(4, 3, BufferedImage.TYPE_3BYTE_BGR);
+        overlay.setRGB(1, 2, 0xFF0000);
+
+        BufferedImage result = glaucomaScreeningService.compositeIntoFrame(frame, overlay, new Rectangle(12, 5, 4, 3));
+
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, result.getType());
+        assertEquals(20, result.getWidth());
+        assertEquals(0xFF0000, result.getRGB(13, 7) & 0xFFFFFF);
+        assertEquals(0, result.getRGB(12, 5) & 0xFFFFFF);
+        assertEquals(90, result.getRGB(0, 0) & 0xFF);
+    }
+
+    @Test
+    public void testDecodeBitmap() throws Exception {
+        byte[] pixels = { 1, 2, 3, 4, 5, 6, 7 };
+
+        try (AnalyzerBitmap bitmap = glaucomaScreeningService.decodeBitmap(Base64.getEncoder().encodeToString(pixels))) {
+            assertEquals(pixels.length, bitmap.length());
+            assertArrayEquals(pixels, Arrays.copyOf(bitmap.array(), pixels.length));
+        }
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testUploadOverlay_ShortBitmapOverDirtyBuffer() throws Exception {
+        AnalyzerRequest request = new AnalyzerRequest(bufferPool.acquire(3), 3, 10, 10, 1);
+        // Leave stale bytes in the pooled arrays the bitmap is decoded through.
+        try (PooledBuffer encoded = bufferPool.acquire(1); PooledBuffer decoded = bufferPool.acquire(1)) {
+            Arrays.fill(encoded.array(), (byte) 0x7F);
+            Arrays.fill(decoded.array(), (byte) 0x7F);
+        }
+        byte[] pixels = new byte[10 * 10 * 3 - 3];
+
+        assertThrows(IOException.class, () -> glaucomaScreeningService.uploadOverlay(
+                Base64.getEncoder().encodeToString(pixels), request, "overlay.png"));
+
+        verify(s3Service, never()).uploadImage(any(), anyString());
+        request.close();
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testRescaleMeasurements() {
+        ServerResultDTO result = new ServerResultDTO();
+        result.setDistances(List.of(10.0, 4.0));
+        result.setPerimeters(List.of(100.0, 50.0));
+        result.setAreas(List.of(800.0, 200.0));
+
+        glaucomaScreeningService.rescaleMeasurements(result, 2);
+
+        assertEquals(List.of(20.0, 8.0), result.getDistances());
+        assertEquals(List.of(200.0, 100.0), result.getPerimeters());
+        assertEquals(List.of(3200.0, 800.0), result.getAreas());
+        assertEquals(0.25, glaucomaScreeningService.calculateRatio(result.getAreas()));
+    }
+
+    @Test
+    public void testPreprocessImage_UnsupportedFormat() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+
+        assertThrows(IOException.class, () -> glaucomaScreeningService.preprocessImage(file));
+    }
+
     @Test
     public void testPostprocessImage() throws Exception {
         int width = 10;
         int height = 10;
         byte[] data = new byte[width * height * 3]; // Ensure the array size matches the expected size
 
-        BufferedImage result = glaucomaScreeningService.postprocessImage(data, width, height);
+        data[3] = 10; // blue of pixel (1, 0)
+        data[5] = 30; // red of pixel (1, 0)
+
+        BufferedImage result = glaucomaScreeningService.postprocessImage(data, data.length, width, height);
 
         assertNotNull(result);
         assertEquals(width, result.getWidth());
         assertEquals(height, result.getHeight());
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, result.getType());
+        assertEquals(0x1E000A, result.getRGB(1, 0) & 0xFFFFFF);
     }
 
     @Test
@@ -126,7 +312,7 @@ public class GlaucomaScreeningServiceTest {
         String result = glaucomaScreeningService.generateUniqueImageId();
 
         assertNotNull(result);
-        assertTrue(result.startsWith("image_"));
+        assertTrue(result.startsWith(S3Service.STAGING_PREFIX + "image_"));
         assertTrue(result.endsWith(".png"));
     }
 
@@ -154,10 +340,104 @@ public class GlaucomaScreeningServiceTest {
     }
 
     @Test
-    public void testConfigureObjectMapper() {
-        ObjectMapper objectMapper = glaucomaScreeningService.configureObjectMapper();
+    public void testProcessApiResponseData_RunsStagesConcurrently() throws Exception {
+        // The upload only completes once the URL has been presigned, which deadlocks if the stages run in sequence.
+        CountDownLatch presigned = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            assertTrue(presigned.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(s3Service).uploadImage(any(BufferedImage.class), anyString());
+        when(s3Service.generatePresignedUrl(anyString())).thenAnswer(invocation -> {
+            presigned.countDown();
+            return "https://bucket/" + invocation.getArgument(0);
+        });
+        AnalyzerRequest request = new AnalyzerRequest(bufferPool.acquire(1), 1, 2, 2, 1);
+
+        ImageProcessingResultDTO result = glaucomaScreeningService.processApiResponseData(analyzerResponse(), request);
+
+        assertEquals("https://bucket/" + result.getImageId(), result.getImageUrl());
+        assertEquals(40.0, result.getDistanceRatio());
+        assertEquals(50.0, result.getPerimeterRatio());
+        assertEquals(100.0, result.getNeuroretinalRimPerimeter());
+        request.close();
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testProcessApiResponseData_ContentAddressedOverlay() throws Exception {
+        glaucomaScreeningService.contentAddressedOverlays = true;
+        when(s3Service.uploadImageByContent(any(BufferedImage.class), eq(S3Service.STAGING_PREFIX)))
+                .thenReturn("staging/sha256-abc.png");
+        when(s3Service.generatePresignedUrl("staging/sha256-abc.png")).thenReturn("https://bucket/staging/sha256-abc.png");
+        AnalyzerRequest request = new AnalyzerRequest(bufferPool.acquire(1), 1, 2, 2, 1);
+
+        ImageProcessingResultDTO result = glaucomaScreeningService.processApiResponseData(analyzerResponse(), request);
+
+        assertEquals("staging/sha256-abc.png", result.getImageId());
+        assertEquals("https://bucket/staging/sha256-abc.png", result.getImageUrl());
+        verify(s3Service, never()).uploadImage(any(BufferedImage.class), anyString());
+        request.close();
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testProcessApiResponseData_UploadFailureIsPropagated() throws Exception {
+        doThrow(new RuntimeException("Server error: upload failed")).when(s3Service)
+                .uploadImage(any(BufferedImage.class), anyString());
+        AnalyzerRequest request = new AnalyzerRequest(bufferPool.acquire(1), 1, 2, 2, 1);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> glaucomaScreeningService.processApiResponseData(analyzerResponse(), request));
+
+        assertEquals("Server error: upload failed", failure.getCause().getMessage());
+        request.close();
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testSendImageToApi_StageTimeoutIsPropagated() throws Exception {
+        glaucomaScreeningService.postAnalyzerTimeoutMillis = 50;
+        doAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return null;
+        }).when(s3Service).uploadImage(any(BufferedImage.class), anyString());
+        GlaucomaScreeningService service = spy(glaucomaScreeningService);
+        MultipartFile file = mock(MultipartFile.class);
+        doReturn(new AnalyzerRequest(bufferPool.acquire(1), 1, 2, 2, 1)).when(service).preprocessImage(file);
+        doReturn(analyzerResponse()).when(service).sendImageToExternalApi(any(AnalyzerRequest.class));
 
-        assertNotNull(objectMapper);
+        assertThrows(ScreeningTimeoutException.class, () -> service.sendImageToApi(file));
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testSendImageToApi_AnalyzerRejectionIsPropagated() throws Exception {
+        GlaucomaScreeningService service = spy(glaucomaScreeningService);
+        MultipartFile file = mock(MultipartFile.class);
+        doReturn(new AnalyzerRequest(bufferPool.acquire(1), 1, 2, 2, 1)).when(service).preprocessImage(file);
+        doThrow(HttpClientErrorException.create(HttpStatus.UNPROCESSABLE_ENTITY, "Unprocessable", null, null, null))
+                .when(service).sendImageToExternalApi(any(AnalyzerRequest.class));
+
+        AnalyzerException failure = assertThrows(AnalyzerException.class, () -> service.sendImageToApi(file));
+
+        assertTrue(failure.isClientError());
+        assertTrue(failure.getMessage().contains("Client error"));
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    private static ResponseEntity<String> analyzerResponse() {
+        String bitmap = Base64.getEncoder().encodeToString(new byte[2 * 2 * 3]);
+        return new ResponseEntity<>("{\"image\": {\"bitmap\": \"" + bitmap + "\"}, \"coordinates\": [],"
+                + " \"distances\": [10.0, 4.0], \"perimeters\": [100.0, 50.0], \"areas\": [800.0, 200.0]}",
+                HttpStatus.OK);
+    }
+
+    @Test
+    public void testAnalyzerResponseReaderIsSharedAndAcceptsLargeBitmaps() {
+        ObjectReader reader = glaucomaScreeningService.analyzerResponseReader();
+
+        assertSame(reader, glaucomaScreeningService.analyzerResponseReader());
+        assertEquals(100_000_000, reader.getFactory().streamReadConstraints().getMaxStringLength());
     }
 
     @Test
@@ -165,9 +445,8 @@ public class GlaucomaScreeningServiceTest {
         ResponseEntity<String> response = new ResponseEntity<>(
                 "{\"image\": {\"bitmap\": \"base64Image\"}, \"coordinates\": [1.0, 2.0], \"distances\": [1.0, 2.0], \"perimeters\": [1.0, 2.0], \"areas\": [1.0, 2.0]}",
                 HttpStatus.OK);
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        ServerResultDTO result = glaucomaScreeningService.parseResponse(response, objectMapper);
+        ServerResultDTO result = glaucomaScreeningService.parseResponse(response,
+                glaucomaScreeningService.analyzerResponseReader());
 
         assertNotNull(result);
     }
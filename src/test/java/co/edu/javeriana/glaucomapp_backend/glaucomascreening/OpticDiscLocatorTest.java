@@ -0,0 +1,68 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class OpticDiscLocatorTest {
+
+    private final OpticDiscLocator locator = new OpticDiscLocator(true, 256, 3, 15);
+
+    @Test
+    public void testRegionIsCenteredOnTheDisc() {
+        BufferedImage image = withDisc(FundusQualityInspectorTest.fundus(1600, 1200, 0x8C4628, 10), 1050, 560, 45);
+
+        Optional<Rectangle> region = locator.locate(image);
+
+        assertTrue(region.isPresent());
+        Rectangle roi = region.get();
+        assertTrue(roi.contains(1050, 560));
+        assertTrue(Math.abs(roi.getCenterX() - 1050) < 20);
+        assertTrue(Math.abs(roi.getCenterY() - 560) < 20);
+        // About three disc diameters of a field 1080 pixels wide.
+        assertTrue(roi.width > 400 && roi.width < 700);
+        assertEquals(roi.width, roi.height);
+    }
+
+    @Test
+    public void testRegionIsClippedToTheImage() {
+        BufferedImage image = withDisc(FundusQualityInspectorTest.fundus(1600, 1200, 0x8C4628, 10), 350, 600, 45);
+
+        Rectangle roi = locator.locate(image).orElseThrow();
+
+        assertTrue(roi.x >= 0 && roi.x + roi.width <= 1600);
+        assertTrue(roi.contains(350, 600));
+    }
+
+    @Test
+    public void testNoRegionWithoutABrightDisc() {
+        assertTrue(locator.locate(FundusQualityInspectorTest.fundus(1600, 1200, 0x8C4628, 10)).isEmpty());
+        assertTrue(locator.locate(new BufferedImage(200, 200, BufferedImage.TYPE_3BYTE_BGR)).isEmpty());
+    }
+
+    @Test
+    public void testDisabledLocatorAnalyzesWholeImage() {
+        OpticDiscLocator disabled = new OpticDiscLocator(false, 256, 3, 15);
+        BufferedImage image = withDisc(FundusQualityInspectorTest.fundus(1600, 1200, 0x8C4628, 10), 1050, 560, 45);
+
+        assertTrue(disabled.locate(image).isEmpty());
+    }
+
+    static BufferedImage withDisc(BufferedImage image, int centerX, int centerY, int radius) {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(0xF0D2A0));
+            graphics.fillOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,98 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+public class PairedScreeningServiceTest {
+
+    private GlaucomaScreeningService glaucomaScreeningService;
+    private PairedScreeningService pairedScreeningService;
+    private MultipartFile rightEye;
+    private MultipartFile leftEye;
+
+    @BeforeEach
+    public void setUp() {
+        glaucomaScreeningService = mock(GlaucomaScreeningService.class);
+        ScreeningAdmissionService screeningAdmissionService = mock(ScreeningAdmissionService.class);
+        when(screeningAdmissionService.execute(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+        pairedScreeningService = new PairedScreeningService(glaucomaScreeningService, screeningAdmissionService, 20);
+        rightEye = mock(MultipartFile.class);
+        leftEye = mock(MultipartFile.class);
+    }
+
+    @Test
+    public void testBothEyesAreReturnedWithTheirAsymmetry() {
+        ImageProcessingResultDTO right = result(45.0);
+        ImageProcessingResultDTO left = result(70.5);
+        when(glaucomaScreeningService.sendImageToApi(rightEye)).thenReturn(right);
+        when(glaucomaScreeningService.sendImageToApi(leftEye)).thenReturn(left);
+
+        PairedScreeningResultDTO paired = pairedScreeningService.screenPair("doctor", rightEye, leftEye);
+
+        assertSame(right, paired.getRightEye());
+        assertSame(left, paired.getLeftEye());
+        assertEquals(25.5, paired.getCupDiscAsymmetry());
+        assertTrue(paired.isAsymmetric());
+    }
+
+    @Test
+    public void testAsymmetryBelowThreshold() {
+        PairedScreeningResultDTO paired = pairedScreeningService.buildResult(result(40.0), result(52.25));
+
+        assertEquals(12.25, paired.getCupDiscAsymmetry());
+        assertFalse(paired.isAsymmetric());
+    }
+
+    @Test
+    public void testAsymmetryIsNullWithoutRatios() {
+        assertNull(pairedScreeningService.calculateAsymmetry(result(40.0), new ImageProcessingResultDTO()));
+        assertFalse(pairedScreeningService.buildResult(result(40.0), null).isAsymmetric());
+    }
+
+    @Test
+    public void testFirstFailureCancelsTheOtherEye() throws InterruptedException {
+        CountDownLatch leftStarted = new CountDownLatch(1);
+        CountDownLatch leftInterrupted = new CountDownLatch(1);
+        when(glaucomaScreeningService.sendImageToApi(leftEye)).thenAnswer(invocation -> {
+            leftStarted.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                leftInterrupted.countDown();
+            }
+            return result(50.0);
+        });
+        when(glaucomaScreeningService.sendImageToApi(rightEye)).thenAnswer(invocation -> {
+            leftStarted.await(5, TimeUnit.SECONDS);
+            throw new RuntimeException("Client error: Invalid input");
+        });
+
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> pairedScreeningService.screenPair("doctor", rightEye, leftEye));
+
+        assertEquals("Client error: Invalid input", failure.getMessage());
+        assertTrue(leftInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private static ImageProcessingResultDTO result(double perimeterRatio) {
+        ImageProcessingResultDTO result = new ImageProcessingResultDTO();
+        result.setPerimeterRatio(perimeterRatio);
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ScreeningBulkheadTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ScreeningBulkhead bulkhead;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new ScreeningBulkhead("mobile", 1, 1, 1, 0, 50, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bulkhead.close();
+    }
+
+    @Test
+    public void testExecute_RunsWorkOnBulkheadThread() {
+        String threadName = bulkhead.execute("doctor", () -> Thread.currentThread().getName());
+
+        assertTrue(threadName.startsWith("screening-mobile-"));
+        assertEquals(1.0, meterRegistry.get("screening.bulkhead.execution").tag("bulkhead", "mobile").timer().count());
+    }
+
+    @Test
+    public void testExecute_PropagatesRuntimeExceptions() {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> bulkhead.execute("doctor", () -> {
+                    throw new RuntimeException("Server error from external API: 500");
+                }));
+
+        assertEquals("Server error from external API: 500", error.getMessage());
+    }
+
+    @Test
+    public void testExecute_RejectsWhenPermitsAreExhausted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> bulkhead.execute("doctor", () -> {
+            started.countDown();
+            await(release);
+            return "done";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ScreeningRejectedException.class, () -> bulkhead.execute("other-doctor", () -> "never"));
+
+        release.countDown();
+        assertEquals("done", running.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("screening.bulkhead.rejected").tag("bulkhead", "mobile").counter().count());
+    }
+
+    @Test
+    public void testExecute_InterruptedCallerWaitsForRunningWork() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean workFinished = new AtomicBoolean();
+        AtomicBoolean finishedBeforeReturn = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            try {
+                bulkhead.execute("doctor", () -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        // Still releasing what it holds when the caller is interrupted.
+                        sleepQuietly(100);
+                    }
+                    workFinished.set(true);
+                    return "done";
+                });
+            } catch (IllegalStateException e) {
+                finishedBeforeReturn.set(workFinished.get());
+            }
+        });
+        caller.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        caller.interrupt();
+        caller.join(5_000);
+
+        assertTrue(finishedBeforeReturn.get());
+        assertEquals(0.0, meterRegistry.get("screening.bulkhead.permits.in_use").tag("bulkhead", "mobile").gauge().value());
+    }
+
+    @Test
+    public void testExecute_InterruptedBeforeStartReleasesPermit() throws Exception {
+        try (ScreeningBulkhead queued = new ScreeningBulkhead("api", 1, 2, 1, 0, 1_000, meterRegistry)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> queued.execute("partner", () -> {
+                started.countDown();
+                await(release);
+                return "done";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            AtomicBoolean ran = new AtomicBoolean();
+            Thread caller = new Thread(() -> {
+                try {
+                    queued.execute("other-partner", () -> {
+                        ran.set(true);
+                        return "never";
+                    });
+                } catch (IllegalStateException e) {
+                    // Expected once interrupted.
+                }
+            });
+            caller.start();
+            while (meterRegistry.get("screening.bulkhead.permits.in_use").tag("bulkhead", "api").gauge().value() < 2) {
+                Thread.sleep(5);
+            }
+
+            caller.interrupt();
+            caller.join(5_000);
+
+            assertEquals(1.0, meterRegistry.get("screening.bulkhead.permits.in_use").tag("bulkhead", "api").gauge().value());
+            release.countDown();
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+            assertEquals("ok", queued.execute("partner", () -> "ok"));
+            assertFalse(ran.get());
+        }
+    }
+
+    @Test
+    public void testMetrics_AreTaggedPerBulkhead() {
+        assertNotNull(meterRegistry.get("screening.bulkhead.permits.max").tag("bulkhead", "mobile").gauge());
+        assertEquals(1.0, meterRegistry.get("screening.bulkhead.threads.max").tag("bulkhead", "mobile").gauge().value());
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+public class ScreeningImageDecoderTest {
+
+    @Test
+    public void testSubsamplingFitsPixelBudget() {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(12_000_000, 64, 0);
+
+        assertEquals(1, decoder.subsamplingFor(4000, 3000));
+        assertEquals(2, decoder.subsamplingFor(7360, 4912));
+        assertEquals(3, decoder.subsamplingFor(10000, 10000));
+    }
+
+    @Test
+    public void testSmallImageIsDecodedAtFullSize() throws IOException {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(10_000, 1, 0);
+
+        try (DecodedImage decoded = decoder.decode(png(100, 80))) {
+            assertEquals(100, decoded.image().getWidth());
+            assertEquals(80, decoded.image().getHeight());
+            assertEquals(1, decoded.subsampling());
+        }
+    }
+
+    @Test
+    public void testLargeImageIsSubsampled() throws IOException {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(1_000, 1, 0);
+
+        try (DecodedImage decoded = decoder.decode(png(100, 80))) {
+            assertEquals(3, decoded.subsampling());
+            assertEquals(34, decoded.image().getWidth());
+            assertEquals(27, decoded.image().getHeight());
+            assertEquals(100, decoded.sourceWidth());
+            assertEquals(80, decoded.sourceHeight());
+        }
+    }
+
+    @Test
+    public void testMemoryIsReservedUntilClosed() throws IOException {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(10_000, 1, 0);
+        long budget = decoder.availableBytes();
+
+        DecodedImage decoded = decoder.decode(png(100, 80));
+        // 100 x 80 three-byte pixels round up to 24 KiB.
+        assertEquals(budget - 24 * 1024, decoder.availableBytes());
+
+        decoded.close();
+        decoded.close();
+        assertEquals(budget, decoder.availableBytes());
+    }
+
+    @Test
+    public void testDecodeIsRejectedWhenBudgetIsExhausted() throws IOException {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(10_000_000, 1, 10);
+
+        try (DecodedImage held = decoder.decode(png(1000, 400))) {
+            assertThrows(ScreeningRejectedException.class, () -> decoder.decode(png(10, 10)));
+        }
+        try (DecodedImage decoded = decoder.decode(png(10, 10))) {
+            assertEquals(10, decoded.image().getWidth());
+        }
+    }
+
+    @Test
+    public void testDecodeInPlaceFromBuffer() throws IOException {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(1_000, 1, 0);
+        ByteBuffer contents = ByteBuffer.wrap(png(100, 80).readAllBytes()).asReadOnlyBuffer();
+
+        try (DecodedImage decoded = decoder.decode(contents)) {
+            assertEquals(3, decoded.subsampling());
+            assertEquals(34, decoded.image().getWidth());
+        }
+    }
+
+    @Test
+    public void testUnsupportedFormat() {
+        ScreeningImageDecoder decoder = new ScreeningImageDecoder(10_000, 1, 0);
+
+        assertThrows(IOException.class, () -> decoder.decode(new ByteArrayInputStream(new byte[] { 1, 2, 3 })));
+    }
+
+    private static ByteArrayInputStream png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
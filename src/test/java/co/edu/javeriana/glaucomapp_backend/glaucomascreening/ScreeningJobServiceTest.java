@@ -0,0 +1,194 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+
+public class ScreeningJobServiceTest {
+
+    private ScreeningJobRepository jobRepository;
+    private ScreeningJobImageRepository imageRepository;
+    private ScreeningJobService screeningJobService;
+
+    @BeforeEach
+    public void setUp() {
+        jobRepository = mock(ScreeningJobRepository.class);
+        imageRepository = mock(ScreeningJobImageRepository.class);
+        when(jobRepository.save(any())).thenAnswer(invocation -> {
+            ScreeningJob job = invocation.getArgument(0);
+            job.setId(UUID.randomUUID());
+            return job;
+        });
+        screeningJobService = new ScreeningJobService(jobRepository, imageRepository, 3, 60000, 1000);
+    }
+
+    @Test
+    public void testEnqueueStoresJobAndImage() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "eye.jpg", "image/jpeg", new byte[] { 1, 2, 3 });
+
+        ScreeningJob job = screeningJobService.enqueue("doctor", ScreeningChannel.MOBILE, file);
+
+        assertEquals(ScreeningJobStatus.QUEUED, job.getStatus());
+        assertEquals(ScreeningStage.RECEIVED, job.getStage());
+        assertEquals("doctor", job.getPrincipal());
+        assertEquals(job.getCreatedAt(), job.getAvailableAt());
+        ArgumentCaptor<ScreeningJobImage> image = ArgumentCaptor.forClass(ScreeningJobImage.class);
+        verify(imageRepository).save(image.capture());
+        assertEquals(job.getId(), image.getValue().getJobId());
+        assertEquals("eye.jpg", image.getValue().getOriginalFilename());
+        assertEquals("039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81", image.getValue().getContentHash());
+    }
+
+    @Test
+    public void testClaimLeasesDueJobs() {
+        ScreeningJob queued = job(ScreeningJobStatus.QUEUED, 0, null);
+        when(jobRepository.lockClaimable(any(), any())).thenReturn(List.of(queued));
+
+        List<ScreeningJob> claimed = screeningJobService.claim("worker-1", 4);
+
+        assertEquals(List.of(queued), claimed);
+        assertEquals(ScreeningJobStatus.RUNNING, queued.getStatus());
+        assertEquals(1, queued.getAttempts());
+        assertEquals("worker-1", queued.getLeaseOwner());
+        assertTrue(queued.getLeaseExpiresAt().isAfter(Instant.now().plusSeconds(50)));
+    }
+
+    @Test
+    public void testRecordStageRenewsLease() {
+        UUID id = UUID.randomUUID();
+        when(jobRepository.updateStage(any(), any(), any(), any(), any())).thenReturn(1);
+
+        assertTrue(screeningJobService.recordStage(id, "worker-1", ScreeningStage.ANALYZING));
+
+        ArgumentCaptor<Instant> leaseExpiresAt = ArgumentCaptor.forClass(Instant.class);
+        verify(jobRepository).updateStage(eq(id), eq("worker-1"), eq(ScreeningStage.ANALYZING), any(),
+                leaseExpiresAt.capture());
+        assertTrue(leaseExpiresAt.getValue().isAfter(Instant.now().plusSeconds(50)));
+    }
+
+    @Test
+    public void testRenewLeasesExtendsLeasesFromNow() {
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(jobRepository.renewLeases(any(), any(), any())).thenReturn(2);
+
+        assertEquals(2, screeningJobService.renewLeases(ids, "worker-1"));
+        assertEquals(0, screeningJobService.renewLeases(List.of(), "worker-1"));
+
+        ArgumentCaptor<Instant> leaseExpiresAt = ArgumentCaptor.forClass(Instant.class);
+        verify(jobRepository).renewLeases(eq(ids), eq("worker-1"), leaseExpiresAt.capture());
+        assertTrue(leaseExpiresAt.getValue().isAfter(Instant.now().plusSeconds(50)));
+    }
+
+    @Test
+    public void testClaimFailsExpiredJobsWithoutAttemptsLeft() {
+        ScreeningJob expired = job(ScreeningJobStatus.RUNNING, 3, "dead-worker");
+        when(jobRepository.lockClaimable(any(), any())).thenReturn(List.of(expired));
+
+        List<ScreeningJob> claimed = screeningJobService.claim("worker-1", 4);
+
+        assertTrue(claimed.isEmpty());
+        assertEquals(ScreeningJobStatus.FAILED, expired.getStatus());
+        assertNull(expired.getLeaseOwner());
+        verify(imageRepository).deleteById(expired.getId());
+    }
+
+    @Test
+    public void testCompleteStoresResultOnlyForLeaseOwner() {
+        ScreeningJob running = job(ScreeningJobStatus.RUNNING, 1, "worker-1");
+        when(jobRepository.lockById(running.getId())).thenReturn(Optional.of(running));
+        ImageProcessingResultDTO result = new ImageProcessingResultDTO();
+        result.setImageUrl("https://bucket/eye.png");
+
+        assertFalse(screeningJobService.complete(running.getId(), "worker-2", result));
+        assertEquals(ScreeningJobStatus.RUNNING, running.getStatus());
+
+        assertTrue(screeningJobService.complete(running.getId(), "worker-1", result));
+        assertEquals(ScreeningJobStatus.SUCCEEDED, running.getStatus());
+        assertEquals(ScreeningStage.DONE, running.getStage());
+        assertEquals(result, screeningJobService.toDto(running).getResult());
+        verify(imageRepository).deleteById(running.getId());
+    }
+
+    @Test
+    public void testTransientFailureIsRetriedWithBackoff() {
+        ScreeningJob running = job(ScreeningJobStatus.RUNNING, 2, "worker-1");
+        when(jobRepository.lockById(running.getId())).thenReturn(Optional.of(running));
+
+        Instant before = Instant.now();
+        assertTrue(screeningJobService.fail(running.getId(), "worker-1", new RuntimeException("Server error: 503")));
+
+        assertEquals(ScreeningJobStatus.QUEUED, running.getStatus());
+        assertEquals(ScreeningStage.RECEIVED, running.getStage());
+        assertNull(running.getLeaseOwner());
+        assertFalse(running.getAvailableAt().isBefore(before.plusMillis(2000)));
+        assertEquals("Server error: 503", running.getError());
+        verify(imageRepository, never()).deleteById(any());
+    }
+
+    @Test
+    public void testFailureOnLastAttemptIsFinal() {
+        ScreeningJob running = job(ScreeningJobStatus.RUNNING, 3, "worker-1");
+        when(jobRepository.lockById(running.getId())).thenReturn(Optional.of(running));
+
+        screeningJobService.fail(running.getId(), "worker-1", new RuntimeException("Server error: 503"));
+
+        assertEquals(ScreeningJobStatus.FAILED, running.getStatus());
+        verify(imageRepository).deleteById(running.getId());
+    }
+
+    @Test
+    public void testPermanentFailuresAreNotRetried() {
+        ImageQualityReport report = new ImageQualityReport(ImageQualityIssue.BLURRY, 0.6, 1, 120, 0, 1.5);
+
+        assertFalse(screeningJobService.isRetryable(new ImageQualityException(report)));
+        assertFalse(screeningJobService.isRetryable(
+                new AnalyzerException(HttpStatus.BAD_REQUEST, "Client error from external API: 400", null)));
+        assertTrue(screeningJobService.isRetryable(
+                new AnalyzerException(HttpStatus.BAD_GATEWAY, "Server error from external API: 502", null)));
+        assertFalse(screeningJobService.isRetryable(new UncheckedIOException(new IOException("Corrupt image"))));
+        assertTrue(screeningJobService.isRetryable(new ScreeningRejectedException("Too many concurrent screenings")));
+    }
+
+    @Test
+    public void testStageOfLegacyJobsFollowsStatus() {
+        ScreeningJob legacy = job(ScreeningJobStatus.FAILED, 3, null);
+        legacy.setStage(null);
+
+        assertEquals(ScreeningStage.FAILED, screeningJobService.toDto(legacy).getStage());
+
+        legacy.setStatus(ScreeningJobStatus.QUEUED);
+        assertEquals(ScreeningStage.RECEIVED, screeningJobService.toDto(legacy).getStage());
+    }
+
+    private static ScreeningJob job(ScreeningJobStatus status, int attempts, String leaseOwner) {
+        ScreeningJob job = new ScreeningJob();
+        job.setId(UUID.randomUUID());
+        job.setPrincipal("doctor");
+        job.setChannel(ScreeningChannel.MOBILE);
+        job.setStatus(status);
+        job.setAttempts(attempts);
+        job.setLeaseOwner(leaseOwner);
+        job.setAvailableAt(Instant.now());
+        return job;
+    }
+}
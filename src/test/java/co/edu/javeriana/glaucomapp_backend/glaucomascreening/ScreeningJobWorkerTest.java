@@ -0,0 +1,139 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.multipart.MultipartFile;
+
+public class ScreeningJobWorkerTest {
+
+    private ScreeningJobService screeningJobService;
+    private GlaucomaScreeningService glaucomaScreeningService;
+    private ScreeningJobWorker worker;
+
+    @BeforeEach
+    public void setUp() {
+        screeningJobService = mock(ScreeningJobService.class);
+        glaucomaScreeningService = mock(GlaucomaScreeningService.class);
+        ScreeningAdmissionService screeningAdmissionService = mock(ScreeningAdmissionService.class);
+        when(screeningAdmissionService.execute(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+        worker = new ScreeningJobWorker(screeningJobService, glaucomaScreeningService, screeningAdmissionService, 2, 10);
+    }
+
+    @Test
+    public void testProcessCompletesJobWithStoredImage() throws Exception {
+        ScreeningJob job = job();
+        when(screeningJobService.loadImage(job.getId())).thenReturn(Optional.of(
+                new ScreeningJobImage(job.getId(), "eye.jpg", "image/jpeg", "hash", new byte[] { 7, 8 })));
+        ImageProcessingResultDTO result = new ImageProcessingResultDTO();
+        when(glaucomaScreeningService.sendImageToApi(any(), any())).thenReturn(result);
+        when(screeningJobService.complete(any(), any(), any())).thenReturn(true);
+
+        worker.process(job);
+
+        ArgumentCaptor<MultipartFile> file = ArgumentCaptor.forClass(MultipartFile.class);
+        verify(glaucomaScreeningService).sendImageToApi(file.capture(), any());
+        assertEquals("eye.jpg", file.getValue().getOriginalFilename());
+        assertEquals(2, file.getValue().getBytes().length);
+        verify(screeningJobService).complete(job.getId(), worker.workerId(), result);
+    }
+
+    @Test
+    public void testProcessReportsFailures() {
+        ScreeningJob job = job();
+        when(screeningJobService.loadImage(job.getId())).thenReturn(Optional.of(
+                new ScreeningJobImage(job.getId(), "eye.jpg", "image/jpeg", "hash", new byte[] { 7 })));
+        RuntimeException failure = new RuntimeException("Server error: 503");
+        doThrow(failure).when(glaucomaScreeningService).sendImageToApi(any(), any());
+
+        worker.process(job);
+
+        verify(screeningJobService).fail(job.getId(), worker.workerId(), failure);
+        verify(screeningJobService, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    public void testPollOnceClaimsOnlyFreeSlots() throws Exception {
+        ScreeningJob job = job();
+        when(screeningJobService.claim(any(), eq(2))).thenReturn(List.of(job));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            assertEquals(1, worker.pollOnce(executor));
+        }
+
+        verify(screeningJobService).claim(worker.workerId(), 2);
+        verify(screeningJobService).fail(eq(job.getId()), eq(worker.workerId()), any());
+    }
+
+    @Test
+    public void testProcessRecordsStages() {
+        ScreeningJob job = job();
+        when(screeningJobService.loadImage(job.getId())).thenReturn(Optional.of(
+                new ScreeningJobImage(job.getId(), "eye.jpg", "image/jpeg", "hash", new byte[] { 7 })));
+        when(glaucomaScreeningService.sendImageToApi(any(), any())).thenAnswer(invocation -> {
+            invocation.<ScreeningProgressListener>getArgument(1).onStage(ScreeningStage.ANALYZING);
+            return new ImageProcessingResultDTO();
+        });
+        doThrow(new RuntimeException("Connection refused")).when(screeningJobService)
+                .recordStage(any(), any(), eq(ScreeningStage.ANALYZING));
+
+        worker.process(job);
+
+        verify(screeningJobService).recordStage(job.getId(), worker.workerId(), ScreeningStage.ANALYZING);
+        verify(screeningJobService).complete(eq(job.getId()), eq(worker.workerId()), any());
+    }
+
+    @Test
+    public void testRenewsLeasesOfRunningJobsOnly() throws Exception {
+        ScreeningJob job = job();
+        when(screeningJobService.loadImage(job.getId())).thenReturn(Optional.of(
+                new ScreeningJobImage(job.getId(), "eye.jpg", "image/jpeg", "hash", new byte[] { 7 })));
+        CountDownLatch analyzing = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+        when(glaucomaScreeningService.sendImageToApi(any(), any())).thenAnswer(invocation -> {
+            analyzing.countDown();
+            respond.await();
+            return new ImageProcessingResultDTO();
+        });
+        when(screeningJobService.renewLeases(any(), any())).thenReturn(1);
+
+        // Mientras el analizador responde, el latido renueva la concesión del trabajo en curso
+        Thread attempt = Thread.ofVirtual().start(() -> worker.process(job));
+        analyzing.await();
+        worker.renewLeases();
+        respond.countDown();
+        attempt.join();
+        worker.renewLeases();
+
+        verify(screeningJobService).renewLeases(List.of(job.getId()), worker.workerId());
+        verify(screeningJobService).renewLeases(List.of(), worker.workerId());
+    }
+
+    private static ScreeningJob job() {
+        ScreeningJob job = new ScreeningJob();
+        job.setId(UUID.randomUUID());
+        job.setPrincipal("doctor");
+        job.setChannel(ScreeningChannel.MOBILE);
+        job.setStatus(ScreeningJobStatus.RUNNING);
+        job.setAttempts(1);
+        return job;
+    }
+}
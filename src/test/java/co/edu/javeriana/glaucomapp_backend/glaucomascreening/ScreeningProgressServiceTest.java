@@ -0,0 +1,77 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ScreeningProgressServiceTest {
+
+    private ScreeningJobService screeningJobService;
+    private ScreeningProgressService screeningProgressService;
+
+    @BeforeEach
+    public void setUp() {
+        screeningJobService = mock(ScreeningJobService.class);
+        screeningProgressService = new ScreeningProgressService(screeningJobService, 60_000, 10, 60_000);
+    }
+
+    @Test
+    public void testUnknownJobHasNoStream() {
+        when(screeningJobService.findJob(any(), any())).thenReturn(Optional.empty());
+
+        assertTrue(screeningProgressService.subscribe(UUID.randomUUID(), "doctor").isEmpty());
+        assertEquals(0, screeningProgressService.followedJobs());
+    }
+
+    @Test
+    public void testFinishedJobIsNotFollowed() {
+        UUID jobId = UUID.randomUUID();
+        when(screeningJobService.findJob(jobId, "doctor")).thenReturn(Optional.of(dto(jobId, ScreeningStage.DONE)));
+
+        assertTrue(screeningProgressService.subscribe(jobId, "doctor").isPresent());
+        assertEquals(0, screeningProgressService.followedJobs());
+    }
+
+    @Test
+    public void testRunningJobIsFollowedUntilItFinishes() {
+        UUID jobId = UUID.randomUUID();
+        when(screeningJobService.findJob(jobId, "doctor")).thenReturn(Optional.of(dto(jobId, ScreeningStage.ANALYZING)));
+        screeningProgressService.subscribe(jobId, "doctor");
+        screeningProgressService.subscribe(jobId, "doctor");
+        assertEquals(1, screeningProgressService.followedJobs());
+
+        ScreeningJob job = new ScreeningJob();
+        job.setId(jobId);
+        when(screeningJobService.findJobs(any())).thenReturn(List.of(job));
+        when(screeningJobService.toDto(job)).thenReturn(dto(jobId, ScreeningStage.UPLOADING));
+        screeningProgressService.pollOnce();
+        assertEquals(1, screeningProgressService.followedJobs());
+
+        when(screeningJobService.toDto(job)).thenReturn(dto(jobId, ScreeningStage.DONE));
+        screeningProgressService.pollOnce();
+        assertEquals(0, screeningProgressService.followedJobs());
+    }
+
+    @Test
+    public void testNoQueryWithoutFollowers() {
+        screeningProgressService.pollOnce();
+
+        verify(screeningJobService, never()).findJobs(any());
+    }
+
+    private static ScreeningJobDTO dto(UUID jobId, ScreeningStage stage) {
+        ScreeningJobStatus status = stage == ScreeningStage.DONE ? ScreeningJobStatus.SUCCEEDED : ScreeningJobStatus.RUNNING;
+        return new ScreeningJobDTO(jobId, status, stage, 1, null, null, null, null);
+    }
+}
@@ -0,0 +1,89 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ScreeningTaskScopeTest {
+
+    @Test
+    public void testStagesRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        try (ScreeningTaskScope scope = new ScreeningTaskScope("test-", Duration.ofSeconds(5))) {
+            Future<String> first = scope.fork(() -> {
+                bothStarted.countDown();
+                return bothStarted.await(5, TimeUnit.SECONDS) ? "first" : "alone";
+            });
+            Future<String> second = scope.fork(() -> {
+                bothStarted.countDown();
+                return bothStarted.await(5, TimeUnit.SECONDS) ? "second" : "alone";
+            });
+            scope.join();
+
+            assertEquals("first", first.resultNow());
+            assertEquals("second", second.resultNow());
+        }
+    }
+
+    @Test
+    public void testFirstFailureCancelsOtherStages() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        IllegalArgumentException failure = new IllegalArgumentException("Client error: bad bitmap");
+
+        try (ScreeningTaskScope scope = new ScreeningTaskScope("test-", null)) {
+            scope.fork(() -> sleepUntilInterrupted(interrupted));
+            scope.fork(() -> {
+                throw failure;
+            });
+
+            assertSame(failure, assertThrows(IllegalArgumentException.class, scope::join));
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDeadlineCancelsOtherStages() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (ScreeningTaskScope scope = new ScreeningTaskScope("test-", Duration.ofMillis(50))) {
+            scope.fork(() -> sleepUntilInterrupted(interrupted));
+
+            IllegalStateException timeout = assertThrows(IllegalStateException.class, scope::join);
+            assertTrue(timeout.getMessage().contains("50 ms"));
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCheckedFailureIsUnwrapped() {
+        try (ScreeningTaskScope scope = new ScreeningTaskScope("test-", null)) {
+            scope.fork(() -> {
+                throw new IOException("Corrupt bitmap");
+            });
+
+            UncheckedIOException failure = assertThrows(UncheckedIOException.class, scope::join);
+            assertInstanceOf(IOException.class, failure.getCause());
+        }
+    }
+
+    private static String sleepUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(30_000);
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+        }
+        return "late";
+    }
+}
@@ -0,0 +1,91 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ScreeningWarmUpTest {
+
+    private ScreeningImageDecoder imageDecoder;
+    private BufferPool bufferPool;
+    private GlaucomaScreeningService glaucomaScreeningService;
+    private ScreeningWarmUp warmUp;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        imageDecoder = new ScreeningImageDecoder(12_000_000, 64, 1_000);
+        bufferPool = new BufferPool(meterRegistry, 64, 16);
+        FundusQualityInspector qualityInspector = new FundusQualityInspector(meterRegistry, true, true, 512, 0.2, 0.6, 40,
+                0.1, 5);
+        OpticDiscLocator opticDiscLocator = new OpticDiscLocator(true, 256, 3, 15);
+        AnalyzerClientConfig analyzerClientConfig = new AnalyzerClientConfig();
+        HttpClient analyzerHttpClient = analyzerClientConfig.analyzerHttpClient(200);
+        glaucomaScreeningService = new GlaucomaScreeningService(mock(S3Service.class),
+                analyzerClientConfig.analyzerRestTemplate(analyzerHttpClient, 1_000), imageDecoder, bufferPool,
+                qualityInspector, opticDiscLocator);
+        warmUp = new ScreeningWarmUp(glaucomaScreeningService, imageDecoder, qualityInspector, opticDiscLocator,
+                bufferPool, analyzerHttpClient, 2, 200);
+    }
+
+    @Test
+    public void testPipelineWarmUpReleasesEverything() throws Exception {
+        long budget = imageDecoder.availableBytes();
+
+        warmUp.warmUpPipeline();
+
+        assertEquals(budget, imageDecoder.availableBytes());
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testUnreachableAnalyzerDoesNotFailStartup() {
+        glaucomaScreeningService.pythonApiUrl = "http://127.0.0.1:1/analyze";
+        assertDoesNotThrow(() -> warmUp.run(null));
+
+        glaucomaScreeningService.pythonApiUrl = null;
+        assertDoesNotThrow(() -> warmUp.run(null));
+    }
+
+    @Test
+    public void testScreeningsReuseTheWarmedUpConnection() throws Exception {
+        List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+        HttpServer analyzer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        analyzer.createContext("/analyze", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : 2);
+            exchange.getResponseBody().write("{}".getBytes());
+            exchange.close();
+        });
+        analyzer.start();
+        try {
+            glaucomaScreeningService.pythonApiUrl = "http://127.0.0.1:" + analyzer.getAddress().getPort() + "/analyze";
+
+            // La conexión abierta por el calentamiento es la que usa el primer tamizaje
+            warmUp.warmUpAnalyzerConnection();
+            try (AnalyzerRequest request = new AnalyzerRequest(bufferPool.acquire(3), 3, 1, 1, 1)) {
+                glaucomaScreeningService.sendImageToExternalApi(request);
+            }
+
+            assertEquals(2, clientPorts.size());
+            assertEquals(clientPorts.get(0), clientPorts.get(1));
+        } finally {
+            analyzer.stop(0);
+        }
+    }
+}
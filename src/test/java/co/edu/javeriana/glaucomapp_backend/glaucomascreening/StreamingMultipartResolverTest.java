@@ -0,0 +1,165 @@
+package co.edu.javeriana.glaucomapp_backend.glaucomascreening;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StreamingMultipartResolverTest {
+
+    private static final String BOUNDARY = "----screening-boundary";
+
+    @TempDir
+    Path spillDirectory;
+
+    private BufferPool bufferPool;
+    private StreamingMultipartResolver resolver;
+
+    @BeforeEach
+    public void setUp() {
+        bufferPool = new BufferPool(new SimpleMeterRegistry(), 4, 8);
+        resolver = new StreamingMultipartResolver(bufferPool, DataSize.ofMegabytes(1), DataSize.ofMegabytes(2),
+                DataSize.ofKilobytes(16), spillDirectory);
+    }
+
+    @Test
+    public void testSmallFileIsKeptInMemory() throws Exception {
+        byte[] image = bytes(1_000);
+        MockHttpServletRequest request = multipart(image, "left");
+
+        assertTrue(resolver.isMultipart(request));
+        MultipartHttpServletRequest resolved = resolver.resolveMultipart(request);
+
+        IngestedMultipartFile file = (IngestedMultipartFile) resolved.getFile("file");
+        assertFalse(file.isSpilled());
+        assertEquals("fundus.jpg", file.getOriginalFilename());
+        assertEquals("image/jpeg", file.getContentType());
+        assertArrayEquals(image, file.getBytes());
+        assertArrayEquals(image, file.getInputStream().readAllBytes());
+        assertEquals(sha256(image), file.contentHash());
+        assertEquals("left", resolved.getParameter("eye"));
+
+        resolver.cleanupMultipart(resolved);
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testLargeFileIsSpilledAndMapped() throws Exception {
+        byte[] image = bytes(100_000);
+        MultipartHttpServletRequest resolved = resolver.resolveMultipart(multipart(image, "right"));
+
+        IngestedMultipartFile file = (IngestedMultipartFile) resolved.getFile("file");
+        assertTrue(file.isSpilled());
+        assertEquals(image.length, file.getSize());
+        assertArrayEquals(image, file.getBytes());
+        assertEquals(sha256(image), file.contentHash());
+        assertEquals(0, bufferPool.outstandingBytes());
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(1, files.count());
+        }
+
+        resolver.cleanupMultipart(resolved);
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testFileAtThresholdStaysInMemory() throws Exception {
+        byte[] image = bytes(16 * 1024);
+        MultipartHttpServletRequest resolved = resolver.resolveMultipart(multipart(image, "left"));
+
+        IngestedMultipartFile file = (IngestedMultipartFile) resolved.getFile("file");
+        assertFalse(file.isSpilled());
+        assertEquals(image.length, file.getSize());
+        resolver.cleanupMultipart(resolved);
+    }
+
+    @Test
+    public void testSmallFileDoesNotBorrowThresholdSizedBuffer() throws Exception {
+        StreamingMultipartResolver resolver = new StreamingMultipartResolver(bufferPool, DataSize.ofMegabytes(4),
+                DataSize.ofMegabytes(4), DataSize.ofMegabytes(1), spillDirectory);
+        MultipartHttpServletRequest resolved = resolver.resolveMultipart(multipart(bytes(1_000), "left"));
+
+        assertEquals(64 * 1024, bufferPool.outstandingBytes());
+
+        resolver.cleanupMultipart(resolved);
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testBufferGrowsWithFileBelowThreshold() throws Exception {
+        StreamingMultipartResolver resolver = new StreamingMultipartResolver(bufferPool, DataSize.ofMegabytes(4),
+                DataSize.ofMegabytes(4), DataSize.ofMegabytes(1), spillDirectory);
+        byte[] image = bytes(300_000);
+        MultipartHttpServletRequest resolved = resolver.resolveMultipart(multipart(image, "left"));
+
+        IngestedMultipartFile file = (IngestedMultipartFile) resolved.getFile("file");
+        assertFalse(file.isSpilled());
+        assertArrayEquals(image, file.getBytes());
+        assertEquals(sha256(image), file.contentHash());
+        assertEquals(512 * 1024, bufferPool.outstandingBytes());
+
+        resolver.cleanupMultipart(resolved);
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testFileAboveLimitIsRejected() throws Exception {
+        MockHttpServletRequest request = multipart(bytes(1_100_000), "left");
+
+        assertThrows(MaxUploadSizeExceededException.class, () -> resolver.resolveMultipart(request));
+        assertEquals(0, bufferPool.outstandingBytes());
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static MockHttpServletRequest multipart(byte[] image, String eye) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"eye\"\r\n\r\n"
+                + eye + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"fundus.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(image);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/mobile/glaucoma-screening/process");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.toByteArray());
+        return request;
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,103 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ImageDeletionOutboxTest {
+
+    private ImageDeletionRepository repository;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageDeletionOutbox outbox;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(ImageDeletionRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        outbox = new ImageDeletionOutbox(repository, meterRegistry, 100, 1000, 60000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRecordStoresDistinctKeys() {
+        outbox.record(Arrays.asList("a.png", null, "a.png", "b.png"));
+
+        ArgumentCaptor<List<ImageDeletion>> deletions = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(deletions.capture());
+        assertEquals(List.of("a.png", "b.png"), deletions.getValue().stream().map(ImageDeletion::getObjectKey).toList());
+        assertEquals(2, outbox.backlog());
+    }
+
+    @Test
+    public void testCancelDropsPendingDeletions() {
+        outbox.record(List.of("a.png", "b.png"));
+        when(repository.deleteByObjectKey("a.png")).thenReturn(1);
+
+        outbox.cancel("a.png");
+
+        assertEquals(1, outbox.backlog());
+    }
+
+    @Test
+    public void testDispatchRemovesDeletedRowsAndBacksOffFailures() {
+        ImageDeletion deleted = deletion("a.png", 0);
+        ImageDeletion failed = deletion("b.png", 2);
+        when(repository.lockDue(any(), any())).thenReturn(List.of(deleted, failed));
+        when(repository.count()).thenReturn(1L);
+
+        Instant before = Instant.now();
+        int dispatched = outbox.dispatchOnce(keys -> Map.of("b.png", "SlowDown: Reduce your request rate"));
+
+        assertEquals(2, dispatched);
+        verify(repository).delete(deleted);
+        verify(repository, never()).delete(failed);
+        assertEquals(3, failed.getAttempts());
+        assertFalse(failed.getAvailableAt().isBefore(before.plusMillis(4000)));
+        assertEquals("SlowDown: Reduce your request rate", failed.getLastError());
+        assertEquals(1, outbox.backlog());
+        assertEquals(1.0, meterRegistry.get("image.deletion.deleted").counter().count());
+        assertEquals(1.0, meterRegistry.get("image.deletion.failed").counter().count());
+        assertEquals(1.0, meterRegistry.get("image.deletion.backlog").gauge().value());
+    }
+
+    @Test
+    public void testDispatchBackoffIsCapped() {
+        ImageDeletion failed = deletion("a.png", 40);
+        when(repository.lockDue(any(), any())).thenReturn(List.of(failed));
+
+        Instant before = Instant.now();
+        outbox.dispatchOnce(keys -> {
+            throw new IllegalStateException("Connection refused");
+        });
+
+        assertTrue(failed.getAvailableAt().isBefore(before.plusMillis(61000)));
+        assertEquals("Error deleting file: Connection refused", failed.getLastError());
+    }
+
+    private static ImageDeletion deletion(String key, int attempts) {
+        ImageDeletion deletion = new ImageDeletion();
+        deletion.setId(UUID.randomUUID());
+        deletion.setObjectKey(key);
+        deletion.setAttempts(attempts);
+        deletion.setAvailableAt(Instant.now());
+        deletion.setCreatedAt(Instant.now());
+        return deletion;
+    }
+}
@@ -0,0 +1,164 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ImageDiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageDiskCache cache;
+    private AtomicInteger downloads;
+    private ImageDiskCache.Loader loader;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        clock = new MutableClock(Instant.parse("2024-03-01T10:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ImageDiskCache(meterRegistry, directory, 250, Duration.ofMinutes(30), clock);
+        downloads = new AtomicInteger();
+        loader = (key, target) -> {
+            downloads.incrementAndGet();
+            Files.write(target, new byte[100]);
+            return Optional.of(new ImageDiskCache.Metadata("image/png", "\"" + key + "\""));
+        };
+    }
+
+    @Test
+    public void testHitsAreServedFromDisk() {
+        StoredImage first = cache.get("a.png", loader).orElseThrow();
+        StoredImage second = cache.get("a.png", loader).orElseThrow();
+
+        assertEquals(1, downloads.get());
+        assertEquals(100, second.size());
+        assertEquals("\"a.png\"", second.etag());
+        first.content().position(50);
+        assertEquals(0, second.content().position());
+        assertEquals(1.0, meterRegistry.get("image.cache.hits").counter().count());
+        assertEquals(1.0, meterRegistry.get("image.cache.misses").counter().count());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedImagesAreEvictedBeyondBudget() throws Exception {
+        cache.get("a.png", loader);
+        cache.get("b.png", loader);
+        cache.get("a.png", loader);
+        cache.get("c.png", loader);
+
+        assertEquals(200, cache.cachedBytes());
+        try (Stream<Path> files = Files.list(cache.directory())) {
+            assertEquals(2, files.count());
+        }
+        assertEquals(1.0, meterRegistry.get("image.cache.evictions").counter().count());
+        cache.get("b.png", loader);
+        assertEquals(4, downloads.get());
+    }
+
+    @Test
+    public void testExpiredImagesAreLoadedAgain() {
+        cache.get("a.png", loader);
+        clock.advance(Duration.ofMinutes(31));
+
+        cache.get("a.png", loader);
+
+        assertEquals(2, downloads.get());
+        assertEquals(100, cache.cachedBytes());
+    }
+
+    @Test
+    public void testInvalidateDeletesCachedFile() throws Exception {
+        cache.get("a.png", loader);
+
+        cache.invalidate("a.png");
+
+        assertEquals(0, cache.cachedBytes());
+        try (Stream<Path> files = Files.list(cache.directory())) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testMissingObjectsAreNotCached() {
+        assertFalse(cache.get("missing.png", (key, target) -> Optional.empty()).isPresent());
+        assertTrue(cache.get("a.png", loader).isPresent());
+        assertEquals(100, cache.cachedBytes());
+    }
+
+    @Test
+    public void testInstancesSharingABaseDirectoryKeepSeparateFiles() throws Exception {
+        cache.get("a.png", loader);
+
+        // Otra instancia con el mismo directorio base no debe borrar ni pisar los archivos de la primera
+        ImageDiskCache other = new ImageDiskCache(new SimpleMeterRegistry(), directory, 250, Duration.ofMinutes(30), clock);
+        other.get("b.png", loader);
+
+        assertNotEquals(cache.directory(), other.directory());
+        assertEquals(100, cache.get("a.png", loader).orElseThrow().size());
+        assertEquals(2, downloads.get());
+        try (Stream<Path> files = Files.list(cache.directory())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testCloseDeletesOwnDirectory() {
+        cache.get("a.png", loader);
+
+        cache.close();
+
+        assertEquals(0, cache.cachedBytes());
+        assertFalse(Files.exists(cache.directory()));
+        assertTrue(Files.isDirectory(directory));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
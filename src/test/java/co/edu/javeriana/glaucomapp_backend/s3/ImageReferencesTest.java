@@ -0,0 +1,82 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ImageReferencesTest {
+
+    private ImageReferenceRepository repository;
+    private ImageDeletionOutbox imageDeletionOutbox;
+    private ImageReferences imageReferences;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(ImageReferenceRepository.class);
+        imageDeletionOutbox = mock(ImageDeletionOutbox.class);
+        imageReferences = new ImageReferences(repository, imageDeletionOutbox);
+    }
+
+    @Test
+    public void testFirstRetainCreatesCountAndCancelsPendingDeletion() {
+        ImageReference created = new ImageReference("a.png", 0);
+        when(repository.lockByKey("a.png")).thenReturn(Optional.of(created));
+
+        imageReferences.retain("a.png");
+
+        verify(repository).createIfMissing("a.png");
+        assertEquals(1, created.getReferenceCount());
+        verify(imageDeletionOutbox).cancel("a.png");
+    }
+
+    @Test
+    public void testRetainCreatesCountAgainWhenReleasedBeforeLock() {
+        // Otra transaccion elimina la fila entre la insercion y el bloqueo
+        ImageReference created = new ImageReference("a.png", 0);
+        when(repository.lockByKey("a.png")).thenReturn(Optional.empty(), Optional.of(created));
+
+        imageReferences.retain("a.png");
+
+        verify(repository, times(2)).createIfMissing("a.png");
+        assertEquals(1, created.getReferenceCount());
+        verify(imageDeletionOutbox).cancel("a.png");
+    }
+
+    @Test
+    public void testRetainIncrementsExistingCount() {
+        ImageReference reference = new ImageReference("a.png", 2);
+        when(repository.lockByKey("a.png")).thenReturn(Optional.of(reference));
+
+        imageReferences.retain("a.png");
+
+        assertEquals(3, reference.getReferenceCount());
+        verify(imageDeletionOutbox, never()).cancel(any());
+    }
+
+    @Test
+    public void testReleaseReturnsKeysWithoutReferencesLeft() {
+        ImageReference shared = new ImageReference("shared.png", 3);
+        ImageReference last = new ImageReference("last.png", 2);
+        when(repository.lockByKey("shared.png")).thenReturn(Optional.of(shared));
+        when(repository.lockByKey("last.png")).thenReturn(Optional.of(last));
+        when(repository.lockByKey("untracked.png")).thenReturn(Optional.empty());
+
+        List<String> unreferenced = imageReferences.release(
+                Arrays.asList("shared.png", "last.png", "last.png", "untracked.png", null));
+
+        assertEquals(List.of("last.png", "untracked.png"), unreferenced.stream().sorted().toList());
+        assertEquals(2, shared.getReferenceCount());
+        verify(repository).delete(last);
+    }
+}
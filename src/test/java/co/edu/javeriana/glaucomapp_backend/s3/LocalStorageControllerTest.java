@@ -0,0 +1,82 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LocalStorageControllerTest {
+
+    @TempDir
+    Path root;
+
+    private LocalStorageService storage;
+    private LocalStorageController controller;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Clock clock = Clock.systemUTC();
+        storage = new LocalStorageService(new BufferPool(new SimpleMeterRegistry(), 64, 16),
+                new PresignedUrlCache(new SimpleMeterRegistry(), Duration.ofMinutes(60), 0.5, 100, clock),
+                mock(ImageDeletionOutbox.class), mock(ImageReferences.class), root, "http://localhost:8080", "test-signing-key", clock);
+        controller = new LocalStorageController(storage);
+        storage.uploadImage(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "eye.png");
+    }
+
+    @Test
+    public void testServesObjectWithValidSignature() throws Exception {
+        String url = storage.generatePresignedUrl("eye.png");
+        String expires = url.replaceAll(".*expires=(\\d+).*", "$1");
+        String signature = url.replaceAll(".*signature=", "");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getObject("eye.png", Long.parseLong(expires), signature, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertArrayEquals(Files.readAllBytes(root.resolve("eye.png")), response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testServesKeysUnderAPrefix() throws Exception {
+        // Las claves de staging contienen '/', deben resolverse a través de la URL firmada completa
+        String key = storage.uploadImageByContent(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB),
+                S3Service.STAGING_PREFIX);
+        String url = storage.generatePresignedUrl(key);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(get(url.substring("http://localhost:8080".length())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(Files.readAllBytes(root.resolve(key))));
+    }
+
+    @Test
+    public void testRejectsInvalidSignature() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getObject("eye.png", Instant.now().plusSeconds(60).getEpochSecond(), "forged", response);
+
+        assertEquals(403, response.getStatus());
+    }
+}
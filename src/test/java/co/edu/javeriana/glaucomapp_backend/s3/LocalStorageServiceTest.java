@@ -0,0 +1,220 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LocalStorageServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T10:00:00Z");
+
+    @TempDir
+    Path root;
+
+    private BufferPool bufferPool;
+    private ImageDeletionOutbox imageDeletionOutbox;
+    private ImageReferences imageReferences;
+    private LocalStorageService storage;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        bufferPool = new BufferPool(new SimpleMeterRegistry(), 64, 16);
+        imageDeletionOutbox = mock(ImageDeletionOutbox.class);
+        imageReferences = mock(ImageReferences.class);
+        storage = storage(Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testUploadWritesObjectAndContentType() throws Exception {
+        String url = storage.uploadImage(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "eye.png");
+
+        assertEquals("http://localhost:8080/storage/eye.png", url);
+        assertEquals("image/png", storage.contentType("eye.png"));
+        byte[] stored = Files.readAllBytes(root.resolve("eye.png"));
+        assertEquals(stored.length, storage.size("eye.png"));
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        storage.transferTo("eye.png", Channels.newChannel(read));
+        assertArrayEquals(stored, read.toByteArray());
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testGetImageMapsStoredFile() throws Exception {
+        storage.uploadImage(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "eye.png");
+
+        StoredImage image = storage.getImage("eye.png").orElseThrow();
+
+        byte[] read = new byte[(int) image.size()];
+        image.content().get(read);
+        assertArrayEquals(Files.readAllBytes(root.resolve("eye.png")), read);
+        assertEquals("image/png", image.contentType());
+        assertTrue(image.etag().startsWith("\""));
+        assertTrue(storage.getImage("missing.png").isEmpty());
+    }
+
+    @Test
+    public void testPromoteRenamesStagedImage() throws Exception {
+        String staged = S3Service.STAGING_PREFIX + "eye.png";
+        storage.uploadImage(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), staged);
+        byte[] stored = Files.readAllBytes(root.resolve(staged));
+
+        assertEquals("eye.png", storage.promote(staged));
+        assertEquals("eye.png", storage.promote(staged));
+
+        assertArrayEquals(stored, Files.readAllBytes(root.resolve("eye.png")));
+        assertEquals("image/png", storage.contentType("eye.png"));
+        assertFalse(Files.exists(root.resolve(staged)));
+        assertEquals("eye.png", storage.promote("eye.png"));
+        assertThrows(IllegalArgumentException.class, () -> storage.promote(S3Service.STAGING_PREFIX + "missing.png"));
+        // Una imagen reutilizada que ya fue eliminada no se puede asociar al examen
+        assertThrows(IllegalArgumentException.class, () -> storage.promote("deleted.png"));
+        verify(imageReferences, times(3)).retain("eye.png");
+    }
+
+    @Test
+    public void testUploadByContentStoresIdenticalImagesOnce() throws Exception {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+
+        String staged = storage.uploadImageByContent(image, S3Service.STAGING_PREFIX);
+        assertTrue(staged.matches("staging/sha256-[0-9a-f]{64}\\.png"));
+        Files.setLastModifiedTime(root.resolve(staged), FileTime.from(NOW.minus(Duration.ofDays(1))));
+        assertEquals(staged, storage.uploadImageByContent(image, S3Service.STAGING_PREFIX));
+        assertEquals(FileTime.from(NOW.minus(Duration.ofDays(1))), Files.getLastModifiedTime(root.resolve(staged)));
+
+        String promoted = storage.promote(staged);
+        assertEquals(promoted, storage.uploadImageByContent(image, S3Service.STAGING_PREFIX));
+        assertFalse(Files.exists(root.resolve(staged)));
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    public void testReleaseDeletesOnlyUnreferencedImages() {
+        when(imageReferences.release(List.of("a.png", "b.png"))).thenReturn(List.of("b.png"));
+
+        storage.release(List.of("a.png", "b.png"));
+
+        verify(imageDeletionOutbox).record(List.of("b.png"));
+    }
+
+    @Test
+    public void testPurgeStagedDeletesExpiredImages() throws Exception {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        storage.uploadImage(image, S3Service.STAGING_PREFIX + "old.png");
+        storage.uploadImage(image, S3Service.STAGING_PREFIX + "new.png");
+        storage.uploadImage(image, "saved.png");
+        Files.setLastModifiedTime(root.resolve(S3Service.STAGING_PREFIX + "old.png"),
+                FileTime.from(NOW.minus(Duration.ofDays(2))));
+        Files.setLastModifiedTime(root.resolve(S3Service.STAGING_PREFIX + "new.png"), FileTime.from(NOW));
+        Files.setLastModifiedTime(root.resolve("saved.png"), FileTime.from(NOW.minus(Duration.ofDays(2))));
+
+        assertEquals(1, storage.purgeStaged(NOW.minus(Duration.ofDays(1))));
+
+        assertFalse(Files.exists(root.resolve(S3Service.STAGING_PREFIX + "old.png")));
+        assertFalse(Files.exists(root.resolve(S3Service.STAGING_PREFIX + "old.png" + LocalStorageService.CONTENT_TYPE_SUFFIX)));
+        assertTrue(Files.exists(root.resolve(S3Service.STAGING_PREFIX + "new.png")));
+        assertTrue(Files.exists(root.resolve("saved.png")));
+    }
+
+    @Test
+    public void testListImagesIsSortedByKey() throws Exception {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        storage.uploadImage(image, "b.png");
+        storage.uploadImage(image, S3Service.STAGING_PREFIX + "c.png");
+        storage.uploadImage(image, "a.png");
+
+        List<String> keys = storage.listImages().map(StoredObject::key).toList();
+
+        assertEquals(List.of("a.png", "b.png", S3Service.STAGING_PREFIX + "c.png"), keys);
+    }
+
+    @Test
+    public void testPresignedUrlIsVerifiedUntilItExpires() throws Exception {
+        URI url = URI.create(storage.generatePresignedUrl("eye.png"));
+        Map<String, String> query = query(url);
+        long expires = Long.parseLong(query.get("expires"));
+
+        assertEquals("/storage/eye.png", url.getPath());
+        assertEquals(NOW.plus(Duration.ofMinutes(60)).getEpochSecond(), expires);
+        assertTrue(storage.verify("eye.png", expires, query.get("signature")));
+        assertFalse(storage.verify("other.png", expires, query.get("signature")));
+        assertFalse(storage.verify("eye.png", expires + 1, query.get("signature")));
+
+        LocalStorageService later = storage(Clock.fixed(NOW.plus(Duration.ofMinutes(61)), ZoneOffset.UTC));
+        assertFalse(later.verify("eye.png", expires, query.get("signature")));
+    }
+
+    @Test
+    public void testDeleteRemovesObjectAndSidecar() {
+        storage.uploadImage(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "a.png");
+        storage.uploadImage(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "b.png");
+
+        Map<String, String> failures = storage.deleteImages(List.of("a.png", "b.png", "missing.png"));
+
+        assertTrue(failures.isEmpty());
+        assertFalse(Files.exists(root.resolve("a.png")));
+        assertFalse(Files.exists(root.resolve("a.png" + LocalStorageService.CONTENT_TYPE_SUFFIX)));
+    }
+
+    @Test
+    public void testKeysCannotEscapeRoot() {
+        String result = storage.uploadImage(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "../escape.png");
+
+        assertTrue(result.startsWith("Error uploading file:"));
+        assertFalse(Files.exists(root.resolveSibling("escape.png")));
+        assertEquals(Map.of("../escape.png", "Error deleting file: Invalid object key: ../escape.png"),
+                storage.deleteImages(List.of("../escape.png")));
+    }
+
+    @Test
+    public void testScheduleDeletionRecordsKeysInOutbox() {
+        storage.scheduleDeletion(List.of("eye.png"));
+
+        verify(imageDeletionOutbox).record(List.of("eye.png"));
+    }
+
+    private LocalStorageService storage(Clock clock) throws Exception {
+        PresignedUrlCache cache = new PresignedUrlCache(new SimpleMeterRegistry(), Duration.ofMinutes(60), 0.5, 100, clock);
+        return new LocalStorageService(bufferPool, cache, imageDeletionOutbox, imageReferences, root, "http://localhost:8080/",
+                "test-signing-key", clock);
+    }
+
+    private static Map<String, String> query(URI url) {
+        Map<String, String> query = new HashMap<>();
+        for (String parameter : url.getQuery().split("&")) {
+            String[] pair = parameter.split("=", 2);
+            query.put(pair[0], pair[1]);
+        }
+        return query;
+    }
+}
@@ -0,0 +1,102 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PresignedUrlCacheTest {
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private PresignedUrlCache cache;
+    private AtomicInteger signatures;
+    private Function<String, String> signer;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2024-03-01T10:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PresignedUrlCache(meterRegistry, Duration.ofMinutes(60), 0.5, 2, clock);
+        signatures = new AtomicInteger();
+        signer = key -> key + "?signature=" + signatures.incrementAndGet();
+    }
+
+    @Test
+    public void testUrlIsReusedUntilRefreshFractionElapses() {
+        assertEquals("a.png?signature=1", cache.get("a.png", signer));
+
+        clock.advance(Duration.ofMinutes(29));
+        assertEquals("a.png?signature=1", cache.get("a.png", signer));
+
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals("a.png?signature=2", cache.get("a.png", signer));
+        assertEquals(1.0, meterRegistry.get("s3.presign.cache.hits").counter().count());
+        assertEquals(2.0, meterRegistry.get("s3.presign.cache.misses").counter().count());
+    }
+
+    @Test
+    public void testInvalidatedUrlIsSignedAgain() {
+        cache.get("a.png", signer);
+        cache.invalidate("a.png");
+
+        assertEquals("a.png?signature=2", cache.get("a.png", signer));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedKeyIsEvicted() {
+        cache.get("a.png", signer);
+        cache.get("b.png", signer);
+        cache.get("a.png", signer);
+        cache.get("c.png", signer);
+
+        assertEquals(2, cache.size());
+        assertEquals("a.png?signature=1", cache.get("a.png", signer));
+        assertEquals("b.png?signature=4", cache.get("b.png", signer));
+    }
+
+    @Test
+    public void testRefreshFractionMustBeWithinValidity() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PresignedUrlCache(meterRegistry, Duration.ofMinutes(60), 1.5, 2, clock));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
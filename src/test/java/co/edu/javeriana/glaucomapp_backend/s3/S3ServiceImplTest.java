@@ -2,28 +2,77 @@ package co.edu.javeriana.glaucomapp_backend.s3;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import static org.mockito.ArgumentMatchers.any;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import co.edu.javeriana.glaucomapp_backend.common.buffer.BufferPool;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.StoredImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.sun.net.httpserver.HttpServer;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Utilities;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetUrlRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.CompletedUpload;
+import software.amazon.awssdk.transfer.s3.model.Upload;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 @ExtendWith(MockitoExtension.class)
 public class S3ServiceImplTest {
@@ -34,7 +83,27 @@ public class S3ServiceImplTest {
     @Mock
     private S3Presigner s3Presigner;
 
-    @InjectMocks
+    @Spy
+    private BufferPool bufferPool = new BufferPool(new SimpleMeterRegistry(), 64, 16);
+
+    @Mock
+    private ImageDeletionOutbox imageDeletionOutbox;
+
+    @Mock
+    private S3TransferManager transferManager;
+
+    @Mock
+    private ImageDiskCache imageDiskCache;
+
+    @Mock
+    private ImageReferences imageReferences;
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Spy
+    private PresignedUrlCache presignedUrlCache = new PresignedUrlCache(new SimpleMeterRegistry(), 60, 0.5, 100);
+
     private S3ServiceImpl s3Service;
 
     private static final String BUCKET_NAME = "test-bucket";
@@ -43,9 +112,46 @@ public class S3ServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        s3Service = new S3ServiceImpl(s3Client, s3Presigner, bufferPool, presignedUrlCache, imageDeletionOutbox, transferManager, imageDiskCache, imageReferences, 2, 8);
         ReflectionTestUtils.setField(s3Service, "bucketName", BUCKET_NAME);
     }
 
+    @Test
+    void uploadImage_StuckUploadFailsAtTheDeadline() throws Exception {
+        // Un S3 que acepta la conexión pero nunca responde
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer stuckS3 = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stuckS3.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stuckS3.createContext("/", exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        stuckS3.start();
+        try (S3Client stuckClient = S3Client.builder()
+                .endpointOverride(URI.create("http://127.0.0.1:" + stuckS3.getAddress().getPort()))
+                .forcePathStyle(true)
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .overrideConfiguration(S3Config.callTimeouts(300))
+                .build()) {
+            S3ServiceImpl stuckService = new S3ServiceImpl(stuckClient, s3Presigner, bufferPool, presignedUrlCache,
+                    imageDeletionOutbox, transferManager, imageDiskCache, imageReferences, 2, 8);
+            ReflectionTestUtils.setField(stuckService, "bucketName", BUCKET_NAME);
+
+            long start = System.nanoTime();
+            assertThrows(ApiCallTimeoutException.class,
+                    () -> stuckService.uploadImage(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), TEST_FILE_NAME));
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2_000);
+        } finally {
+            release.countDown();
+            stuckS3.stop(0);
+        }
+    }
+
     @Test
     void generatePresignedUrl_Success() throws Exception {
         PresignedGetObjectRequest presignedRequest = mock(PresignedGetObjectRequest.class);
@@ -59,6 +165,33 @@ public class S3ServiceImplTest {
         verify(s3Presigner).presignGetObject(any(GetObjectPresignRequest.class));
     }
 
+    @Test
+    void generatePresignedUrl_ReusesCachedUrl() throws Exception {
+        PresignedGetObjectRequest presignedRequest = mock(PresignedGetObjectRequest.class);
+        when(presignedRequest.url()).thenReturn(new URL(TEST_URL));
+        when(s3Presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenReturn(presignedRequest);
+
+        assertEquals(TEST_URL, s3Service.generatePresignedUrl(TEST_FILE_NAME));
+        assertEquals(TEST_URL, s3Service.generatePresignedUrl(TEST_FILE_NAME));
+
+        verify(s3Presigner, times(1)).presignGetObject(any(GetObjectPresignRequest.class));
+    }
+
+    @Test
+    void deleteImage_InvalidatesCachedUrl() throws Exception {
+        PresignedGetObjectRequest presignedRequest = mock(PresignedGetObjectRequest.class);
+        when(presignedRequest.url()).thenReturn(new URL(TEST_URL));
+        when(s3Presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenReturn(presignedRequest);
+
+        s3Service.generatePresignedUrl(TEST_FILE_NAME);
+        s3Service.deleteImage(TEST_FILE_NAME);
+        s3Service.generatePresignedUrl(TEST_FILE_NAME);
+
+        verify(presignedUrlCache).invalidate(TEST_FILE_NAME);
+        verify(imageDiskCache).invalidate(TEST_FILE_NAME);
+        verify(s3Presigner, times(2)).presignGetObject(any(GetObjectPresignRequest.class));
+    }
+
     @Test
     void uploadImage_Success() throws IOException {
         BufferedImage testImage = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
@@ -71,6 +204,70 @@ public class S3ServiceImplTest {
         assertNotNull(result);
         assertEquals(TEST_URL, result);
         verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    void uploadImage_UsesMultipartAboveThreshold() throws IOException {
+        S3ServiceImpl multipartService = new S3ServiceImpl(s3Client, s3Presigner, bufferPool, presignedUrlCache,
+                imageDeletionOutbox, transferManager, imageDiskCache, imageReferences, 2, 0);
+        ReflectionTestUtils.setField(multipartService, "bucketName", BUCKET_NAME);
+        BufferedImage testImage = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        S3Utilities s3Utilities = mock(S3Utilities.class);
+        when(s3Client.utilities()).thenReturn(s3Utilities);
+        when(s3Utilities.getUrl(any(GetUrlRequest.class))).thenReturn(new URL(TEST_URL));
+        Upload upload = mock(Upload.class);
+        when(upload.completionFuture()).thenReturn(CompletableFuture.completedFuture(mock(CompletedUpload.class)));
+        when(transferManager.upload(any(UploadRequest.class))).thenReturn(upload);
+
+        String result = multipartService.uploadImage(testImage, TEST_FILE_NAME);
+
+        assertEquals(TEST_URL, result);
+        ArgumentCaptor<UploadRequest> request = ArgumentCaptor.forClass(UploadRequest.class);
+        verify(transferManager).upload(request.capture());
+        assertEquals(TEST_FILE_NAME, request.getValue().putObjectRequest().key());
+        assertTrue(request.getValue().requestBody().contentLength().orElseThrow() > 0);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getImage_DownloadsOnceThroughDiskCache() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(new SimpleMeterRegistry(), cacheDirectory, 1024 * 1024,
+                Duration.ofHours(1), Clock.systemUTC());
+        S3ServiceImpl cachingService = new S3ServiceImpl(s3Client, s3Presigner, bufferPool, presignedUrlCache,
+                imageDeletionOutbox, transferManager, cache, imageReferences, 2, 8);
+        ReflectionTestUtils.setField(cachingService, "bucketName", BUCKET_NAME);
+        byte[] png = { 1, 2, 3, 4 };
+        when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class))).thenAnswer(invocation -> {
+            GetObjectResponse response = GetObjectResponse.builder().contentType("image/png").eTag("\"abc\"").build();
+            return invocation.<ResponseTransformer<GetObjectResponse, GetObjectResponse>>getArgument(1)
+                    .transform(response, AbortableInputStream.create(new ByteArrayInputStream(png)));
+        });
+
+        StoredImage first = cachingService.getImage(TEST_FILE_NAME).orElseThrow();
+        StoredImage second = cachingService.getImage(TEST_FILE_NAME).orElseThrow();
+
+        assertEquals("image/png", first.contentType());
+        assertEquals("\"abc\"", first.etag());
+        byte[] read = new byte[(int) second.size()];
+        second.content().get(read);
+        assertArrayEquals(png, read);
+        verify(s3Client, times(1)).getObject(any(GetObjectRequest.class), any(ResponseTransformer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getImage_MissingObjectIsEmpty() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(new SimpleMeterRegistry(), cacheDirectory, 1024 * 1024,
+                Duration.ofHours(1), Clock.systemUTC());
+        S3ServiceImpl cachingService = new S3ServiceImpl(s3Client, s3Presigner, bufferPool, presignedUrlCache,
+                imageDeletionOutbox, transferManager, cache, imageReferences, 2, 8);
+        when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenThrow(NoSuchKeyException.builder().message("The specified key does not exist.").build());
+
+        assertEquals(Optional.empty(), cachingService.getImage(TEST_FILE_NAME));
     }
 
     @Test
@@ -90,4 +287,179 @@ public class S3ServiceImplTest {
         assertTrue(result.startsWith("Error deleting file:"));
         verify(s3Client).deleteObject(any(DeleteObjectRequest.class));
     }
+
+    @Test
+    void deleteImages_GroupsKeysIntoBatches() {
+        List<String> keys = IntStream.range(0, 2500).mapToObj(i -> "exam-" + i + ".png").toList();
+        List<DeleteObjectsRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return DeleteObjectsResponse.builder().build();
+        });
+
+        Map<String, String> failures = s3Service.deleteImages(keys);
+
+        assertTrue(failures.isEmpty());
+        assertEquals(3, requests.size());
+        assertEquals(keys.size(), requests.stream().mapToInt(request -> request.delete().objects().size()).sum());
+        assertTrue(requests.stream().allMatch(request -> request.delete().objects().size() <= S3ServiceImpl.MAX_KEYS_PER_DELETE));
+        assertTrue(requests.stream().allMatch(request -> BUCKET_NAME.equals(request.bucket())));
+    }
+
+    @Test
+    void deleteImages_ReportsFailedKeys() {
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder()
+                .errors(S3Error.builder().key("b.png").code("AccessDenied").message("Access Denied").build())
+                .build());
+
+        Map<String, String> failures = s3Service.deleteImages(List.of("a.png", "b.png", "a.png"));
+
+        assertEquals(Map.of("b.png", "AccessDenied: Access Denied"), failures);
+        ArgumentCaptor<DeleteObjectsRequest> request = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(request.capture());
+        assertEquals(List.of("a.png", "b.png"),
+                request.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList());
+        verify(presignedUrlCache).invalidate("a.png");
+    }
+
+    @Test
+    void deleteImages_ReportsWholeBatchWhenRequestFails() {
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenThrow(new RuntimeException("Connection reset"));
+
+        Map<String, String> failures = s3Service.deleteImages(List.of("a.png", "b.png"));
+
+        assertEquals(2, failures.size());
+        assertEquals("Error deleting file: Connection reset", failures.get("a.png"));
+    }
+
+    @Test
+    void scheduleDeletion_RecordsKeysInOutbox() {
+        s3Service.scheduleDeletion(List.of(TEST_FILE_NAME));
+
+        verify(imageDeletionOutbox).record(List.of(TEST_FILE_NAME));
+        verify(presignedUrlCache).invalidate(TEST_FILE_NAME);
+        verify(s3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    void promote_CopiesStagedImageInsideBucket() {
+        String staged = S3Service.STAGING_PREFIX + TEST_FILE_NAME;
+
+        assertEquals(TEST_FILE_NAME, s3Service.promote(staged));
+
+        ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3Client).copyObject(copy.capture());
+        assertEquals(staged, copy.getValue().sourceKey());
+        assertEquals(TEST_FILE_NAME, copy.getValue().destinationKey());
+        assertEquals(BUCKET_NAME, copy.getValue().destinationBucket());
+        verify(imageDeletionOutbox).record(List.of(staged));
+        verify(imageReferences).retain(TEST_FILE_NAME);
+    }
+
+    @Test
+    void promote_LeavesPermanentKeysUnchanged() {
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        assertEquals(TEST_FILE_NAME, s3Service.promote(TEST_FILE_NAME));
+
+        verify(s3Client, never()).copyObject(any(CopyObjectRequest.class));
+        verifyNoInteractions(imageDeletionOutbox);
+        verify(imageReferences).retain(TEST_FILE_NAME);
+    }
+
+    @Test
+    void promote_FailsWhenReusedImageWasDeleted() {
+        // La imagen reutilizada se elimino mientras su borrado estaba pendiente
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        assertThrows(IllegalArgumentException.class, () -> s3Service.promote(TEST_FILE_NAME));
+
+        InOrder order = inOrder(imageReferences, s3Client);
+        order.verify(imageReferences).retain(TEST_FILE_NAME);
+        order.verify(s3Client).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    void uploadImageByContent_SkipsExistingObjects() {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        String key = s3Service.uploadImageByContent(image, S3Service.STAGING_PREFIX);
+
+        assertTrue(key.matches("staging/sha256-[0-9a-f]{64}\\.png"));
+        ArgumentCaptor<PutObjectRequest> put = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(put.capture(), any(RequestBody.class));
+        assertEquals(key, put.getValue().key());
+
+        reset(s3Client);
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenAnswer(invocation -> {
+            HeadObjectRequest head = invocation.getArgument(0);
+            if (head.key().equals(key)) {
+                return HeadObjectResponse.builder().build();
+            }
+            throw NoSuchKeyException.builder().statusCode(404).build();
+        });
+        assertEquals(key, s3Service.uploadImageByContent(image, S3Service.STAGING_PREFIX));
+
+        reset(s3Client);
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+        assertEquals(key.substring(S3Service.STAGING_PREFIX.length()),
+                s3Service.uploadImageByContent(image, S3Service.STAGING_PREFIX));
+
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertEquals(0, bufferPool.outstandingBytes());
+    }
+
+    @Test
+    void release_SchedulesOnlyUnreferencedImages() {
+        when(imageReferences.release(List.of("a.png", "b.png"))).thenReturn(List.of("b.png"));
+
+        s3Service.release(List.of("a.png", "b.png"));
+
+        verify(imageDeletionOutbox).record(List.of("b.png"));
+        verify(imageDiskCache, never()).invalidate("a.png");
+    }
+
+    @Test
+    void promote_IsIdempotentOnceStagedCopyIsGone() {
+        String staged = S3Service.STAGING_PREFIX + TEST_FILE_NAME;
+        when(s3Client.copyObject(any(CopyObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        assertEquals(TEST_FILE_NAME, s3Service.promote(staged));
+    }
+
+    @Test
+    void promote_FailsWhenStagedImageExpired() {
+        when(s3Client.copyObject(any(CopyObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> s3Service.promote(S3Service.STAGING_PREFIX + TEST_FILE_NAME));
+        verify(imageDeletionOutbox, never()).record(any());
+    }
+
+    @Test
+    void purgeStaged_DeletesOnlyExpiredObjects() {
+        Instant cutoff = Instant.parse("2024-03-01T10:00:00Z");
+        ListObjectsV2Response page = ListObjectsV2Response.builder().contents(
+                S3Object.builder().key("staging/old.png").lastModified(cutoff.minusSeconds(1)).build(),
+                S3Object.builder().key("staging/new.png").lastModified(cutoff.plusSeconds(1)).build()).build();
+        when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenReturn(new ListObjectsV2Iterable(s3Client, ListObjectsV2Request.builder().build()));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page);
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(DeleteObjectsResponse.builder().build());
+
+        assertEquals(1, s3Service.purgeStaged(cutoff));
+
+        ArgumentCaptor<DeleteObjectsRequest> delete = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(delete.capture());
+        assertEquals(List.of(ObjectIdentifier.builder().key("staging/old.png").build()),
+                delete.getValue().delete().objects());
+    }
 }
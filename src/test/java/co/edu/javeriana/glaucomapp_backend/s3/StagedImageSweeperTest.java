@@ -0,0 +1,32 @@
+package co.edu.javeriana.glaucomapp_backend.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import co.edu.javeriana.glaucomapp_backend.s3.exposed.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StagedImageSweeperTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-01T10:00:00Z");
+
+    @Test
+    public void testSweepPurgesImagesOlderThanTtl() {
+        S3Service s3Service = mock(S3Service.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        when(s3Service.purgeStaged(NOW.minus(Duration.ofHours(24)))).thenReturn(3);
+        StagedImageSweeper sweeper = new StagedImageSweeper(s3Service, meterRegistry, Duration.ofHours(24), 1000,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertEquals(3, sweeper.sweepOnce());
+        assertEquals(3, meterRegistry.counter("image.staging.purged").count());
+    }
+}